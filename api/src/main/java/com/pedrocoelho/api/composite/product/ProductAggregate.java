@@ -1,7 +1,11 @@
 package com.pedrocoelho.api.composite.product;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
+/* INFO: Parts left out with the fields parameter of getProduct are null and omitted from the JSON document. */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ProductAggregate {
 
   private final int productId;
@@ -1,10 +1,15 @@
 package com.pedrocoelho.api.composite.product;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 
 /* INFO: To document the actual API and its RESTful operations, we add an @Tag annotation to the Java interface declaration. */
 @Tag(name = "ProductComposite", description = "REST API for composite product information.")
@@ -32,9 +37,18 @@ public interface ProductCompositeService {
 
   /**
    * Sample usage: curl $HOST:$PORT/product-composite/123
+   * <p>
+   * The response carries a strong ETag derived from the versions of the product, its recommendations and its reviews.
+   * Sample usage: curl -H 'If-None-Match: "123-5f0e1a"' $HOST:$PORT/product-composite/123
+   * <p>
+   * The optional parts can be selected, the core services of the others are then not called.
+   * Sample usage: curl $HOST:$PORT/product-composite/123?fields=reviews,serviceAddresses
    *
    * @param productId Id of the product
-   * @return the composite product info, if found, else null
+   * @param fields    comma separated parts to include, any of recommendations, reviews and serviceAddresses; all if
+   *                  not given
+   * @param exchange  the current exchange, used to evaluate If-None-Match and to answer 304 without a body
+   * @return the composite product info, if found, else null when the client's copy is still current
    */
   /* INFO: For each RESTful operation in the API, we add an @Operation annotation, along with @ApiResponse annotations on the corresponding Java method, to describe the operation and its expected responses. We will describe both successful and error responses. */
   @Operation(
@@ -42,6 +56,7 @@ public interface ProductCompositeService {
       description = "${api.product-composite.get-composite-product.notes}")
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+      @ApiResponse(responseCode = "304", description = "${api.responseCodes.notModified.description}"),
       @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
       @ApiResponse(responseCode = "404", description = "${api.responseCodes.notFound.description}"),
       @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
@@ -49,7 +64,59 @@ public interface ProductCompositeService {
   @GetMapping(
       value = "/product-composite/{productId}",
       produces = "application/json")
-  ProductAggregate getProduct(@PathVariable int productId);
+  ProductAggregate getProduct(
+      @PathVariable int productId,
+      @RequestParam(value = "fields", required = false) String fields,
+      ServerWebExchange exchange);
+
+  /**
+   * Sample usage: curl $HOST:$PORT/product-composite/123?view=summary
+   * <p>
+   * Returns the product with the number of its reviews and recommendations and their average rate, instead of the
+   * reviews and recommendations themselves. The counts are kept up to date by the core services, so the response
+   * takes the same time for any number of reviews and recommendations.
+   *
+   * @param productId Id of the product
+   * @return the product summary, if found, else null
+   */
+  @Operation(
+      summary = "${api.product-composite.get-composite-product-summary.description}",
+      description = "${api.product-composite.get-composite-product-summary.notes}")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+      @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+      @ApiResponse(responseCode = "404", description = "${api.responseCodes.notFound.description}"),
+      @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+  })
+  @GetMapping(
+      value = "/product-composite/{productId}",
+      params = "view=summary",
+      produces = "application/json")
+  ProductSummary getProductSummary(@PathVariable int productId);
+
+  /**
+   * Sample usage: curl $HOST:$PORT/product-composite/123/stream
+   * <p>
+   * Returns the same JSON document as getProduct, but writes the recommendations and reviews incrementally as they
+   * are received from the core services. Intended for products with very large lists of reviews and recommendations.
+   *
+   * @param productId Id of the product
+   * @return the composite product info, encoded as a stream of JSON fragments
+   */
+  @Operation(
+      summary = "${api.product-composite.stream-composite-product.description}",
+      description = "${api.product-composite.stream-composite-product.notes}")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}",
+          content = @Content(schema = @Schema(implementation = ProductAggregate.class))),
+      @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+      @ApiResponse(responseCode = "404", description = "${api.responseCodes.notFound.description}"),
+      @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+  })
+  @GetMapping(
+      value = "/product-composite/{productId}/stream",
+      produces = "application/json")
+  Flux<DataBuffer> getProductStream(@PathVariable int productId);
 
 
   /**
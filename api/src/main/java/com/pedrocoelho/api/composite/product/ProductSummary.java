@@ -0,0 +1,80 @@
+package com.pedrocoelho.api.composite.product;
+
+/**
+ * The product with the number of its reviews and recommendations and their average rate, instead of the reviews and
+ * recommendations themselves. averageRate is null for a product without recommendations.
+ */
+public class ProductSummary {
+
+  private final int productId;
+  private final String name;
+  private final int weight;
+  private final int recommendationCount;
+  private final Double averageRate;
+  private final int reviewCount;
+  private final ServiceAddresses serviceAddresses;
+
+  public ProductSummary() {
+
+    productId = 0;
+    name = null;
+    weight = 0;
+    recommendationCount = 0;
+    averageRate = null;
+    reviewCount = 0;
+    serviceAddresses = null;
+  }
+
+  public ProductSummary(
+      int productId,
+      String name,
+      int weight,
+      int recommendationCount,
+      Double averageRate,
+      int reviewCount,
+      ServiceAddresses serviceAddresses) {
+
+    this.productId = productId;
+    this.name = name;
+    this.weight = weight;
+    this.recommendationCount = recommendationCount;
+    this.averageRate = averageRate;
+    this.reviewCount = reviewCount;
+    this.serviceAddresses = serviceAddresses;
+  }
+
+  public int getProductId() {
+
+    return productId;
+  }
+
+  public String getName() {
+
+    return name;
+  }
+
+  public int getWeight() {
+
+    return weight;
+  }
+
+  public int getRecommendationCount() {
+
+    return recommendationCount;
+  }
+
+  public Double getAverageRate() {
+
+    return averageRate;
+  }
+
+  public int getReviewCount() {
+
+    return reviewCount;
+  }
+
+  public ServiceAddresses getServiceAddresses() {
+
+    return serviceAddresses;
+  }
+}
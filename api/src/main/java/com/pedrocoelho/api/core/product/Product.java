@@ -6,6 +6,7 @@ public class Product {
   private String name;
   private int weight;
   private String serviceAddress;
+  private int version;
 
   public Product() {
 
@@ -43,6 +44,11 @@ public class Product {
     return serviceAddress;
   }
 
+  public int getVersion() {
+
+    return version;
+  }
+
   public Product setProductId(int productId) {
 
     this.productId = productId;
@@ -67,6 +73,12 @@ public class Product {
     return this;
   }
 
+  public Product setVersion(int version) {
+
+    this.version = version;
+    return this;
+  }
+
   // FOR DEBUG
   @Override
   public String toString() {
@@ -76,6 +88,7 @@ public class Product {
         ", name='" + name + '\'' +
         ", weight=" + weight +
         ", serviceAddress='" + serviceAddress + '\'' +
+        ", version=" + version +
         '}';
   }
 }
@@ -7,6 +7,7 @@ public class Recommendation {
     private int rate;
     private String content;
     private String serviceAddress;
+    private int version;
 
     public Recommendation() {
         productId = 0;
@@ -74,6 +75,14 @@ public class Recommendation {
         this.serviceAddress = serviceAddress;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     // FOR DEBUG
     @Override
     public String toString() {
@@ -84,6 +93,7 @@ public class Recommendation {
             ", rate=" + rate +
             ", content='" + content + '\'' +
             ", serviceAddress='" + serviceAddress + '\'' +
+            ", version=" + version +
             '}';
     }
 }
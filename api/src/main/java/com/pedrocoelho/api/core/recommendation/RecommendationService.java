@@ -1,7 +1,9 @@
 package com.pedrocoelho.api.core.recommendation;
 
 
+import com.pedrocoelho.api.composite.product.RecommendationSummary;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 
 import java.util.List;
 
@@ -33,6 +35,37 @@ public interface RecommendationService {
       produces = "application/json")
   List<Recommendation> getRecommendations(@RequestParam(value = "productId", required = true) int productId);
 
+  /**
+   * Sample usage: curl -i $HOST:$PORT/recommendation/summaries?productId=1
+   * <p>
+   * The recommendations in the shape of the recommendations of a ProductAggregate, so the composite can splice the
+   * body into its own response without parsing it. The ETag header is derived from the ids, versions and contents
+   * of the recommendations and the Service-Address header carries the address of the service.
+   *
+   * @param productId the product id
+   * @param exchange  the current exchange, used to set the headers and to answer 304 without a body
+   * @return the recommendations of the product as RecommendationSummary, else null when the client's copy is still
+   * current
+   */
+  @GetMapping(
+      value = "/recommendation/summaries",
+      produces = "application/json")
+  List<RecommendationSummary> getRecommendationSummaries(@RequestParam(value = "productId", required = true) int productId, ServerWebExchange exchange);
+
+  /**
+   * Sample usage: curl $HOST:$PORT/recommendation/statistics?productId=1
+   * <p>
+   * The statistics are kept up to date on every create and delete, so they are read without scanning the
+   * recommendations.
+   *
+   * @param productId the product id
+   * @return the number of recommendations of the product and the sum of their rates
+   */
+  @GetMapping(
+      value = "/recommendation/statistics",
+      produces = "application/json")
+  RecommendationStatistics getRecommendationStatistics(@RequestParam(value = "productId", required = true) int productId);
+
   /**
    * Sample usage: "curl -X DELETE $HOST:$PORT/recommendation/1".
    *
@@ -0,0 +1,54 @@
+package com.pedrocoelho.api.core.recommendation;
+
+public class RecommendationStatistics {
+    private int productId;
+    private int count;
+    private long rateSum;
+    private String serviceAddress;
+
+    public RecommendationStatistics() {
+        productId = 0;
+        count = 0;
+        rateSum = 0;
+        serviceAddress = null;
+    }
+
+    public RecommendationStatistics(int productId, int count, long rateSum, String serviceAddress) {
+        this.productId = productId;
+        this.count = count;
+        this.rateSum = rateSum;
+        this.serviceAddress = serviceAddress;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public long getRateSum() {
+        return rateSum;
+    }
+
+    public void setRateSum(long rateSum) {
+        this.rateSum = rateSum;
+    }
+
+    public String getServiceAddress() {
+        return serviceAddress;
+    }
+
+    public void setServiceAddress(String serviceAddress) {
+        this.serviceAddress = serviceAddress;
+    }
+}
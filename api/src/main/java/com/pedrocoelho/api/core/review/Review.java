@@ -7,6 +7,7 @@ public class Review {
     private String subject;
     private String content;
     private String serviceAddress;
+    private int version;
 
     public Review() {
         productId = 0;
@@ -74,6 +75,14 @@ public class Review {
         this.serviceAddress = serviceAddress;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     // FOR DEBUG
     @Override
     public String toString() {
@@ -84,6 +93,7 @@ public class Review {
             ", subject='" + subject + '\'' +
             ", content='" + content + '\'' +
             ", serviceAddress='" + serviceAddress + '\'' +
+            ", version=" + version +
             '}';
     }
 }
@@ -1,6 +1,8 @@
 package com.pedrocoelho.api.core.review;
 
+import com.pedrocoelho.api.composite.product.ReviewSummary;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 
 import java.util.List;
 
@@ -21,6 +23,23 @@ public interface ReviewService {
   )
   Review createReview(@RequestBody Review body);
 
+  /**
+   * curl -X POST $HOST:$PORT/reviews
+   * -H "Content-Type: application/json"
+   * --data '[{"productId":1,"reviewId":1, "author":"a", "subject":"s", "content": "c"}, ...]'
+   *
+   * Creates all reviews or none of them.
+   *
+   * @param body A JSON array of the new reviews
+   * @return A JSON array of the newly created reviews
+   */
+  @PostMapping(
+      value = "/reviews",
+      consumes = "application/json",
+      produces = "application/json"
+  )
+  List<Review> createReviews(@RequestBody List<Review> body);
+
   /**
    * Sample usage: "curl $HOST:$PORT/review?productId=1".
    *
@@ -32,6 +51,35 @@ public interface ReviewService {
       produces = "application/json")
   List<Review> getReviews(@RequestParam(value = "productId", required = true) int productId);
 
+  /**
+   * Sample usage: "curl -i $HOST:$PORT/review/summaries?productId=1".
+   * <p>
+   * The reviews in the shape of the reviews of a ProductAggregate, so the composite can splice the body into its own
+   * response without parsing it. The ETag header is derived from the ids, versions and contents of the reviews and
+   * the Service-Address header carries the address of the service.
+   *
+   * @param productId Id of the product
+   * @param exchange  the current exchange, used to set the headers and to answer 304 without a body
+   * @return the reviews of the product as ReviewSummary, else null when the client's copy is still current
+   */
+  @GetMapping(
+      value = "/review/summaries",
+      produces = "application/json")
+  List<ReviewSummary> getReviewSummaries(@RequestParam(value = "productId", required = true) int productId, ServerWebExchange exchange);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/review/statistics?productId=1".
+   * <p>
+   * The statistics are kept up to date on every create and delete, so they are read without counting the reviews.
+   *
+   * @param productId Id of the product
+   * @return the number of reviews of the product
+   */
+  @GetMapping(
+      value = "/review/statistics",
+      produces = "application/json")
+  ReviewStatistics getReviewStatistics(@RequestParam(value = "productId", required = true) int productId);
+
   /**
    * Sample usage: "curl -X DELETE $HOST:$PORT/review/1".
    *
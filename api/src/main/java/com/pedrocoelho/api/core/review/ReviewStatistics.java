@@ -0,0 +1,43 @@
+package com.pedrocoelho.api.core.review;
+
+public class ReviewStatistics {
+    private int productId;
+    private int count;
+    private String serviceAddress;
+
+    public ReviewStatistics() {
+        productId = 0;
+        count = 0;
+        serviceAddress = null;
+    }
+
+    public ReviewStatistics(int productId, int count, String serviceAddress) {
+        this.productId = productId;
+        this.count = count;
+        this.serviceAddress = serviceAddress;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public String getServiceAddress() {
+        return serviceAddress;
+    }
+
+    public void setServiceAddress(String serviceAddress) {
+        this.serviceAddress = serviceAddress;
+    }
+}
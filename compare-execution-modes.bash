@@ -0,0 +1,86 @@
+#!/usr/bin/env bash
+#
+# Compares the execution modes of the composite service (app.execution.mode) at high concurrency. The composite calls
+# the core services with the blocking RestTemplate, so every request in flight holds a thread while it waits.
+# The core services are the in-memory stubs of the load-test module, with STUB_LATENCY added to each response to stand
+# in for the database time of the real services. Each run uses the closed model with CONCURRENCY workers:
+#   - event-loop:      handlers block the Netty event loop, the behaviour before execution modes were added
+#   - bounded-elastic: handlers run on Reactor's bounded pool of platform threads
+#   - virtual:         handlers run on virtual threads, needs Java 21 or later as JAVA_HOME
+#   - reactive:        event-loop mode, but the streaming endpoint, which uses the non-blocking WebClient
+#
+# Sample usage:
+#
+#   ./compare-execution-modes.bash
+#   MODES="bounded-elastic virtual" CONCURRENCY=5000 STUB_LATENCY=100ms ./compare-execution-modes.bash
+#
+: ${MODES="event-loop bounded-elastic virtual reactive"}
+: ${CONCURRENCY=2000}
+: ${STUB_LATENCY=50ms}
+: ${WARMUP=20s}
+: ${DURATION=60s}
+: ${PORT=7010}
+: ${SKIP_BUILD=false}
+
+LOG_DIR=build/compare-execution-modes
+
+function waitForService() {
+
+  local pid=$1
+  until curl -s -o /dev/null "http://localhost:$PORT/actuator/health"
+  do
+    if ! kill -0 $pid 2> /dev/null
+    then
+      echo "The composite exited during startup, see $LOG_DIR"
+      exit 1
+    fi
+    sleep 0.1
+  done
+}
+
+function measure() {
+
+  local mode=$1
+  local executionMode=$mode
+  local streamRatio=0.0
+  if [[ $mode == "reactive" ]]
+  then
+    executionMode=event-loop
+    streamRatio=1.0
+  fi
+
+  java -jar microservices/product-composite-service/build/libs/product-composite-service-1.0.0-SNAPSHOT.jar \
+    --server.port=$PORT --app.execution.mode=$executionMode --app.product-composite.cache.enabled=false \
+    --logging.level.com.pedrocoelho=INFO > $LOG_DIR/composite-$mode.log 2>&1 &
+  local pid=$!
+  waitForService $pid
+
+  echo "== $mode"
+  java -jar load-test/build/libs/load-test-1.0.0-SNAPSHOT.jar \
+    --app.load-test.base-url=http://localhost:$PORT --app.load-test.model=closed \
+    --app.load-test.concurrency=$CONCURRENCY --app.load-test.warm-up=$WARMUP --app.load-test.duration=$DURATION \
+    --app.load-test.mix.stream-ratio=$streamRatio --app.load-test.stubs.enabled=false 2> $LOG_DIR/load-test-$mode.log \
+    | grep -E "^(requests|latency)"
+
+  kill $pid
+  wait $pid 2> /dev/null
+}
+
+set -e
+
+mkdir -p $LOG_DIR
+
+if [[ $SKIP_BUILD != "true" ]]
+then
+  ./gradlew -q :microservices:product-composite-service:bootJar :load-test:bootJar
+fi
+
+java -jar load-test/build/libs/load-test-1.0.0-SNAPSHOT.jar \
+  --app.load-test.enabled=false --app.load-test.stubs.latency=$STUB_LATENCY > $LOG_DIR/stubs.log 2>&1 &
+STUBS_PID=$!
+trap "kill $STUBS_PID 2> /dev/null" EXIT
+
+for mode in $MODES
+do
+  measure $mode
+done
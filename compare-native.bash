@@ -0,0 +1,114 @@
+#!/usr/bin/env bash
+#
+# Compares the JVM and the native build of the core services on the in-memory repositories, so no database is needed:
+#   - startup: milliseconds from launching the process until it has answered its first request
+#   - RSS:     resident memory in MB right after startup, and after the load test
+#   - req/s:   steady-state throughput of GET requests for one entity, measured after a warm-up period
+#
+# Requires hey (https://github.com/rakyll/hey) as load generator and, unless SKIP_BUILD=true, a GraalVM with
+# native-image as JAVA_HOME.
+#
+# Sample usage:
+#
+#   ./compare-native.bash
+#   SERVICES=product-service WARMUP=60s DURATION=60s ./compare-native.bash
+#
+: ${SERVICES="product-service recommendation-service review-service"}
+: ${PORT=7100}
+: ${WARMUP=30s}
+: ${DURATION=30s}
+: ${CONCURRENCY=32}
+: ${SKIP_BUILD=false}
+
+LOG_DIR=build/compare-native
+
+function probePath() {
+
+  case $1 in
+    product-service) echo "/product/1";;
+    recommendation-service) echo "/recommendation?productId=1";;
+    review-service) echo "/review?productId=1";;
+  esac
+}
+
+function seed() {
+
+  local path body
+  case $1 in
+    product-service)
+      path=/product
+      body='{"productId":1,"name":"name","weight":1}';;
+    recommendation-service)
+      path=/recommendation
+      body='{"productId":1,"recommendationId":1,"author":"a","rate":1,"content":"c"}';;
+    review-service)
+      path=/review
+      body='{"productId":1,"reviewId":1,"author":"a","subject":"s","content":"c"}';;
+  esac
+  curl -s -o /dev/null -X POST -H "Content-Type: application/json" -d "$body" "http://localhost:$PORT$path"
+}
+
+function rssMegabytes() {
+
+  echo $(( $(awk '/VmRSS/ {print $2}' /proc/$1/status) / 1024 ))
+}
+
+function measure() {
+
+  local service=$1
+  local variant=$2
+  shift 2
+  local url="http://localhost:$PORT$(probePath $service)"
+
+  local start=$(date +%s%3N)
+  "$@" --server.port=$PORT --spring.profiles.active=inmemory > $LOG_DIR/$service-$variant.log 2>&1 &
+  local pid=$!
+
+  until curl -s -o /dev/null "$url"
+  do
+    if ! kill -0 $pid 2> /dev/null
+    then
+      echo "$service ($variant) exited during startup, see $LOG_DIR/$service-$variant.log"
+      exit 1
+    fi
+    sleep 0.01
+  done
+  local startup=$(( $(date +%s%3N) - start ))
+  local rssStartup=$(rssMegabytes $pid)
+
+  seed $service
+  hey -z $WARMUP -c $CONCURRENCY "$url" > /dev/null
+  local throughput=$(hey -z $DURATION -c $CONCURRENCY "$url" | awk '/Requests\/sec/ {print $2}')
+  local rssLoaded=$(rssMegabytes $pid)
+
+  kill $pid
+  wait $pid 2> /dev/null
+
+  printf "%-24s %-7s %12d %14d %14d %10.0f\n" $service $variant $startup $rssStartup $rssLoaded $throughput
+}
+
+set -e
+
+if ! command -v hey > /dev/null
+then
+  echo "hey is not installed, see https://github.com/rakyll/hey"
+  exit 1
+fi
+
+mkdir -p $LOG_DIR
+
+if [[ $SKIP_BUILD != "true" ]]
+then
+  for service in $SERVICES
+  do
+    ./gradlew -q :microservices:$service:bootJar
+    ./gradlew -q -Pnative :microservices:$service:nativeCompile
+  done
+fi
+
+printf "%-24s %-7s %12s %14s %14s %10s\n" "service" "build" "startup (ms)" "RSS ready (MB)" "RSS load (MB)" "req/s"
+for service in $SERVICES
+do
+  measure $service jvm java -jar microservices/$service/build/libs/$service-1.0.0-SNAPSHOT.jar
+  measure $service native microservices/$service/build/native/nativeCompile/$service
+done
@@ -0,0 +1,93 @@
+#!/usr/bin/env bash
+#
+# Compares the two storage layouts of product-service on MongoDB, the default layout with a generated _id and a unique
+# productId index, and the "keyed-id" profile with the productId as _id:
+#   - inserts/s: POST /product of PRODUCTS new products, sent by PARALLEL curl processes
+#   - reads/s:   GET /product/{productId} at CONCURRENCY after a warm-up, with the product cache disabled so every
+#                request reaches MongoDB
+#   - index KB:  total size of the indexes of the collection after the inserts
+#
+# Each layout gets its own, new database. Requires hey (https://github.com/rakyll/hey) and MongoDB, e.g. started with
+# docker-compose up -d mongodb. MONGO_EVAL runs a script in the mongo shell, the default uses the container.
+#
+# Sample usage:
+#
+#   ./compare-product-layout.bash
+#   PRODUCTS=50000 CONCURRENCY=100 ./compare-product-layout.bash
+#
+: ${PORT=7101}
+: ${PRODUCTS=10000}
+: ${PARALLEL=16}
+: ${CONCURRENCY=50}
+: ${WARMUP=20s}
+: ${DURATION=30s}
+: ${MONGO_EVAL="docker-compose exec -T mongodb mongo --quiet"}
+: ${SKIP_BUILD=false}
+
+LOG_DIR=build/compare-product-layout
+JAR=microservices/product-service/build/libs/product-service-1.0.0-SNAPSHOT.jar
+
+function insertProduct() {
+
+  curl -s -o /dev/null -X POST -H "Content-Type: application/json" "http://localhost:$PORT/product" \
+    -d "{\"productId\":$1,\"name\":\"name $1\",\"weight\":$1}"
+}
+export -f insertProduct
+export PORT
+
+function measure() {
+
+  local layout=$1
+  local collection=$2
+  shift 2
+  local database=product-layout-$layout-$(date +%s)
+
+  java -jar $JAR --server.port=$PORT --spring.data.mongodb.database=$database --app.product.cache.enabled=false \
+    --logging.level.com.pedrocoelho=INFO --logging.level.org.springframework.data.mongodb=INFO "$@" \
+    > "$LOG_DIR/$layout.log" 2>&1 &
+  local pid=$!
+  until curl -s "http://localhost:$PORT/actuator/health/readiness" | grep -q UP
+  do
+    if ! kill -0 $pid 2> /dev/null
+    then
+      echo "product-service ($layout) exited during startup, see $LOG_DIR/$layout.log"
+      exit 1
+    fi
+    sleep 0.1
+  done
+
+  local start=$(date +%s%3N)
+  seq 1 $PRODUCTS | xargs -P $PARALLEL -I{} bash -c 'insertProduct {}'
+  local inserts=$(( PRODUCTS * 1000 / ($(date +%s%3N) - start) ))
+
+  local url="http://localhost:$PORT/product/$(( RANDOM % PRODUCTS + 1 ))"
+  hey -z $WARMUP -c $CONCURRENCY "$url" > /dev/null
+  local reads=$(hey -z $DURATION -c $CONCURRENCY "$url" | awk '/Requests\/sec/ {print $2}')
+
+  local indexKilobytes=$($MONGO_EVAL $database --eval "print(Math.round(db.$collection.totalIndexSize() / 1024))")
+
+  kill $pid
+  wait $pid 2> /dev/null
+  $MONGO_EVAL $database --eval "db.dropDatabase()" > /dev/null
+
+  printf "%-10s %12d %12.0f %12s\n" $layout $inserts $reads "$indexKilobytes"
+}
+
+set -e
+
+if ! command -v hey > /dev/null
+then
+  echo "hey is not installed, see https://github.com/rakyll/hey"
+  exit 1
+fi
+
+mkdir -p $LOG_DIR
+
+if [[ $SKIP_BUILD != "true" ]]
+then
+  ./gradlew -q :microservices:product-service:bootJar
+fi
+
+printf "%-10s %12s %12s %12s\n" "layout" "inserts/s" "reads/s" "index KB"
+measure default products
+measure keyed-id products_by_product_id --spring.profiles.active=keyed-id
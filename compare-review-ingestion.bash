@@ -0,0 +1,120 @@
+#!/usr/bin/env bash
+#
+# Compares ways of ingesting REVIEWS reviews into review-service on MySQL, ROUNDS times each:
+#   - single:    one POST /review per review, the path before bulk ingestion was added
+#   - unbatched: one POST /reviews with all reviews, JDBC batching turned off (hibernate.jdbc.batch_size=1)
+#   - batched:   one POST /reviews with all reviews, with the default JDBC batching and rewriteBatchedStatements
+# For each, the median time of a round and the number of INSERT statements MySQL executed per round, from its
+# Com_insert counter, are reported. Ids come in blocks of ReviewEntity.ID_BLOCK_SIZE in all variants.
+#
+# Requires MySQL, e.g. started with docker-compose up -d mysql. MYSQL_EXEC runs a statement in the mysql client, the
+# default uses the container.
+#
+# Sample usage:
+#
+#   ./compare-review-ingestion.bash
+#   REVIEWS=1000 ROUNDS=10 ./compare-review-ingestion.bash
+#
+: ${PORT=7104}
+: ${REVIEWS=500}
+: ${ROUNDS=5}
+: ${MYSQL_EXEC="docker-compose exec -T mysql mysql -uroot -prootpwd -N -e"}
+: ${SKIP_BUILD=false}
+
+LOG_DIR=build/compare-review-ingestion
+JAR=microservices/review-service/build/libs/review-service-1.0.0-SNAPSHOT.jar
+BASE_URL=http://localhost:$PORT
+
+function insertStatements() {
+
+  $MYSQL_EXEC "SHOW GLOBAL STATUS LIKE 'Com_insert'" 2> /dev/null | awk '{print $2}'
+}
+
+function reviewJson() {
+
+  echo "{\"productId\":$1,\"reviewId\":$2,\"author\":\"a\",\"subject\":\"s\",\"content\":\"c\"}"
+}
+
+function reviewsJson() {
+
+  local productId=$1
+  echo -n "["
+  for reviewId in $(seq 1 $REVIEWS)
+  do
+    [[ $reviewId -gt 1 ]] && echo -n ","
+    echo -n "$(reviewJson $productId $reviewId)"
+  done
+  echo "]"
+}
+
+function ingest() {
+
+  local variant=$1
+  local productId=$2
+
+  if [[ $variant == "single" ]]
+  then
+    for reviewId in $(seq 1 $REVIEWS)
+    do
+      curl -s -o /dev/null -X POST -H "Content-Type: application/json" -d "$(reviewJson $productId $reviewId)" "$BASE_URL/review"
+    done
+  else
+    curl -s -o /dev/null -X POST -H "Content-Type: application/json" --data-binary @"$LOG_DIR/reviews-$productId.json" "$BASE_URL/reviews"
+  fi
+}
+
+function measure() {
+
+  local variant=$1
+  shift
+
+  java -jar $JAR --server.port=$PORT --logging.level.com.pedrocoelho=INFO --logging.level.org.hibernate=WARN "$@" \
+    > "$LOG_DIR/$variant.log" 2>&1 &
+  local pid=$!
+  until curl -s -o /dev/null "$BASE_URL/actuator/health"
+  do
+    if ! kill -0 $pid 2> /dev/null
+    then
+      echo "review-service ($variant) exited during startup, see $LOG_DIR/$variant.log"
+      exit 1
+    fi
+    sleep 0.1
+  done
+
+  local millis=()
+  local inserts=0
+  for round in $(seq 1 $ROUNDS)
+  do
+    local productId=$(( 900000 + round ))
+    curl -s -o /dev/null -X DELETE "$BASE_URL/review?productId=$productId"
+    reviewsJson $productId > "$LOG_DIR/reviews-$productId.json"
+
+    local before=$(insertStatements)
+    local start=$(date +%s%3N)
+    ingest $variant $productId
+    millis+=($(( $(date +%s%3N) - start )))
+    inserts=$(( inserts + $(insertStatements) - before ))
+
+    curl -s -o /dev/null -X DELETE "$BASE_URL/review?productId=$productId"
+  done
+
+  kill $pid
+  wait $pid 2> /dev/null
+
+  local median=$(printf "%s\n" "${millis[@]}" | sort -n | awk '{a[NR]=$1} END {print a[int((NR + 1) / 2)]}')
+  printf "%-10s %12d %18d\n" $variant $median $(( inserts / ROUNDS ))
+}
+
+set -e
+
+mkdir -p $LOG_DIR
+
+if [[ $SKIP_BUILD != "true" ]]
+then
+  ./gradlew -q :microservices:review-service:bootJar
+fi
+
+printf "%-10s %12s %18s\n" "variant" "median (ms)" "inserts per round"
+measure single
+measure unbatched --spring.jpa.properties.hibernate.jdbc.batch_size=1
+measure batched
@@ -0,0 +1,95 @@
+#!/usr/bin/env bash
+#
+# Compares the throughput of review-service on JPA and on R2DBC, both on the in-memory H2 database in MySQL mode
+# ("h2" profile), so no MySQL is needed. The JPA path is measured with handlers on the event loop and on the bounded
+# elastic pool (app.execution.mode), the R2DBC path does not block and runs on the event loop.
+#
+# REVIEWS reviews are created for each of PRODUCTS products, then hey sends GET /review?productId=... for one of
+# the products at CONCURRENCY after a warm-up, followed by a write test of DELETE requests.
+#
+# Requires hey (https://github.com/rakyll/hey).
+#
+# Sample usage:
+#
+#   ./compare-review-persistence.bash
+#   CONCURRENCY=500 DURATION=60s ./compare-review-persistence.bash
+#
+: ${PORT=7103}
+: ${PRODUCTS=20}
+: ${REVIEWS=10}
+: ${CONCURRENCY=200}
+: ${WARMUP=20s}
+: ${DURATION=30s}
+: ${SKIP_BUILD=false}
+
+LOG_DIR=build/compare-review-persistence
+JAR=microservices/review-service/build/libs/review-service-1.0.0-SNAPSHOT.jar
+
+function seed() {
+
+  for productId in $(seq 1 $PRODUCTS)
+  do
+    for reviewId in $(seq 1 $REVIEWS)
+    do
+      curl -s -o /dev/null -X POST -H "Content-Type: application/json" "http://localhost:$PORT/review" \
+        -d "{\"productId\":$productId,\"reviewId\":$reviewId,\"author\":\"a\",\"subject\":\"s\",\"content\":\"c\"}"
+    done
+  done
+}
+
+function requestsPerSecond() {
+
+  hey "$@" | awk '/Requests\/sec/ {print $2}'
+}
+
+function measure() {
+
+  local name=$1
+  shift
+
+  java -jar $JAR --server.port=$PORT --logging.level.com.pedrocoelho=INFO --logging.level.org.hibernate=WARN "$@" \
+    > "$LOG_DIR/$name.log" 2>&1 &
+  local pid=$!
+  until curl -s -o /dev/null "http://localhost:$PORT/actuator/health"
+  do
+    if ! kill -0 $pid 2> /dev/null
+    then
+      echo "review-service ($name) exited during startup, see $LOG_DIR/$name.log"
+      exit 1
+    fi
+    sleep 0.1
+  done
+
+  seed
+  local url="http://localhost:$PORT/review?productId=$(( RANDOM % PRODUCTS + 1 ))"
+  hey -z $WARMUP -c $CONCURRENCY "$url" > /dev/null
+  local reads=$(requestsPerSecond -z $DURATION -c $CONCURRENCY "$url")
+
+  # Deletes of a product without reviews still run the delete statement, so they stand in for writes
+  local writes=$(requestsPerSecond -z $DURATION -c $CONCURRENCY -m DELETE "http://localhost:$PORT/review?productId=$(( PRODUCTS + 1 ))")
+
+  kill $pid
+  wait $pid 2> /dev/null
+
+  printf "%-26s %12.0f %12.0f\n" "$name" $reads $writes
+}
+
+set -e
+
+if ! command -v hey > /dev/null
+then
+  echo "hey is not installed, see https://github.com/rakyll/hey"
+  exit 1
+fi
+
+mkdir -p $LOG_DIR
+
+if [[ $SKIP_BUILD != "true" ]]
+then
+  ./gradlew -q :microservices:review-service:bootJar
+fi
+
+printf "%-26s %12s %12s\n" "persistence" "reads/s" "deletes/s"
+measure "jpa, event-loop" --spring.profiles.active=h2 --app.execution.mode=event-loop
+measure "jpa, bounded-elastic" --spring.profiles.active=h2 --app.execution.mode=bounded-elastic
+measure "r2dbc" --spring.profiles.active=h2,r2dbc
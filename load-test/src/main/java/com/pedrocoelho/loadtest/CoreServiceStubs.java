@@ -0,0 +1,161 @@
+package com.pedrocoelho.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pedrocoelho.api.composite.product.RecommendationSummary;
+import com.pedrocoelho.api.composite.product.ReviewSummary;
+import com.pedrocoelho.api.core.product.Product;
+import com.pedrocoelho.api.core.recommendation.Recommendation;
+import com.pedrocoelho.api.core.review.Review;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyOutbound;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/* INFO: Stand-ins for product-service, recommendation-service and review-service that keep their data in memory. They listen on the ports the composite uses by default (7001-7003), so a composite started locally runs against them without any database. Responses are pre-encoded once at startup, so the stubs themselves add next to no latency to the measurements. */
+@Component
+@ConditionalOnProperty(value = "app.load-test.stubs.enabled", havingValue = "true")
+public class CoreServiceStubs implements DisposableBean {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CoreServiceStubs.class);
+  private static final String SERVICE_ADDRESS = "load-test-stub";
+  private static final String SERVICE_ADDRESS_HEADER = "Service-Address";
+
+  private final ObjectMapper mapper;
+  private final int productCount;
+  private final Duration latency;
+  private final List<DisposableServer> servers = new ArrayList<>();
+
+  private final String[] products;
+  private final String[] recommendations;
+  private final String[] reviews;
+  private final String[] recommendationSummaries;
+  private final String[] reviewSummaries;
+
+  @Autowired
+  public CoreServiceStubs(
+      ObjectMapper mapper,
+      @Value("${app.load-test.product-count}") int productCount,
+      @Value("${app.load-test.stubs.recommendations-per-product}") int recommendationsPerProduct,
+      @Value("${app.load-test.stubs.reviews-per-product}") int reviewsPerProduct,
+      @Value("${app.load-test.stubs.product-port}") int productPort,
+      @Value("${app.load-test.stubs.recommendation-port}") int recommendationPort,
+      @Value("${app.load-test.stubs.review-port}") int reviewPort,
+      @Value("${app.load-test.stubs.latency:0ms}") Duration latency) {
+
+    this.mapper = mapper;
+    this.productCount = productCount;
+    this.latency = latency;
+
+    this.products = encodeAll(productId -> new Product(productId, "product " + productId, productId, SERVICE_ADDRESS));
+    this.recommendations = encodeAll(productId -> IntStream.rangeClosed(1, recommendationsPerProduct)
+        .mapToObj(i -> new Recommendation(productId, i, "author " + i, i % 5, "content " + i, SERVICE_ADDRESS))
+        .collect(Collectors.toList()));
+    this.reviews = encodeAll(productId -> IntStream.rangeClosed(1, reviewsPerProduct)
+        .mapToObj(i -> new Review(productId, i, "author " + i, "subject " + i, "content " + i, SERVICE_ADDRESS))
+        .collect(Collectors.toList()));
+    /* INFO: The same recommendations and reviews in the shape the composite requests on a cache miss, see ProductCompositeIntegration.getRawReviewSummaries(). */
+    this.recommendationSummaries = encodeAll(productId -> IntStream.rangeClosed(1, recommendationsPerProduct)
+        .mapToObj(i -> new RecommendationSummary(i, "author " + i, i % 5, "content " + i))
+        .collect(Collectors.toList()));
+    this.reviewSummaries = encodeAll(productId -> IntStream.rangeClosed(1, reviewsPerProduct)
+        .mapToObj(i -> new ReviewSummary(i, "author " + i, "subject " + i, "content " + i))
+        .collect(Collectors.toList()));
+
+    servers.add(HttpServer.create().port(productPort)
+        .route(routes -> routes
+            .get("/product/{productId}", (req, res) -> lookup(res, products, Integer.parseInt(req.param("productId"))))
+            .post("/product", this::echo)
+            .delete("/product/{productId}", (req, res) -> res.send()))
+        .bindNow());
+
+    servers.add(HttpServer.create().port(recommendationPort)
+        .route(routes -> routes
+            .get("/recommendation", (req, res) -> lookup(res, recommendations, productIdParam(req)))
+            .get("/recommendation/summaries", (req, res) -> lookupSummaries(res, recommendationSummaries, productIdParam(req)))
+            .post("/recommendation", this::echo)
+            .delete("/recommendation", (req, res) -> res.send()))
+        .bindNow());
+
+    servers.add(HttpServer.create().port(reviewPort)
+        .route(routes -> routes
+            .get("/review", (req, res) -> lookup(res, reviews, productIdParam(req)))
+            .get("/review/summaries", (req, res) -> lookupSummaries(res, reviewSummaries, productIdParam(req)))
+            .post("/review", this::echo)
+            .post("/reviews", this::echo)
+            .delete("/review", (req, res) -> res.send()))
+        .bindNow());
+
+    LOG.info("Core service stubs started for {} products on ports {}, {} and {}", productCount, productPort, recommendationPort, reviewPort);
+  }
+
+  @Override
+  public void destroy() {
+
+    servers.forEach(DisposableServer::disposeNow);
+  }
+
+  private NettyOutbound lookup(HttpServerResponse res, String[] documents, int productId) {
+
+    if (productId < 1 || productId > productCount) {
+      return res.status(HttpResponseStatus.NOT_FOUND)
+          .header("Content-Type", "application/json")
+          .sendString(Mono.just("{\"status\":404,\"message\":\"No product found for productId: " + productId + "\"}"));
+    }
+
+    Mono<String> document = Mono.just(documents[productId - 1]);
+    return res.header("Content-Type", "application/json").sendString(latency.isZero() ? document : document.delayElement(latency));
+  }
+
+  /* INFO: The stub documents never change, so the ETag only has to differ between products. */
+  private NettyOutbound lookupSummaries(HttpServerResponse res, String[] documents, int productId) {
+
+    if (productId >= 1 && productId <= productCount) {
+      res.header("ETag", "\"" + Integer.toHexString(documents[productId - 1].hashCode()) + "\"")
+          .header(SERVICE_ADDRESS_HEADER, SERVICE_ADDRESS);
+    }
+    return lookup(res, documents, productId);
+  }
+
+  private NettyOutbound echo(HttpServerRequest req, HttpServerResponse res) {
+
+    return res.header("Content-Type", "application/json").send(req.receive().retain());
+  }
+
+  private static int productIdParam(HttpServerRequest req) {
+
+    List<String> values = new QueryStringDecoder(req.uri()).parameters().get("productId");
+    return values == null || values.isEmpty() ? -1 : Integer.parseInt(values.get(0));
+  }
+
+  private String[] encodeAll(IntFunction<Object> documentFactory) {
+
+    String[] documents = new String[productCount];
+    for (int productId = 1; productId <= productCount; productId++) {
+      try {
+        documents[productId - 1] = mapper.writeValueAsString(documentFactory.apply(productId));
+      } catch (JsonProcessingException e) {
+        throw new IllegalStateException("Failed to encode stub document for productId: " + productId, e);
+      }
+    }
+    return documents;
+  }
+}
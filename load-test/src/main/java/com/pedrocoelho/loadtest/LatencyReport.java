@@ -0,0 +1,97 @@
+package com.pedrocoelho.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects request latencies in an HDR histogram, in microseconds, together with success and error counts.
+ * Recording is wait-free, so it can be called concurrently from the client's event loop threads.
+ */
+public class LatencyReport {
+
+  private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+  private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private Histogram histogram;
+  private long startNanos;
+  private long endNanos;
+
+  public void start() {
+
+    recorder.reset();
+    errors.reset();
+    dropped.reset();
+    startNanos = System.nanoTime();
+  }
+
+  public void stop() {
+
+    endNanos = System.nanoTime();
+    histogram = recorder.getIntervalHistogram();
+  }
+
+  public void recordSuccess(long intendedStartNanos) {
+
+    recordLatency(intendedStartNanos);
+  }
+
+  public void recordError(long intendedStartNanos) {
+
+    errors.increment();
+    recordLatency(intendedStartNanos);
+  }
+
+  public void recordDropped() {
+
+    dropped.increment();
+  }
+
+  public void print(PrintStream out, String title) {
+
+    double seconds = (endNanos - startNanos) / 1e9;
+    long count = histogram.getTotalCount();
+
+    out.println();
+    out.println("=== " + title);
+    out.printf("requests: %d, errors: %d, dropped: %d, duration: %.1fs, throughput: %.1f req/s%n",
+        count, errors.sum(), dropped.sum(), seconds, count / seconds);
+    out.printf("latency (ms): p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+        millis(histogram.getValueAtPercentile(50)),
+        millis(histogram.getValueAtPercentile(90)),
+        millis(histogram.getValueAtPercentile(99)),
+        millis(histogram.getValueAtPercentile(99.9)),
+        millis(histogram.getMaxValue()));
+    out.println();
+    histogram.outputPercentileDistribution(out, 1000.0);
+  }
+
+  /* INFO: The .hgrm format can be loaded into the HdrHistogram plotter to compare runs side by side. */
+  public void writeTo(String fileName) throws FileNotFoundException {
+
+    try (PrintStream out = new PrintStream(fileName)) {
+      histogram.outputPercentileDistribution(out, 1000.0);
+    }
+  }
+
+  private void recordLatency(long intendedStartNanos) {
+
+    recorder.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, elapsedMicros(intendedStartNanos)));
+  }
+
+  private static long elapsedMicros(long fromNanos) {
+
+    return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - fromNanos);
+  }
+
+  private static double millis(long micros) {
+
+    return micros / 1000.0;
+  }
+}
@@ -0,0 +1,210 @@
+package com.pedrocoelho.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Drives the composite service with a configurable mix of requests and reports the latency distribution.
+ * <p>
+ * Two workload models are supported:
+ * <ul>
+ *   <li>closed: a fixed number of workers, each sending its next request as soon as the previous one completes.
+ *   Throughput is then an outcome of the latency.</li>
+ *   <li>open: requests arrive as a Poisson process at a fixed rate, whether earlier requests have completed or not.
+ *   Latency is measured from the intended start of each request, so a stalled service shows up in the percentiles
+ *   instead of silently lowering the request rate (coordinated omission).</li>
+ * </ul>
+ * Product ids are drawn from a Zipf distribution over 1..product-count, where productId 1 is the most popular one.
+ */
+@Component
+@ConditionalOnProperty(value = "app.load-test.enabled", havingValue = "true", matchIfMissing = true)
+public class LoadGenerator implements ApplicationRunner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LoadGenerator.class);
+
+  private final WebClient client;
+  private final ZipfDistribution productIds;
+  private final String model;
+  private final double arrivalRate;
+  private final int concurrency;
+  private final Duration duration;
+  private final Duration warmUp;
+  private final double streamRatio;
+  private final double writeRatio;
+  private final String reportFile;
+
+  @Autowired
+  public LoadGenerator(
+      WebClient.Builder webClientBuilder,
+      @Value("${app.load-test.base-url}") String baseUrl,
+      @Value("${app.load-test.model}") String model,
+      @Value("${app.load-test.arrival-rate}") double arrivalRate,
+      @Value("${app.load-test.concurrency}") int concurrency,
+      @Value("${app.load-test.duration}") Duration duration,
+      @Value("${app.load-test.warm-up}") Duration warmUp,
+      @Value("${app.load-test.product-count}") int productCount,
+      @Value("${app.load-test.zipf-exponent}") double zipfExponent,
+      @Value("${app.load-test.mix.stream-ratio}") double streamRatio,
+      @Value("${app.load-test.mix.write-ratio}") double writeRatio,
+      @Value("${app.load-test.report-file:}") String reportFile) {
+
+    /* INFO: The default connection pool of Reactor Netty is sized for ordinary clients. A load generator must be able to keep one connection per in-flight request, and must not fail acquisitions that have to wait. */
+    ConnectionProvider connections = ConnectionProvider.builder("load-test")
+        .maxConnections(concurrency)
+        .pendingAcquireMaxCount(-1)
+        .build();
+
+    this.client = webClientBuilder
+        .baseUrl(baseUrl)
+        .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+        .build();
+    this.productIds = new ZipfDistribution(productCount, zipfExponent);
+    this.model = model;
+    this.arrivalRate = arrivalRate;
+    this.concurrency = concurrency;
+    this.duration = duration;
+    this.warmUp = warmUp;
+    this.streamRatio = streamRatio;
+    this.writeRatio = writeRatio;
+    this.reportFile = reportFile;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+
+    LOG.info("Running a {} model load test for {} after a warm-up of {}", model, duration, warmUp);
+
+    if (!warmUp.isZero()) {
+      run(warmUp, new LatencyReport());
+    }
+
+    LatencyReport report = new LatencyReport();
+    run(duration, report);
+
+    String title = "open".equals(model)
+        ? String.format("open model, %.1f req/s, max %d in flight", arrivalRate, concurrency)
+        : String.format("closed model, %d workers", concurrency);
+    report.print(System.out, title);
+
+    if (!reportFile.isEmpty()) {
+      report.writeTo(reportFile);
+      LOG.info("Wrote the latency distribution to {}", reportFile);
+    }
+  }
+
+  private void run(Duration runDuration, LatencyReport report) throws InterruptedException {
+
+    report.start();
+    long deadline = System.nanoTime() + runDuration.toNanos();
+
+    switch (model) {
+      case "open" -> runOpenModel(deadline, report);
+      case "closed" -> runClosedModel(deadline, report);
+      default -> throw new IllegalArgumentException("Unknown load model: " + model + ", expected open or closed");
+    }
+
+    report.stop();
+  }
+
+  private void runClosedModel(long deadline, LatencyReport report) {
+
+    Flux.range(0, concurrency)
+        .flatMap(worker -> Mono.defer(() -> timedRequest(report, System.nanoTime()))
+            .repeat(() -> System.nanoTime() < deadline), concurrency)
+        .then()
+        .block();
+  }
+
+  /* INFO: The arrival loop never waits for responses. Concurrency only caps the number of requests in flight to protect the generator itself; arrivals beyond that cap are counted as dropped. */
+  private void runOpenModel(long deadline, LatencyReport report) throws InterruptedException {
+
+    Semaphore inFlight = new Semaphore(concurrency);
+    double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / arrivalRate;
+    long next = System.nanoTime();
+
+    while (next < deadline) {
+      long now;
+      while ((now = System.nanoTime()) < next) {
+        LockSupport.parkNanos(next - now);
+      }
+
+      if (inFlight.tryAcquire()) {
+        timedRequest(report, next).doFinally(signal -> inFlight.release()).subscribe();
+      } else {
+        report.recordDropped();
+      }
+
+      next += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos);
+    }
+
+    if (inFlight.tryAcquire(concurrency, 1, TimeUnit.MINUTES)) {
+      inFlight.release(concurrency);
+    }
+  }
+
+  private Mono<Boolean> timedRequest(LatencyReport report, long intendedStartNanos) {
+
+    return nextRequest()
+        .doOnNext(ok -> {
+          if (ok) {
+            report.recordSuccess(intendedStartNanos);
+          } else {
+            report.recordError(intendedStartNanos);
+          }
+        })
+        .onErrorResume(e -> {
+          report.recordError(intendedStartNanos);
+          return Mono.just(false);
+        });
+  }
+
+  private Mono<Boolean> nextRequest() {
+
+    double dice = ThreadLocalRandom.current().nextDouble();
+
+    if (dice < writeRatio) {
+      return createAndDelete(productIds.size() + ThreadLocalRandom.current().nextInt(1, 1_000_000));
+    }
+
+    int productId = productIds.sample();
+    String uri = dice < writeRatio + streamRatio
+        ? "/product-composite/" + productId + "/stream"
+        : "/product-composite/" + productId;
+
+    return client.get().uri(uri).accept(APPLICATION_JSON)
+        .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().is2xxSuccessful()));
+  }
+
+  /* INFO: Writes use product ids above the read range, so they never disturb the data that the reads are measured on. */
+  private Mono<Boolean> createAndDelete(int productId) {
+
+    String body = "{\"productId\":" + productId + ",\"name\":\"load test " + productId + "\",\"weight\":1,"
+        + "\"recommendations\":[{\"recommendationId\":1,\"author\":\"a\",\"rate\":1,\"content\":\"c\"}],"
+        + "\"reviews\":[{\"reviewId\":1,\"author\":\"a\",\"subject\":\"s\",\"content\":\"c\"}]}";
+
+    return client.post().uri("/product-composite").contentType(APPLICATION_JSON).bodyValue(body)
+        .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().is2xxSuccessful()))
+        .flatMap(created -> client.delete().uri("/product-composite/" + productId)
+            .exchangeToMono(response -> response.releaseBody().thenReturn(created && response.statusCode().is2xxSuccessful())));
+  }
+}
@@ -0,0 +1,32 @@
+package com.pedrocoelho.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Throughput and latency measurement for the composite service.
+ * <p>
+ * Sample usage, with a product-composite-service started locally on its default port:
+ * <pre>
+ *   java -jar load-test/build/libs/load-test-1.0.0-SNAPSHOT.jar \
+ *     --app.load-test.model=open --app.load-test.arrival-rate=500 --app.load-test.duration=2m
+ * </pre>
+ * The core services are replaced by in-memory stubs unless app.load-test.stubs.enabled=false is given, in which case
+ * the real core services behind the composite are measured. With app.load-test.enabled=false only the stubs are started.
+ */
+@SpringBootApplication
+public class LoadTestApplication {
+
+  public static void main(String[] args) throws InterruptedException {
+
+    ConfigurableApplicationContext ctx = SpringApplication.run(LoadTestApplication.class, args);
+
+    if (ctx.getEnvironment().getProperty("app.load-test.enabled", Boolean.class, true)) {
+      System.exit(SpringApplication.exit(ctx));
+    }
+
+    /* INFO: Only the stubs are running, on Reactor Netty's daemon threads. Keep the JVM alive until it is interrupted. */
+    Thread.currentThread().join();
+  }
+}
@@ -0,0 +1,57 @@
+package com.pedrocoelho.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples ranks 1..n with a Zipf distribution, i.e. rank k is drawn with a probability proportional to 1 / k^exponent.
+ * The cumulative distribution is computed once, so each sample is a binary search over n doubles.
+ */
+public class ZipfDistribution {
+
+  private final double[] cumulative;
+
+  public ZipfDistribution(int n, double exponent) {
+
+    if (n < 1) {
+      throw new IllegalArgumentException("Number of elements must be positive: " + n);
+    }
+    if (exponent < 0) {
+      throw new IllegalArgumentException("Exponent must not be negative: " + exponent);
+    }
+
+    cumulative = new double[n];
+    double sum = 0;
+    for (int k = 1; k <= n; k++) {
+      sum += 1.0 / Math.pow(k, exponent);
+      cumulative[k - 1] = sum;
+    }
+    for (int i = 0; i < n; i++) {
+      cumulative[i] /= sum;
+    }
+    cumulative[n - 1] = 1.0;
+  }
+
+  public int size() {
+
+    return cumulative.length;
+  }
+
+  /**
+   * @return a rank between 1 and n, 1 being the most popular one
+   */
+  public int sample() {
+
+    double u = ThreadLocalRandom.current().nextDouble();
+    int index = Arrays.binarySearch(cumulative, u);
+    return (index >= 0 ? index : -index - 1) + 1;
+  }
+
+  /**
+   * @return the probability of drawing the given rank
+   */
+  public double probability(int rank) {
+
+    return rank == 1 ? cumulative[0] : cumulative[rank - 1] - cumulative[rank - 2];
+  }
+}
@@ -0,0 +1,51 @@
+package com.pedrocoelho.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipfDistributionTests {
+
+  @Test
+  void samplesStayInRange() {
+
+    ZipfDistribution zipf = new ZipfDistribution(10, 1.0);
+
+    for (int i = 0; i < 10_000; i++) {
+      int rank = zipf.sample();
+      assertTrue(rank >= 1 && rank <= 10, "rank out of range: " + rank);
+    }
+  }
+
+  @Test
+  void probabilitiesFollowTheExponent() {
+
+    ZipfDistribution zipf = new ZipfDistribution(100, 1.0);
+
+    assertEquals(2.0, zipf.probability(1) / zipf.probability(2), 1e-9);
+    assertEquals(10.0, zipf.probability(1) / zipf.probability(10), 1e-9);
+  }
+
+  @Test
+  void mostPopularRankIsDrawnMostOften() {
+
+    ZipfDistribution zipf = new ZipfDistribution(100, 1.2);
+    int[] counts = new int[101];
+
+    for (int i = 0; i < 100_000; i++) {
+      counts[zipf.sample()]++;
+    }
+
+    assertTrue(counts[1] > counts[2]);
+    assertTrue(counts[2] > counts[50]);
+  }
+
+  @Test
+  void zeroExponentIsUniform() {
+
+    ZipfDistribution zipf = new ZipfDistribution(4, 0.0);
+
+    assertEquals(0.25, zipf.probability(1), 1e-9);
+    assertEquals(0.25, zipf.probability(4), 1e-9);
+  }
+}
@@ -1,5 +1,6 @@
 package com.pedrocoelho.microservices.composite.product;
 
+import com.pedrocoelho.microservices.composite.product.services.EncodedProductAggregateWriter;
 import io.swagger.v3.oas.models.ExternalDocumentation;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Contact;
@@ -10,7 +11,9 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.http.codec.ServerCodecConfigurer;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
 
 /* INFO: To enable Spring Boot's autoconfiguration feature to detect Spring beans in the api and util projects, we also need to add a @ComponentScan annotation to the main application class, which includes the pacjages o  the api and util projects. */
 @SpringBootApplication
@@ -73,6 +76,17 @@ public class ProductCompositeServiceApplication {
         return new RestTemplate();
     }
 
+    /* INFO: Cached aggregates are written with the JSON document they keep, see EncodedProductAggregateWriter. Custom writers of a specific type are asked before Jackson. */
+    @Bean
+    WebFluxConfigurer encodedProductAggregateCodec(EncodedProductAggregateWriter writer) {
+        return new WebFluxConfigurer() {
+            @Override
+            public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+                configurer.customCodecs().register(writer);
+            }
+        };
+    }
+
     public static void main(String[] args) {
         SpringApplication.run(ProductCompositeServiceApplication.class, args);
     }
@@ -0,0 +1,38 @@
+package com.pedrocoelho.microservices.composite.product.cache;
+
+import com.pedrocoelho.api.exceptions.NotFoundException;
+import io.swagger.v3.oas.annotations.Hidden;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+/* INFO: Receives the invalidations sent by HttpPeerInvalidationTransport on the other replicas. It is internal to the composite service, so it is left out of the OpenAPI documentation and only exists when the http transport is selected. It is served on the public port, so requests without the shared secret are answered like an unknown path, otherwise anyone could evict entries and force the fan-out to the core services. */
+@Hidden
+@RestController
+@ConditionalOnProperty(value = "app.product-composite.cache.invalidation.transport", havingValue = "http")
+public class CacheInvalidationController {
+
+  static final String PATH = "/internal/product-composite/cache/{productId}";
+
+  private final HttpPeerInvalidationTransport transport;
+
+  @Autowired
+  public CacheInvalidationController(HttpPeerInvalidationTransport transport) {
+
+    this.transport = transport;
+  }
+
+  @DeleteMapping(PATH)
+  public void invalidate(
+      @PathVariable int productId,
+      @RequestHeader(value = HttpPeerInvalidationTransport.SECRET_HEADER, required = false) String secret) {
+
+    if (!transport.isAuthorized(secret)) {
+      throw new NotFoundException("No cache entry to invalidate for productId: " + productId);
+    }
+    transport.receive(productId);
+  }
+}
@@ -0,0 +1,24 @@
+package com.pedrocoelho.microservices.composite.product.cache;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Carries invalidations of cached product aggregates between the replicas of the composite service, so a product
+ * created or deleted through one replica is not served stale by the others until their TTL expires.
+ * <p>
+ * The implementation is selected with app.product-composite.cache.invalidation.transport.
+ */
+public interface CacheInvalidationTransport {
+
+  /**
+   * Announces that the aggregate of the product has changed. Delivery is best effort and asynchronous, the TTL of the
+   * cache remains the upper bound for staleness if a replica misses an invalidation.
+   */
+  void publish(int productId);
+
+  /**
+   * Registers a listener for invalidations published by any replica. A listener may also be called for the
+   * replica's own invalidations, so it must be idempotent.
+   */
+  void subscribe(IntConsumer listener);
+}
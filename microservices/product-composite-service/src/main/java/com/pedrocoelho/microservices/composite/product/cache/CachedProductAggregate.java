@@ -0,0 +1,45 @@
+package com.pedrocoelho.microservices.composite.product.cache;
+
+public class CachedProductAggregate {
+
+  private final EncodedProductAggregate aggregate;
+  private final ProductAggregateETags eTags;
+  private final long expiresAt;
+
+  CachedProductAggregate(EncodedProductAggregate aggregate, ProductAggregateETags eTags, long expiresAt) {
+
+    this.aggregate = aggregate;
+    this.eTags = eTags;
+    this.expiresAt = expiresAt;
+  }
+
+  public EncodedProductAggregate getAggregate() {
+
+    return aggregate;
+  }
+
+  public String getETag() {
+
+    return eTags.eTag();
+  }
+
+  public ProductAggregateETags getETags() {
+
+    return eTags;
+  }
+
+  public long getExpiresAt() {
+
+    return expiresAt;
+  }
+
+  public boolean isExpired(long now) {
+
+    return now >= expiresAt;
+  }
+
+  public boolean isExpiredLongerThan(long now, long millis) {
+
+    return now >= expiresAt + millis;
+  }
+}
@@ -0,0 +1,196 @@
+package com.pedrocoelho.microservices.composite.product.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pedrocoelho.api.composite.product.ProductAggregate;
+import com.pedrocoelho.api.composite.product.RecommendationSummary;
+import com.pedrocoelho.api.composite.product.ReviewSummary;
+import com.pedrocoelho.api.composite.product.ServiceAddresses;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A cached aggregate that keeps its JSON document, and the gzip-compressed document, once they have been encoded, so
+ * every response that serves it writes the same bytes instead of encoding it again, see
+ * EncodedProductAggregateWriter. Both are encoded on first use; two responses racing for it may both encode it, and
+ * one result is kept.
+ * <p>
+ * A spliced aggregate, see splice(), starts out as its JSON document instead, and its recommendations and reviews are
+ * only decoded from the document if they are asked for, e.g. by a request with the fields parameter. They are decoded
+ * again on every use rather than kept, so a compact() aggregate in the cache holds its encoded forms only.
+ */
+public class EncodedProductAggregate extends ProductAggregate {
+
+  private static final byte[] NAME = ",\"name\":".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] RECOMMENDATIONS = ",\"recommendations\":".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] REVIEWS = ",\"reviews\":".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] SERVICE_ADDRESSES = ",\"serviceAddresses\":".getBytes(StandardCharsets.UTF_8);
+
+  private volatile byte[] json;
+  private volatile byte[] gzip;
+
+  /* INFO: Only set for a spliced aggregate, whose lists are decoded on use. */
+  private final ObjectMapper splicedMapper;
+
+  public EncodedProductAggregate(ProductAggregate aggregate) {
+
+    super(
+        aggregate.getProductId(),
+        aggregate.getName(),
+        aggregate.getWeight(),
+        aggregate.getRecommendations(),
+        aggregate.getReviews(),
+        aggregate.getServiceAddresses());
+    this.splicedMapper = null;
+  }
+
+  private EncodedProductAggregate(int productId, String name, int weight, ServiceAddresses serviceAddresses, byte[] json, ObjectMapper mapper) {
+
+    super(productId, name, weight, null, null, serviceAddresses);
+    this.json = json;
+    this.splicedMapper = mapper;
+  }
+
+  /**
+   * Builds the JSON document of an aggregate around the JSON arrays of its recommendations and reviews, as returned by
+   * the summaries endpoints of the core services, without parsing them. So neither the time nor the garbage of building
+   * an aggregate depends on the number of recommendations and reviews, apart from copying their bytes once. The arrays
+   * are trusted to be valid JSON. Like with Jackson, a null part is left out of the document.
+   */
+  public static EncodedProductAggregate splice(
+      int productId,
+      String name,
+      int weight,
+      byte[] recommendations,
+      byte[] reviews,
+      ServiceAddresses serviceAddresses,
+      ObjectMapper mapper) {
+
+    int arrays = (recommendations == null ? 0 : recommendations.length) + (reviews == null ? 0 : reviews.length);
+    ByteArrayOutputStream document = new ByteArrayOutputStream(256 + arrays);
+    try {
+      document.writeBytes(("{\"productId\":" + productId).getBytes(StandardCharsets.UTF_8));
+      if (name != null) {
+        document.writeBytes(NAME);
+        document.writeBytes(mapper.writeValueAsBytes(name));
+      }
+      document.writeBytes((",\"weight\":" + weight).getBytes(StandardCharsets.UTF_8));
+      if (recommendations != null) {
+        document.writeBytes(RECOMMENDATIONS);
+        document.writeBytes(recommendations);
+      }
+      if (reviews != null) {
+        document.writeBytes(REVIEWS);
+        document.writeBytes(reviews);
+      }
+      if (serviceAddresses != null) {
+        document.writeBytes(SERVICE_ADDRESSES);
+        document.writeBytes(mapper.writeValueAsBytes(serviceAddresses));
+      }
+      document.write('}');
+    } catch (JsonProcessingException jpe) {
+      throw new UncheckedIOException(jpe);
+    }
+    return new EncodedProductAggregate(productId, name, weight, serviceAddresses, document.toByteArray(), mapper);
+  }
+
+  /**
+   * Returns the aggregate as a spliced one, which keeps its JSON document, and its gzip-compressed document if that was
+   * encoded already, but not its recommendations and reviews as objects.
+   */
+  public static EncodedProductAggregate compact(ProductAggregate aggregate, ObjectMapper mapper) {
+
+    EncodedProductAggregate encoded = aggregate instanceof EncodedProductAggregate ? (EncodedProductAggregate) aggregate : new EncodedProductAggregate(aggregate);
+    if (encoded.splicedMapper != null) {
+      return encoded;
+    }
+
+    EncodedProductAggregate compact = new EncodedProductAggregate(
+        encoded.getProductId(), encoded.getName(), encoded.getWeight(), encoded.getServiceAddresses(), encoded.json(mapper), mapper);
+    compact.gzip = encoded.gzip;
+    return compact;
+  }
+
+  /**
+   * Returns the spliced aggregate of a JSON document, e.g. from the off-heap tier, which is kept as is.
+   */
+  static EncodedProductAggregate fromJson(byte[] json, ObjectMapper mapper) {
+
+    ProductAggregate aggregate;
+    try {
+      aggregate = mapper.readValue(json, ProductAggregate.class);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+    return new EncodedProductAggregate(aggregate.getProductId(), aggregate.getName(), aggregate.getWeight(), aggregate.getServiceAddresses(), json, mapper);
+  }
+
+  @Override
+  public List<RecommendationSummary> getRecommendations() {
+
+    return splicedMapper == null ? super.getRecommendations() : decoded().getRecommendations();
+  }
+
+  @Override
+  public List<ReviewSummary> getReviews() {
+
+    return splicedMapper == null ? super.getReviews() : decoded().getReviews();
+  }
+
+  /**
+   * @return the aggregate with its recommendations and reviews as objects, decoded from the JSON document if spliced
+   */
+  public ProductAggregate decoded() {
+
+    if (splicedMapper == null) {
+      return this;
+    }
+    try {
+      return splicedMapper.readValue(json, ProductAggregate.class);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  /**
+   * @return the JSON document, shared and not to be modified
+   */
+  public byte[] json(ObjectMapper mapper) {
+
+    byte[] encoded = json;
+    if (encoded == null) {
+      try {
+        encoded = mapper.writeValueAsBytes(this);
+      } catch (JsonProcessingException jpe) {
+        throw new UncheckedIOException(jpe);
+      }
+      json = encoded;
+    }
+    return encoded;
+  }
+
+  /**
+   * @return the gzip-compressed JSON document, shared and not to be modified
+   */
+  public byte[] gzip(ObjectMapper mapper) {
+
+    byte[] encoded = gzip;
+    if (encoded == null) {
+      byte[] document = json(mapper);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(document.length / 4 + 32);
+      try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+        out.write(document);
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+      encoded = bytes.toByteArray();
+      gzip = encoded;
+    }
+    return encoded;
+  }
+}
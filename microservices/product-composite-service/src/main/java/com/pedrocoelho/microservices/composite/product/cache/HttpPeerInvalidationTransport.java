@@ -0,0 +1,102 @@
+package com.pedrocoelho.microservices.composite.product.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Sends invalidations to the other replicas listed in app.product-composite.cache.invalidation.peers, as a DELETE of
+ * the product's entry on their CacheInvalidationController. Each request carries the shared secret of
+ * app.product-composite.cache.invalidation.secret in the SECRET_HEADER, and peers ignore requests without it, so only
+ * the replicas themselves can evict entries.
+ * <p>
+ * The requests are sent in the background with a short timeout and a few retries, so a slow or unavailable peer
+ * never delays a create or delete; a peer that misses an invalidation serves the old aggregate until its TTL expires.
+ */
+@Component
+@ConditionalOnProperty(value = "app.product-composite.cache.invalidation.transport", havingValue = "http")
+public class HttpPeerInvalidationTransport implements CacheInvalidationTransport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HttpPeerInvalidationTransport.class);
+
+  static final String SECRET_HEADER = "X-Cache-Invalidation-Secret";
+
+  private final WebClient webClient;
+  private final List<String> peers;
+  private final Duration timeout;
+  private final String secret;
+  private final List<IntConsumer> listeners = new CopyOnWriteArrayList<>();
+
+  @Autowired
+  public HttpPeerInvalidationTransport(
+      WebClient.Builder webClientBuilder,
+      @Value("${app.product-composite.cache.invalidation.peers:}") String peers,
+      @Value("${app.product-composite.cache.invalidation.timeout:2s}") Duration timeout,
+      @Value("${app.product-composite.cache.invalidation.secret:}") String secret) {
+
+    if (secret.isEmpty()) {
+      throw new IllegalStateException("app.product-composite.cache.invalidation.secret must be set for the http transport");
+    }
+
+    this.webClient = webClientBuilder.build();
+    this.peers = Arrays.stream(peers.split(","))
+        .map(String::trim)
+        .filter(peer -> !peer.isEmpty())
+        .collect(Collectors.toList());
+    this.timeout = timeout;
+    this.secret = secret;
+
+    LOG.info("Cache invalidations are sent to the peers: {}", this.peers);
+  }
+
+  @Override
+  public void publish(int productId) {
+
+    peers.forEach(peer -> webClient.delete()
+        .uri(peer + CacheInvalidationController.PATH, productId)
+        .header(SECRET_HEADER, secret)
+        .retrieve()
+        .toBodilessEntity()
+        .timeout(timeout)
+        .retryWhen(Retry.backoff(2, Duration.ofMillis(100)))
+        .subscribe(
+            response -> LOG.debug("publish: peer {} invalidated productId: {}", peer, productId),
+            error -> LOG.warn("publish: failed to invalidate productId: {} on peer {}: {}", productId, peer, error.toString())));
+  }
+
+  @Override
+  public void subscribe(IntConsumer listener) {
+
+    listeners.add(listener);
+  }
+
+  /**
+   * @return whether the secret sent with an invalidation is the shared one, compared in constant time
+   */
+  public boolean isAuthorized(String sentSecret) {
+
+    return sentSecret != null && MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8), sentSecret.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Called by CacheInvalidationController for invalidations sent by a peer.
+   */
+  public void receive(int productId) {
+
+    listeners.forEach(listener -> listener.accept(productId));
+  }
+}
@@ -0,0 +1,28 @@
+package com.pedrocoelho.microservices.composite.product.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntConsumer;
+
+/* INFO: Delivers invalidations synchronously to the listeners within the same JVM. This is the default for a single replica, and lets tests wire several caches to one transport to act as replicas. */
+@Component
+@ConditionalOnProperty(value = "app.product-composite.cache.invalidation.transport", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackInvalidationTransport implements CacheInvalidationTransport {
+
+  private final List<IntConsumer> listeners = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void publish(int productId) {
+
+    listeners.forEach(listener -> listener.accept(productId));
+  }
+
+  @Override
+  public void subscribe(IntConsumer listener) {
+
+    listeners.add(listener);
+  }
+}
@@ -0,0 +1,385 @@
+package com.pedrocoelho.microservices.composite.product.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pedrocoelho.api.composite.product.ProductAggregate;
+import com.pedrocoelho.microservices.composite.product.hotkeys.HotProducts;
+import com.pedrocoelho.util.collections.OffHeapStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/* INFO: Keeps the last assembled aggregate of each product together with what its ETag is derived from, so a conditional GET can be answered with 304 without calling the core services. Entries live for a fixed TTL and are dropped when the composite itself creates or deletes the product, on this replica directly and on the others through the CacheInvalidationTransport. */
+/* INFO: The cache has two tiers. The heap tier holds up to max-entries aggregates as their JSON documents, plus the gzip-compressed ones once a response needed them, see EncodedProductAggregate.compact(); their recommendations and reviews are only decoded for a request that projects them, and not kept. An aggregate evicted from the heap tier moves to the off-heap tier, an OffHeapStore of off-heap-capacity bytes of direct memory that holds it as JSON, and moves back on its next request. A product is in at most one tier, and it moves between them while the heap tier's map holds its lock, so an invalidation can never be undone by a move. */
+/* INFO: An expired entry is kept for max-staleness, during which it is still served while one background refresh per product replaces it (stale-while-revalidate), and for stale-if-error, during which it is served when the core services fail. */
+@Component
+public class ProductAggregateCache implements MeterBinder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ProductAggregateCache.class);
+
+  private static final int GENERATION_STRIPES = 256;
+
+  private final boolean enabled;
+  private final long ttlMillis;
+  private final long maxStalenessMillis;
+  private final long staleIfErrorMillis;
+  private final int maxEntries;
+  private final ConcurrentMap<Integer, CachedProductAggregate> entries = new ConcurrentHashMap<>();
+  private final Set<Integer> refreshing = ConcurrentHashMap.newKeySet();
+  /* INFO: Invalidation generations, one per stripe of productIds so the memory does not grow with the products; an invalidation of a product also fails the pending puts of the others in its stripe, which only costs them a later miss. */
+  private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+  private final CacheInvalidationTransport transport;
+  private final HotProducts hotProducts;
+  private final ObjectMapper mapper;
+  private final ProductAggregateCodec codec;
+  private final OffHeapStore offHeap;
+
+  private final LongAdder heapHits = new LongAdder();
+  private final LongAdder offHeapHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder demotions = new LongAdder();
+
+  @Autowired
+  public ProductAggregateCache(
+      CacheInvalidationTransport transport,
+      HotProducts hotProducts,
+      ObjectMapper mapper,
+      @Value("${app.product-composite.cache.enabled:true}") boolean enabled,
+      @Value("${app.product-composite.cache.ttl:30s}") Duration ttl,
+      @Value("${app.product-composite.cache.max-staleness:60s}") Duration maxStaleness,
+      @Value("${app.product-composite.cache.stale-if-error:5m}") Duration staleIfError,
+      @Value("${app.product-composite.cache.max-entries:1000}") int maxEntries,
+      @Value("${app.product-composite.cache.off-heap-capacity:64MB}") DataSize offHeapCapacity) {
+
+    this.transport = transport;
+    this.hotProducts = hotProducts;
+    this.enabled = enabled;
+    this.ttlMillis = ttl.toMillis();
+    this.maxStalenessMillis = maxStaleness.toMillis();
+    this.staleIfErrorMillis = staleIfError.toMillis();
+    this.maxEntries = maxEntries;
+    this.mapper = mapper;
+    this.codec = new ProductAggregateCodec(mapper);
+    this.offHeap = new OffHeapStore(enabled ? Math.toIntExact(offHeapCapacity.toBytes()) : 0);
+
+    transport.subscribe(this::evict);
+  }
+
+  /**
+   * Returns the aggregate of the product if it has not expired.
+   */
+  public CachedProductAggregate get(int productId) {
+
+    return get(productId, 0);
+  }
+
+  /**
+   * Returns the aggregate of the product if it has not expired or expired at most max-staleness ago. Pass an expired
+   * one to revalidate.
+   */
+  public CachedProductAggregate getForRevalidation(int productId) {
+
+    return get(productId, maxStalenessMillis);
+  }
+
+  /**
+   * Returns the aggregate of the product if it has not expired or expired at most stale-if-error ago, to be served
+   * when it cannot be assembled from the core services.
+   */
+  public CachedProductAggregate getForError(int productId) {
+
+    return get(productId, staleIfErrorMillis);
+  }
+
+  /**
+   * Tells whether an aggregate of the product that getForRevalidation() would serve is in either tier. Unlike the
+   * getters it is read-only: it neither moves the aggregate between the tiers nor counts as a request.
+   */
+  public boolean contains(int productId) {
+
+    if (!enabled) {
+      return false;
+    }
+
+    long now = System.currentTimeMillis();
+    CachedProductAggregate cached = entries.get(productId);
+    if (cached != null) {
+      return !cached.isExpiredLongerThan(now, maxStalenessMillis);
+    }
+
+    byte[] bytes = offHeap.get(productId);
+    return bytes != null && now < codec.expiresAt(bytes) + maxStalenessMillis;
+  }
+
+  /**
+   * Runs the given refresh in the background, unless a refresh of the product is running already. A failed refresh
+   * is logged and leaves the cached aggregate as it is.
+   */
+  public void revalidate(int productId, Runnable refresh) {
+
+    if (!refreshing.add(productId)) {
+      return;
+    }
+
+    LOG.debug("revalidate: refreshes the cached aggregate for productId: {}", productId);
+    try {
+      Schedulers.boundedElastic().schedule(() -> {
+        try {
+          refresh.run();
+        } catch (RuntimeException re) {
+          LOG.warn("revalidate: failed to refresh the cached aggregate for productId: {}, keeps serving it: {}", productId, re.toString());
+        } finally {
+          refreshing.remove(productId);
+        }
+      });
+    } catch (RuntimeException re) {
+      refreshing.remove(productId);
+      LOG.warn("revalidate: could not schedule the refresh for productId: {}: {}", productId, re.toString());
+    }
+  }
+
+  /**
+   * Replaces the expected entry with a refreshed aggregate. Nothing is stored if the entry was evicted or replaced in
+   * the meantime, e.g. by a write whose result the refresh may have missed.
+   */
+  public boolean replace(int productId, CachedProductAggregate expected, ProductAggregate aggregate, ProductAggregateETags eTags) {
+
+    CachedProductAggregate refreshed = new CachedProductAggregate(EncodedProductAggregate.compact(aggregate, mapper), eTags, System.currentTimeMillis() + ttlMillis);
+    return enabled && entries.replace(productId, expected, refreshed);
+  }
+
+  /**
+   * Drops the expected entry, e.g. when a refresh finds that the product no longer exists.
+   */
+  public void remove(int productId, CachedProductAggregate expected) {
+
+    entries.remove(productId, expected);
+  }
+
+  /**
+   * Returns the invalidation generation of the product, to be taken before its aggregate is loaded from the core
+   * services and passed to put().
+   */
+  public long generation(int productId) {
+
+    return generations.get(stripe(productId));
+  }
+
+  /**
+   * Stores the aggregate unless the product was invalidated since the given generation was taken, so an aggregate
+   * loaded before a write can never be stored after the write's invalidation. The returned aggregate is to be served
+   * either way.
+   */
+  public CachedProductAggregate put(int productId, ProductAggregate aggregate, ProductAggregateETags eTags, long generation) {
+
+    CachedProductAggregate cached = new CachedProductAggregate(EncodedProductAggregate.compact(aggregate, mapper), eTags, System.currentTimeMillis() + ttlMillis);
+    if (!enabled) {
+      return cached;
+    }
+
+    if (entries.size() >= maxEntries && !entries.containsKey(productId)) {
+      evictOne();
+    }
+    entries.compute(productId, (key, current) -> {
+      if (generations.get(stripe(key)) != generation) {
+        LOG.debug("put: productId: {} was invalidated while its aggregate was loaded, does not cache it", key);
+        return current;
+      }
+      offHeap.remove(key);
+      return cached;
+    });
+
+    return cached;
+  }
+
+  /**
+   * Drops the product's aggregate on this replica and announces the change to the other replicas.
+   */
+  public void invalidate(int productId) {
+
+    evict(productId);
+    transport.publish(productId);
+  }
+
+  /**
+   * Drops the product's aggregate on this replica only, e.g. on an invalidation received from another replica.
+   */
+  /* INFO: The generation is incremented under the same lock as the check in put(). */
+  public void evict(int productId) {
+
+    entries.compute(productId, (key, current) -> {
+      generations.incrementAndGet(stripe(key));
+      if (current != null || offHeap.take(key) != null) {
+        LOG.debug("evict: dropped cached aggregate for productId: {}", productId);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * @return the number of aggregates in the heap tier
+   */
+  public int size() {
+
+    return entries.size();
+  }
+
+  /**
+   * @return the number of aggregates in the off-heap tier
+   */
+  public int offHeapSize() {
+
+    return offHeap.size();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+
+    Gauge.builder("product.aggregate.cache.size", entries, Map::size).tag("tier", "heap").register(registry);
+    Gauge.builder("product.aggregate.cache.size", offHeap, OffHeapStore::size).tag("tier", "off-heap").register(registry);
+    Gauge.builder("product.aggregate.cache.capacity", offHeap, OffHeapStore::capacity).tag("tier", "off-heap").baseUnit("bytes").register(registry);
+    FunctionCounter.builder("product.aggregate.cache.requests", heapHits, LongAdder::sum).tag("result", "heap-hit").register(registry);
+    FunctionCounter.builder("product.aggregate.cache.requests", offHeapHits, LongAdder::sum).tag("result", "off-heap-hit").register(registry);
+    FunctionCounter.builder("product.aggregate.cache.requests", misses, LongAdder::sum).tag("result", "miss").register(registry);
+    FunctionCounter.builder("product.aggregate.cache.evictions", demotions, LongAdder::sum).tag("tier", "heap").register(registry);
+    FunctionCounter.builder("product.aggregate.cache.evictions", offHeap, OffHeapStore::overwritten).tag("tier", "off-heap").register(registry);
+  }
+
+  private CachedProductAggregate get(int productId, long staleMillis) {
+
+    if (!enabled) {
+      return null;
+    }
+
+    CachedProductAggregate cached = entries.get(productId);
+    LongAdder hits = heapHits;
+    if (cached == null) {
+      cached = promote(productId);
+      hits = offHeapHits;
+    }
+
+    long now = System.currentTimeMillis();
+    if (cached != null && cached.isExpiredLongerThan(now, retentionMillis())) {
+      entries.remove(productId, cached);
+      cached = null;
+    }
+    if (cached == null || cached.isExpiredLongerThan(now, staleMillis)) {
+      misses.increment();
+      return null;
+    }
+
+    hits.increment();
+    return cached;
+  }
+
+  /**
+   * Moves the product's aggregate from the off-heap tier to the heap tier, making room in the latter if needed.
+   */
+  private CachedProductAggregate promote(int productId) {
+
+    if (!offHeap.containsKey(productId)) {
+      return null;
+    }
+    if (entries.size() >= maxEntries) {
+      evictOne();
+    }
+
+    return entries.compute(productId, (key, current) -> {
+      if (current != null) {
+        return current;
+      }
+      byte[] bytes = offHeap.take(key);
+      if (bytes == null) {
+        return null;
+      }
+      try {
+        return codec.decode(bytes);
+      } catch (RuntimeException re) {
+        LOG.warn("promote: drops the unreadable off-heap aggregate for productId: {}: {}", key, re.toString());
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Moves the product's aggregate from the heap tier to the off-heap tier, or drops it if it is expired beyond any
+   * use or does not fit.
+   */
+  private void demote(int productId) {
+
+    long now = System.currentTimeMillis();
+    entries.computeIfPresent(productId, (key, cached) -> {
+      if (offHeap.capacity() > 0 && !cached.isExpiredLongerThan(now, retentionMillis())) {
+        try {
+          offHeap.put(key, codec.encode(cached));
+        } catch (RuntimeException re) {
+          LOG.warn("demote: drops the aggregate for productId: {}, it cannot be serialized: {}", key, re.toString());
+        }
+      }
+      demotions.increment();
+      return null;
+    });
+  }
+
+  private static int stripe(int productId) {
+
+    return Math.floorMod(productId, GENERATION_STRIPES);
+  }
+
+  /* INFO: How long an expired entry can still be of use, for stale-while-revalidate or stale-if-error. */
+  private long retentionMillis() {
+
+    return Math.max(maxStalenessMillis, staleIfErrorMillis);
+  }
+
+  /**
+   * Moves the first expired entry among the first few of the iteration order, else the first of them, off the heap. Hot
+   * products are passed over, unless all of the few are hot.
+   */
+  private void evictOne() {
+
+    long now = System.currentTimeMillis();
+    Integer first = null;
+    Integer victim = null;
+    Iterator<Map.Entry<Integer, CachedProductAggregate>> it = entries.entrySet().iterator();
+    for (int scanned = 0; it.hasNext() && scanned < 8; scanned++) {
+      Map.Entry<Integer, CachedProductAggregate> e = it.next();
+      if (first == null) {
+        first = e.getKey();
+      }
+      if (hotProducts.isHot(e.getKey())) {
+        continue;
+      }
+      if (victim == null) {
+        victim = e.getKey();
+      }
+      if (e.getValue().isExpired(now)) {
+        victim = e.getKey();
+        break;
+      }
+    }
+
+    if (victim == null) {
+      victim = first;
+    }
+    if (victim != null) {
+      demote(victim);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.pedrocoelho.microservices.composite.product.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/* INFO: The layout of an entry in the off-heap tier of ProductAggregateCache: its expiry time, what its ETag is derived from and the aggregate as JSON. An absent downstream ETag is written as an empty string, which no ETag is. */
+class ProductAggregateCodec {
+
+  private final ObjectMapper mapper;
+
+  ProductAggregateCodec(ObjectMapper mapper) {
+
+    this.mapper = mapper;
+  }
+
+  byte[] encode(CachedProductAggregate cached) {
+
+    try {
+      byte[] json = cached.getAggregate().json(mapper);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length + 64);
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeLong(cached.getExpiresAt());
+      ProductAggregateETags eTags = cached.getETags();
+      out.writeLong(eTags.getProductHash());
+      out.writeUTF(Objects.toString(eTags.getRecommendationsETag(), ""));
+      out.writeUTF(Objects.toString(eTags.getReviewsETag(), ""));
+      out.write(json);
+      return bytes.toByteArray();
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  long expiresAt(byte[] bytes) {
+
+    return ByteBuffer.wrap(bytes).getLong(0);
+  }
+
+  CachedProductAggregate decode(byte[] bytes) {
+
+    try {
+      ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+      DataInputStream header = new DataInputStream(in);
+      long expiresAt = header.readLong();
+      long productHash = header.readLong();
+      String recommendationsETag = header.readUTF();
+      String reviewsETag = header.readUTF();
+      int offset = bytes.length - in.available();
+      EncodedProductAggregate aggregate = EncodedProductAggregate.fromJson(Arrays.copyOfRange(bytes, offset, bytes.length), mapper);
+      ProductAggregateETags eTags = new ProductAggregateETags(aggregate.getProductId(), productHash,
+          recommendationsETag.isEmpty() ? null : recommendationsETag,
+          reviewsETag.isEmpty() ? null : reviewsETag);
+      return new CachedProductAggregate(aggregate, eTags, expiresAt);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.pedrocoelho.microservices.composite.product.cache;
+
+import java.util.Objects;
+
+/**
+ * What the ETag of an aggregate, or of a projection of it, is derived from: the optimistic-locking version of the
+ * product and the ETags of its recommendations and reviews, which the core services derive from the ids, versions and
+ * contents of their entities. The product's own fields are mixed in since a deleted and re-created product starts over
+ * at version 0.
+ * <p>
+ * Kept with a cached aggregate, so a projection served from the cache gets the ETag it would get when assembled from
+ * the core services, which only hashes the parts it includes.
+ */
+public class ProductAggregateETags {
+
+  private final int productId;
+  private final long productHash;
+  private final String recommendationsETag;
+  private final String reviewsETag;
+
+  /**
+   * @param recommendationsETag the ETag of the recommendations, null if they were not fetched or had none
+   * @param reviewsETag the ETag of the reviews, null if they were not fetched or had none
+   */
+  public ProductAggregateETags(int productId, int version, String name, int weight, String recommendationsETag, String reviewsETag) {
+
+    this(productId, 31 * (31 * (long) version + Objects.hashCode(name)) + weight, recommendationsETag, reviewsETag);
+  }
+
+  ProductAggregateETags(int productId, long productHash, String recommendationsETag, String reviewsETag) {
+
+    this.productId = productId;
+    this.productHash = productHash;
+    this.recommendationsETag = recommendationsETag;
+    this.reviewsETag = reviewsETag;
+  }
+
+  /**
+   * @return the strong ETag of the complete aggregate
+   */
+  public String eTag() {
+
+    return eTag(true, true);
+  }
+
+  /**
+   * @return the strong ETag of the product with only the given parts
+   */
+  public String eTag(boolean recommendations, boolean reviews) {
+
+    long hash = productHash;
+
+    if (recommendations) {
+      hash = 31 * hash + Objects.hashCode(recommendationsETag);
+    }
+
+    if (reviews) {
+      hash = 31 * hash + Objects.hashCode(reviewsETag);
+    }
+
+    return "\"" + productId + "-" + Long.toHexString(hash) + "\"";
+  }
+
+  long getProductHash() {
+
+    return productHash;
+  }
+
+  String getRecommendationsETag() {
+
+    return recommendationsETag;
+  }
+
+  String getReviewsETag() {
+
+    return reviewsETag;
+  }
+}
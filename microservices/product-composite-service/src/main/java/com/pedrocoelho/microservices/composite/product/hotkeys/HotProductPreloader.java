@@ -0,0 +1,51 @@
+package com.pedrocoelho.microservices.composite.product.hotkeys;
+
+import com.pedrocoelho.microservices.composite.product.services.ProductCompositeServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/* INFO: Loads the aggregates of the hot products of the last run, see HotProducts, into the cache after startup, in the background so startup does not wait for the core services. Products that fail to load are skipped, they are loaded by their first request instead. */
+@Component
+public class HotProductPreloader {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HotProductPreloader.class);
+
+  private final HotProducts hotProducts;
+  private final ProductCompositeServiceImpl service;
+
+  @Autowired
+  public HotProductPreloader(HotProducts hotProducts, ProductCompositeServiceImpl service) {
+
+    this.hotProducts = hotProducts;
+    this.service = service;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void preload() {
+
+    List<Integer> productIds = hotProducts.readSnapshot();
+    if (productIds.isEmpty()) {
+      return;
+    }
+
+    Schedulers.boundedElastic().schedule(() -> {
+      int loaded = 0;
+      for (int productId : productIds) {
+        try {
+          service.preload(productId);
+          loaded++;
+        } catch (RuntimeException re) {
+          LOG.debug("preload: skips productId: {}: {}", productId, re.toString());
+        }
+      }
+      LOG.info("preload: loaded {} of {} hot products into the cache", loaded, productIds.size());
+    });
+  }
+}
@@ -0,0 +1,153 @@
+package com.pedrocoelho.microservices.composite.product.hotkeys;
+
+import com.pedrocoelho.util.collections.HeavyHitters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks which productIds are requested most, with a HeavyHitters sketch fed by ProductCompositeServiceImpl.getProduct.
+ * The counts are halved every decay-interval, so the top list follows shifts in the traffic.
+ * <p>
+ * The hot products are kept in ProductAggregateCache when it is full, are shown by /actuator/hotproducts and, if
+ * snapshot-file is set, are written to it every snapshot-interval and on shutdown so that HotProductPreloader can load
+ * them into the cache on the next startup, also after a crash.
+ */
+@Component
+public class HotProducts {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HotProducts.class);
+
+  private final boolean enabled;
+  private final HeavyHitters heavyHitters;
+  private final Path snapshotFile;
+
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "hot-products");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  @Autowired
+  public HotProducts(
+      @Value("${app.product-composite.hot-products.enabled:true}") boolean enabled,
+      @Value("${app.product-composite.hot-products.capacity:64}") int capacity,
+      @Value("${app.product-composite.hot-products.width:4096}") int width,
+      @Value("${app.product-composite.hot-products.depth:4}") int depth,
+      @Value("${app.product-composite.hot-products.decay-interval:60s}") Duration decayInterval,
+      @Value("${app.product-composite.hot-products.snapshot-file:}") String snapshotFile,
+      @Value("${app.product-composite.hot-products.snapshot-interval:5m}") Duration snapshotInterval) {
+
+    this.enabled = enabled;
+    this.heavyHitters = new HeavyHitters(capacity, width, depth);
+    this.snapshotFile = snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+
+    if (enabled && !decayInterval.isZero()) {
+      long millis = decayInterval.toMillis();
+      executor.scheduleAtFixedRate(heavyHitters::decay, millis, millis, TimeUnit.MILLISECONDS);
+    }
+    if (enabled && this.snapshotFile != null && !snapshotInterval.isZero()) {
+      long millis = snapshotInterval.toMillis();
+      executor.scheduleAtFixedRate(this::writeSnapshot, millis, millis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public void record(int productId) {
+
+    if (enabled) {
+      heavyHitters.record(productId);
+    }
+  }
+
+  public boolean isHot(int productId) {
+
+    return enabled && heavyHitters.contains(productId);
+  }
+
+  public boolean isEnabled() {
+
+    return enabled;
+  }
+
+  /**
+   * @return the hot products, the most requested first
+   */
+  public List<HeavyHitters.Entry> top() {
+
+    return heavyHitters.top();
+  }
+
+  /**
+   * @return the number of requests counted, halved on every decay like the counts of the products
+   */
+  public long total() {
+
+    return heavyHitters.total();
+  }
+
+  /**
+   * @return the productIds of the last snapshot, the most requested first, or none if there is no snapshot
+   */
+  public List<Integer> readSnapshot() {
+
+    if (snapshotFile == null || !Files.isReadable(snapshotFile)) {
+      return List.of();
+    }
+
+    try {
+      return Files.readAllLines(snapshotFile).stream()
+          .map(String::trim)
+          .filter(line -> !line.isEmpty())
+          .map(Integer::valueOf)
+          .collect(Collectors.toList());
+    } catch (IOException | NumberFormatException e) {
+      LOG.warn("readSnapshot: ignores the unreadable snapshot {}: {}", snapshotFile, e.toString());
+      return List.of();
+    }
+  }
+
+  /**
+   * Writes the hot products to the snapshot file, unless there are none yet.
+   */
+  public void writeSnapshot() {
+
+    if (!enabled || snapshotFile == null) {
+      return;
+    }
+
+    List<String> productIds = top().stream().map(entry -> String.valueOf(entry.getKey())).collect(Collectors.toList());
+    if (productIds.isEmpty()) {
+      return;
+    }
+
+    try {
+      Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+      Files.write(temp, productIds);
+      Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      LOG.debug("writeSnapshot: wrote {} hot products to {}", productIds.size(), snapshotFile);
+    } catch (IOException ioe) {
+      LOG.warn("writeSnapshot: could not write the hot products to {}: {}", snapshotFile, ioe.toString());
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+
+    executor.shutdownNow();
+    writeSnapshot();
+  }
+}
@@ -0,0 +1,52 @@
+package com.pedrocoelho.microservices.composite.product.hotkeys;
+
+import com.pedrocoelho.microservices.composite.product.cache.ProductAggregateCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Exposes the hot products as /actuator/hotproducts: the estimated number of requests of each, the most requested
+ * first, its share of all counted requests and whether its aggregate is currently cached. The estimates can be slightly
+ * too high, never too low.
+ */
+@Component
+@Endpoint(id = "hotproducts")
+public class HotProductsEndpoint {
+
+  private final HotProducts hotProducts;
+  private final ProductAggregateCache cache;
+
+  @Autowired
+  public HotProductsEndpoint(HotProducts hotProducts, ProductAggregateCache cache) {
+
+    this.hotProducts = hotProducts;
+    this.cache = cache;
+  }
+
+  @ReadOperation
+  public Map<String, Object> hotProducts() {
+
+    long total = hotProducts.total();
+    List<Map<String, Object>> products = hotProducts.top().stream().map(entry -> {
+      Map<String, Object> product = new LinkedHashMap<>();
+      product.put("productId", entry.getKey());
+      product.put("requests", entry.getCount());
+      product.put("share", total == 0 ? 0.0 : (double) entry.getCount() / total);
+      product.put("cached", cache.contains(entry.getKey()));
+      return product;
+    }).collect(Collectors.toList());
+
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("enabled", hotProducts.isEnabled());
+    result.put("requests", total);
+    result.put("products", products);
+    return result;
+  }
+}
@@ -0,0 +1,121 @@
+package com.pedrocoelho.microservices.composite.product.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pedrocoelho.microservices.composite.product.cache.EncodedProductAggregate;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes cached and spliced aggregates, see EncodedProductAggregate, with the JSON document they keep instead of
+ * encoding them with Jackson, so a cache hit costs neither the encoding nor the compression of the response. The
+ * document is wrapped in a DataBuffer without copying.
+ * <p>
+ * Like Reactor Netty's compression, see server.compression, documents of at least min-response-size are sent gzip
+ * compressed to clients that accept it. Since the response then already has a Content-Encoding, Reactor Netty does
+ * not compress it again.
+ */
+@Component
+public class EncodedProductAggregateWriter implements HttpMessageWriter<EncodedProductAggregate> {
+
+  private static final List<MediaType> MEDIA_TYPES = List.of(MediaType.APPLICATION_JSON);
+
+  private final ObjectMapper mapper;
+  private final boolean compression;
+  private final long minCompressedSize;
+
+  @Autowired
+  public EncodedProductAggregateWriter(
+      ObjectMapper mapper,
+      @Value("${server.compression.enabled:false}") boolean compression,
+      @Value("${server.compression.min-response-size:2KB}") DataSize minCompressedSize) {
+
+    this.mapper = mapper;
+    this.compression = compression;
+    this.minCompressedSize = minCompressedSize.toBytes();
+  }
+
+  @Override
+  public List<MediaType> getWritableMediaTypes() {
+
+    return MEDIA_TYPES;
+  }
+
+  @Override
+  public boolean canWrite(ResolvableType elementType, MediaType mediaType) {
+
+    return EncodedProductAggregate.class.isAssignableFrom(elementType.toClass())
+        && (mediaType == null || MediaType.APPLICATION_JSON.isCompatibleWith(mediaType));
+  }
+
+  @Override
+  public Mono<Void> write(
+      Publisher<? extends EncodedProductAggregate> inputStream,
+      ResolvableType elementType,
+      MediaType mediaType,
+      ReactiveHttpOutputMessage message,
+      Map<String, Object> hints) {
+
+    return Mono.from(inputStream).flatMap(aggregate -> write(aggregate.json(mapper), message));
+  }
+
+  @Override
+  public Mono<Void> write(
+      Publisher<? extends EncodedProductAggregate> inputStream,
+      ResolvableType actualType,
+      ResolvableType elementType,
+      MediaType mediaType,
+      ServerHttpRequest request,
+      ServerHttpResponse response,
+      Map<String, Object> hints) {
+
+    return Mono.from(inputStream).flatMap(aggregate -> {
+      byte[] json = aggregate.json(mapper);
+      if (!compression || json.length < minCompressedSize) {
+        return write(json, response);
+      }
+
+      response.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+      if (!acceptsGzip(request)) {
+        return write(json, response);
+      }
+
+      response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+      return write(aggregate.gzip(mapper), response);
+    });
+  }
+
+  private static Mono<Void> write(byte[] body, ReactiveHttpOutputMessage message) {
+
+    message.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+    message.getHeaders().setContentLength(body.length);
+    return message.writeWith(Mono.just(message.bufferFactory().wrap(body)));
+  }
+
+  /* INFO: Accepts "gzip" with any quality but 0, as a value of its own or in a list, e.g. "gzip, deflate, br". */
+  private static boolean acceptsGzip(ServerHttpRequest request) {
+
+    for (String header : request.getHeaders().getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+      for (String coding : header.split(",")) {
+        String[] parts = coding.trim().split(";");
+        if (parts[0].trim().equalsIgnoreCase("gzip")) {
+          return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+        }
+      }
+    }
+    return false;
+  }
+}
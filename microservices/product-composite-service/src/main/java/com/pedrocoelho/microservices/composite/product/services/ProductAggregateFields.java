@@ -0,0 +1,108 @@
+package com.pedrocoelho.microservices.composite.product.services;
+
+import com.pedrocoelho.api.composite.product.ProductAggregate;
+import com.pedrocoelho.api.exceptions.InvalidInputException;
+import com.pedrocoelho.microservices.composite.product.cache.EncodedProductAggregate;
+import com.pedrocoelho.microservices.composite.product.cache.ProductAggregateETags;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The optional parts of a ProductAggregate that a client asked for with the fields parameter, e.g.
+ * fields=reviews,serviceAddresses. The product itself is always included. Without the parameter all parts are, as
+ * before the parameter existed.
+ */
+class ProductAggregateFields {
+
+  enum Field {
+    RECOMMENDATIONS("recommendations"),
+    REVIEWS("reviews"),
+    SERVICE_ADDRESSES("serviceAddresses");
+
+    private final String parameter;
+
+    Field(String parameter) {
+
+      this.parameter = parameter;
+    }
+  }
+
+  static final ProductAggregateFields ALL = new ProductAggregateFields(EnumSet.allOf(Field.class));
+
+  private final Set<Field> included;
+
+  private ProductAggregateFields(Set<Field> included) {
+
+    this.included = included;
+  }
+
+  static ProductAggregateFields parse(String fields) {
+
+    if (fields == null) {
+      return ALL;
+    }
+
+    Set<Field> included = EnumSet.noneOf(Field.class);
+    for (String name : fields.split(",")) {
+      String trimmed = name.trim();
+      if (trimmed.isEmpty()) {
+        continue;
+      }
+      included.add(Arrays.stream(Field.values())
+          .filter(field -> field.parameter.equals(trimmed))
+          .findFirst()
+          .orElseThrow(() -> new InvalidInputException("Invalid field: " + trimmed + ", expected any of " +
+              Arrays.stream(Field.values()).map(field -> field.parameter).collect(Collectors.joining(",")))));
+    }
+    return included.size() == Field.values().length ? ALL : new ProductAggregateFields(included);
+  }
+
+  boolean includes(Field field) {
+
+    return included.contains(field);
+  }
+
+  boolean isAll() {
+
+    return this == ALL;
+  }
+
+  /**
+   * Returns the aggregate with the parts that were not asked for left out, they are then omitted from the response.
+   */
+  ProductAggregate project(ProductAggregate aggregate) {
+
+    if (isAll()) {
+      return aggregate;
+    }
+
+    /* INFO: Decoded once for both lists, a cached aggregate does not keep them as objects. */
+    ProductAggregate decoded = aggregate instanceof EncodedProductAggregate ? ((EncodedProductAggregate) aggregate).decoded() : aggregate;
+    return new ProductAggregate(
+        decoded.getProductId(),
+        decoded.getName(),
+        decoded.getWeight(),
+        includes(Field.RECOMMENDATIONS) ? decoded.getRecommendations() : null,
+        includes(Field.REVIEWS) ? decoded.getReviews() : null,
+        includes(Field.SERVICE_ADDRESSES) ? decoded.getServiceAddresses() : null);
+  }
+
+  /**
+   * Derives the ETag of this projection from the ETags of the parts it includes only, so it is the same whether the
+   * projection is served from a cached complete aggregate or assembled from the core services. The suffix keeps
+   * projections of the same parts, e.g. with and without serviceAddresses, apart.
+   */
+  String eTag(ProductAggregateETags eTags) {
+
+    String eTag = eTags.eTag(includes(Field.RECOMMENDATIONS), includes(Field.REVIEWS));
+    if (isAll()) {
+      return eTag;
+    }
+
+    String suffix = included.stream().map(field -> field.name().substring(0, 3).toLowerCase()).collect(Collectors.joining("+"));
+    return eTag.substring(0, eTag.length() - 1) + ";" + (suffix.isEmpty() ? "product" : suffix) + "\"";
+  }
+}
@@ -0,0 +1,108 @@
+package com.pedrocoelho.microservices.composite.product.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pedrocoelho.api.composite.product.RecommendationSummary;
+import com.pedrocoelho.api.composite.product.ReviewSummary;
+import com.pedrocoelho.api.composite.product.ServiceAddresses;
+import com.pedrocoelho.api.core.product.Product;
+import com.pedrocoelho.api.core.recommendation.Recommendation;
+import com.pedrocoelho.api.core.review.Review;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes a ProductAggregate as JSON one element at a time. The output has the same shape as the regular
+ * getProduct response, but recommendations and reviews are encoded as they arrive from the core services instead
+ * of being collected into lists first, so the heap used per request does not grow with the size of the aggregate.
+ */
+@Component
+public class ProductAggregateStreamWriter {
+
+  private static final byte[] RECOMMENDATIONS_START = ",\"recommendations\":[".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] REVIEWS_START = "],\"reviews\":[".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] SERVICE_ADDRESSES_START = "],\"serviceAddresses\":".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] END = "}".getBytes(StandardCharsets.UTF_8);
+
+  private final ObjectMapper mapper;
+
+  @Autowired
+  public ProductAggregateStreamWriter(ObjectMapper mapper) {
+
+    this.mapper = mapper;
+  }
+
+  /* INFO: The two lists are consumed one after the other, so at most one element of each is in flight at any time. The service addresses are written last, since the addresses of the review and recommendation services are only known once their first element has been seen. */
+  public Flux<DataBuffer> write(
+      Product product,
+      Flux<Recommendation> recommendations,
+      Flux<Review> reviews,
+      String compositeAddress,
+      DataBufferFactory bufferFactory) {
+
+    AtomicReference<String> recommendationAddress = new AtomicReference<>();
+    AtomicReference<String> reviewAddress = new AtomicReference<>();
+
+    Flux<RecommendationSummary> recommendationSummaries = recommendations
+        .doOnNext(r -> recommendationAddress.compareAndSet(null, r.getServiceAddress()))
+        .map(r -> new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent()));
+
+    Flux<ReviewSummary> reviewSummaries = reviews
+        .doOnNext(r -> reviewAddress.compareAndSet(null, r.getServiceAddress()))
+        .map(r -> new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()));
+
+    return Flux.concat(
+            Mono.fromCallable(() -> productFields(product)),
+            Mono.just(RECOMMENDATIONS_START),
+            elements(recommendationSummaries),
+            Mono.just(REVIEWS_START),
+            elements(reviewSummaries),
+            Mono.just(SERVICE_ADDRESSES_START),
+            Mono.fromCallable(() -> toJson(new ServiceAddresses(
+                compositeAddress,
+                product.getServiceAddress(),
+                valueOrEmpty(reviewAddress.get()),
+                valueOrEmpty(recommendationAddress.get())))),
+            Mono.just(END))
+        .map(bufferFactory::wrap);
+  }
+
+  private Flux<byte[]> elements(Flux<?> items) {
+
+    return items.index().concatMap(t -> t.getT1() == 0
+        ? Flux.just(toJson(t.getT2()))
+        : Flux.just(SEPARATOR, toJson(t.getT2())));
+  }
+
+  private byte[] productFields(Product product) {
+
+    String fields = "{\"productId\":" + product.getProductId()
+        + ",\"name\":" + new String(toJson(product.getName()), StandardCharsets.UTF_8)
+        + ",\"weight\":" + product.getWeight();
+
+    return fields.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private byte[] toJson(Object value) {
+
+    try {
+      return mapper.writeValueAsBytes(value);
+    } catch (JsonProcessingException e) {
+      throw Exceptions.propagate(e);
+    }
+  }
+
+  private static String valueOrEmpty(String value) {
+
+    return value == null ? "" : value;
+  }
+}
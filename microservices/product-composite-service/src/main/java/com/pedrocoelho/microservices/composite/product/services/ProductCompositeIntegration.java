@@ -1,12 +1,16 @@
 package com.pedrocoelho.microservices.composite.product.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pedrocoelho.api.composite.product.RecommendationSummary;
+import com.pedrocoelho.api.composite.product.ReviewSummary;
 import com.pedrocoelho.api.core.product.Product;
 import com.pedrocoelho.api.core.product.ProductService;
 import com.pedrocoelho.api.core.recommendation.Recommendation;
 import com.pedrocoelho.api.core.recommendation.RecommendationService;
+import com.pedrocoelho.api.core.recommendation.RecommendationStatistics;
 import com.pedrocoelho.api.core.review.Review;
 import com.pedrocoelho.api.core.review.ReviewService;
+import com.pedrocoelho.api.core.review.ReviewStatistics;
 import com.pedrocoelho.api.exceptions.InvalidInputException;
 import com.pedrocoelho.api.exceptions.NotFoundException;
 import com.pedrocoelho.util.http.HttpErrorInfo;
@@ -15,15 +19,22 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.springframework.http.HttpMethod.GET;
+import static org.springframework.http.HttpMethod.POST;
 
 @Component
 public class ProductCompositeIntegration implements ProductService, ReviewService, RecommendationService {
@@ -31,15 +42,18 @@ public class ProductCompositeIntegration implements ProductService, ReviewServic
   private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeIntegration.class);
 
   private final RestTemplate restTemplate;
+  private final WebClient webClient;
   private final ObjectMapper mapper;
 
   private final String productServiceUrl;
   private final String recommendationServiceUrl;
   private final String reviewServiceUrl;
+  private final String reviewsServiceUrl;
 
   @Autowired
   public ProductCompositeIntegration(
       RestTemplate restTemplate,
+      WebClient.Builder webClientBuilder,
       ObjectMapper mapper,
       @Value("${app.product-service.host}") String productServiceHost,
       @Value("${app.product-service.port}") int productServicePort,
@@ -49,11 +63,13 @@ public class ProductCompositeIntegration implements ProductService, ReviewServic
       @Value("${app.review-service.port}") int reviewServicePort) {
 
     this.restTemplate = restTemplate;
+    this.webClient = webClientBuilder.build();
     this.mapper = mapper;
 
     this.productServiceUrl = "http://" + productServiceHost + ":" + productServicePort + "/product";
     this.recommendationServiceUrl = "http://" + recommendationServiceHost + ":" + recommendationServicePort + "/recommendation";
     this.reviewServiceUrl = "http://" + reviewServiceHost + ":" + reviewServicePort + "/review/";
+    this.reviewsServiceUrl = "http://" + reviewServiceHost + ":" + reviewServicePort + "/reviews";
   }
 
   @Override
@@ -132,6 +148,45 @@ public class ProductCompositeIntegration implements ProductService, ReviewServic
     }
   }
 
+  /* INFO: Not a request handler, the exchange is not used. The composite reads the summaries with getRawRecommendationSummaries(). */
+  @Override
+  public List<RecommendationSummary> getRecommendationSummaries(int productId, ServerWebExchange exchange) {
+
+    try {
+      String url = recommendationServiceUrl + "/summaries?productId=" + productId;
+      LOG.debug("Will call the getRecommendationSummaries API on URL: {}", url);
+      return restTemplate.exchange(url, GET, null, new ParameterizedTypeReference<List<RecommendationSummary>>() {}).getBody();
+    } catch (HttpClientErrorException ex) {
+      throw handleHttpClientException(ex);
+    }
+  }
+
+  /* INFO: The body is read as bytes and spliced into the aggregate as is, see EncodedProductAggregate.splice(), so no object is created per recommendation. */
+  public RawSummaries getRawRecommendationSummaries(int productId) {
+
+    try {
+      String url = recommendationServiceUrl + "/summaries?productId=" + productId;
+      LOG.debug("Will call the getRecommendationSummaries API on URL: {}", url);
+      return RawSummaries.of(restTemplate.exchange(url, GET, null, byte[].class));
+    } catch (HttpClientErrorException ex) {
+      LOG.warn("Got an exception while requesting recommendation summaries, returning zero recommendations: {}", ex.getMessage());
+      return RawSummaries.EMPTY;
+    }
+  }
+
+  @Override
+  public RecommendationStatistics getRecommendationStatistics(int productId) {
+
+    try {
+      String url = recommendationServiceUrl + "/statistics?productId=" + productId;
+      LOG.debug("Will call the getRecommendationStatistics API on URL: {}", url);
+      return restTemplate.getForObject(url, RecommendationStatistics.class);
+    } catch (HttpClientErrorException ex) {
+      LOG.warn("Got an exception while requesting recommendation statistics, returning zero recommendations: {}", ex.getMessage());
+      return new RecommendationStatistics(productId, 0, 0, null);
+    }
+  }
+
   @Override
   public void deleteRecommendations(int productId) {
 
@@ -158,6 +213,20 @@ public class ProductCompositeIntegration implements ProductService, ReviewServic
     }
   }
 
+  @Override
+  public List<Review> createReviews(List<Review> body) {
+
+    try {
+      String url = reviewsServiceUrl;
+      LOG.debug("Will post {} new reviews to URL: {}", body.size(), url);
+      List<Review> reviews = restTemplate.exchange(url, POST, new HttpEntity<>(body), new ParameterizedTypeReference<List<Review>>() {}).getBody();
+      LOG.debug("Created {} reviews", reviews.size());
+      return reviews;
+    } catch (HttpClientErrorException ex) {
+      throw handleHttpClientException(ex);
+    }
+  }
+
   @Override
   public List<Review> getReviews(int productId) {
 
@@ -170,6 +239,44 @@ public class ProductCompositeIntegration implements ProductService, ReviewServic
     }
   }
 
+  @Override
+  public List<ReviewSummary> getReviewSummaries(int productId, ServerWebExchange exchange) {
+
+    try {
+      String url = reviewServiceUrl + "summaries?productId=" + productId;
+      LOG.debug("Will call the getReviewSummaries API on URL: {}", url);
+      return restTemplate.exchange(url, GET, null, new ParameterizedTypeReference<List<ReviewSummary>>() {}).getBody();
+    } catch (HttpClientErrorException ex) {
+      throw handleHttpClientException(ex);
+    }
+  }
+
+  /* INFO: See getRawRecommendationSummaries(). */
+  public RawSummaries getRawReviewSummaries(int productId) {
+
+    try {
+      String url = reviewServiceUrl + "summaries?productId=" + productId;
+      LOG.debug("Will call the getReviewSummaries API on URL: {}", url);
+      return RawSummaries.of(restTemplate.exchange(url, GET, null, byte[].class));
+    } catch (HttpClientErrorException ex) {
+      LOG.warn("Got an exception while requesting review summaries, returning zero reviews: {}", ex.getMessage());
+      return RawSummaries.EMPTY;
+    }
+  }
+
+  @Override
+  public ReviewStatistics getReviewStatistics(int productId) {
+
+    try {
+      String url = reviewServiceUrl + "statistics?productId=" + productId;
+      LOG.debug("Will call the getReviewStatistics API on URL: {}", url);
+      return restTemplate.getForObject(url, ReviewStatistics.class);
+    } catch (HttpClientErrorException ex) {
+      LOG.warn("Got an exception while requesting review statistics, returning zero reviews: {}", ex.getMessage());
+      return new ReviewStatistics(productId, 0, null);
+    }
+  }
+
   @Override
   public void deleteReviews(int productId) {
 
@@ -182,6 +289,66 @@ public class ProductCompositeIntegration implements ProductService, ReviewServic
     }
   }
 
+  /* INFO: The non-blocking variants below are used by the streaming endpoint. bodyToFlux() lets the JSON decoder emit the elements of the downstream array one at a time, so the full list is never held in memory. */
+  public Mono<Product> fetchProduct(int productId) {
+
+    String url = productServiceUrl + "/" + productId;
+    LOG.debug("Will call the getProduct API on URL: {}", url);
+
+    return webClient.get().uri(url).retrieve()
+        .bodyToMono(Product.class)
+        .onErrorMap(WebClientResponseException.class, this::handleWebClientException);
+  }
+
+  public Flux<Recommendation> streamRecommendations(int productId) {
+
+    String url = recommendationServiceUrl + "?productId=" + productId;
+    LOG.debug("Will stream the getRecommendations API on URL: {}", url);
+
+    return webClient.get().uri(url).retrieve()
+        .bodyToFlux(Recommendation.class)
+        .onErrorResume(WebClientResponseException.class, ex -> {
+          if (!ex.getStatusCode().is4xxClientError()) {
+            return Flux.error(ex);
+          }
+          LOG.warn("Got an exception while streaming recommendations, returning zero recommendations: {}", ex.getMessage());
+          return Flux.empty();
+        });
+  }
+
+  public Flux<Review> streamReviews(int productId) {
+
+    String url = reviewServiceUrl + "?productId=" + productId;
+    LOG.debug("Will stream the getReviews API on URL: {}", url);
+
+    return webClient.get().uri(url).retrieve()
+        .bodyToFlux(Review.class)
+        .onErrorResume(WebClientResponseException.class, ex -> {
+          if (!ex.getStatusCode().is4xxClientError()) {
+            return Flux.error(ex);
+          }
+          LOG.warn("Got an exception while streaming reviews, returning zero reviews: {}", ex.getMessage());
+          return Flux.empty();
+        });
+  }
+
+  private Throwable handleWebClientException(WebClientResponseException ex) {
+
+    switch (ex.getStatusCode()) {
+      case NOT_FOUND -> {
+        return new NotFoundException(getErrorMessage(ex.getResponseBodyAsString(), ex));
+      }
+      case UNPROCESSABLE_ENTITY -> {
+        return new InvalidInputException(getErrorMessage(ex.getResponseBodyAsString(), ex));
+      }
+      default -> {
+        LOG.warn("Got an unexpected HTTP error: {}, will rethrow it", ex.getStatusCode());
+        LOG.warn("Error body: {}", ex.getResponseBodyAsString());
+        return ex;
+      }
+    }
+  }
+
   private RuntimeException handleHttpClientException(HttpClientErrorException ex) {
 
     switch (ex.getStatusCode()) {
@@ -198,8 +365,13 @@ public class ProductCompositeIntegration implements ProductService, ReviewServic
 
   private String getErrorMessage(HttpClientErrorException ex) {
 
+    return getErrorMessage(ex.getResponseBodyAsString(), ex);
+  }
+
+  private String getErrorMessage(String responseBody, RuntimeException ex) {
+
     try {
-      return mapper.readValue(ex.getResponseBodyAsString(), HttpErrorInfo.class).getMessage();
+      return mapper.readValue(responseBody, HttpErrorInfo.class).getMessage();
     } catch (IOException ioex) {
       return ex.getMessage();
     }
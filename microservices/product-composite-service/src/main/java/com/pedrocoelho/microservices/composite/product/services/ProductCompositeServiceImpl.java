@@ -1,15 +1,30 @@
 package com.pedrocoelho.microservices.composite.product.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pedrocoelho.api.composite.product.*;
 import com.pedrocoelho.api.core.product.Product;
 import com.pedrocoelho.api.core.recommendation.Recommendation;
+import com.pedrocoelho.api.core.recommendation.RecommendationStatistics;
 import com.pedrocoelho.api.core.review.Review;
+import com.pedrocoelho.api.core.review.ReviewStatistics;
+import com.pedrocoelho.api.exceptions.InvalidInputException;
 import com.pedrocoelho.api.exceptions.NotFoundException;
+import com.pedrocoelho.microservices.composite.product.cache.CachedProductAggregate;
+import com.pedrocoelho.microservices.composite.product.cache.EncodedProductAggregate;
+import com.pedrocoelho.microservices.composite.product.cache.ProductAggregateETags;
+import com.pedrocoelho.microservices.composite.product.cache.ProductAggregateCache;
+import com.pedrocoelho.microservices.composite.product.hotkeys.HotProducts;
+import com.pedrocoelho.microservices.composite.product.services.ProductAggregateFields.Field;
 import com.pedrocoelho.util.http.ServiceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 import java.util.Objects;
@@ -24,12 +39,29 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
   /* INFO: The implementation class requires the ServiceUtil bean and its own integration component, so they are injected in its constructor */
   private final ServiceUtil serviceUtil;
   private final ProductCompositeIntegration integration;
+  private final ProductAggregateCache cache;
+  private final ProductAggregateStreamWriter streamWriter;
+  private final HotProducts hotProducts;
+  private final ObjectMapper mapper;
+  private final int maxReviewBatchSize;
 
   @Autowired
-  public ProductCompositeServiceImpl(ServiceUtil serviceUtil, ProductCompositeIntegration integration) {
+  public ProductCompositeServiceImpl(
+      ServiceUtil serviceUtil,
+      ProductCompositeIntegration integration,
+      ProductAggregateCache cache,
+      ProductAggregateStreamWriter streamWriter,
+      HotProducts hotProducts,
+      ObjectMapper mapper,
+      @Value("${app.review.batch.max-size:1000}") int maxReviewBatchSize) {
 
     this.serviceUtil = serviceUtil;
     this.integration = integration;
+    this.cache = cache;
+    this.streamWriter = streamWriter;
+    this.hotProducts = hotProducts;
+    this.mapper = mapper;
+    this.maxReviewBatchSize = maxReviewBatchSize;
   }
 
   @Override
@@ -56,13 +88,18 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
         });
       }
 
+      /* INFO: One request per batch of reviews instead of one per review, each batch is created in a single transaction by the review service. */
       if (body.getReviews() != null) {
-        body.getReviews().forEach(r -> {
-          Review review = new Review(body.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent(), null);
-          integration.createReview(review);
-        });
+        List<Review> reviews = body.getReviews().stream()
+            .map(r -> new Review(body.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent(), null))
+            .collect(Collectors.toList());
+        for (int from = 0; from < reviews.size(); from += maxReviewBatchSize) {
+          integration.createReviews(reviews.subList(from, Math.min(from + maxReviewBatchSize, reviews.size())));
+        }
       }
 
+      cache.invalidate(body.getProductId());
+
       LOG.debug("createCompositeProduct: composite entities created for productId: {}", body.getProductId());
     } catch (RuntimeException re) {
       LOG.warn("createCompositeProduct failed", re);
@@ -70,21 +107,138 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
     }
   }
 
+  /* INFO: checkNotModified() compares the ETag with the If-None-Match header and, on a match, sets the 304 status. Returning null then completes the response without serializing the aggregate. */
+  /* INFO: Aggregates from the cache, and those built on a miss, are EncodedProductAggregates and are written with their already encoded JSON document. */
+  /* INFO: The core services of parts left out by the fields parameter are not called. Such partial aggregates are not cached, but a cached complete aggregate serves any selection. */
+  /* INFO: On a miss the recommendations and reviews are spliced into the response as the core services sent them, see createProductAggregate(). */
+  @Override
+  public ProductAggregate getProduct(int productId, String fields, ServerWebExchange exchange) {
+
+    ProductAggregateFields selected = ProductAggregateFields.parse(fields);
+
+    /* INFO: Requests are recorded as traffic only once the product is known to exist, so invalid and unknown ids are not counted. */
+    CachedProductAggregate cached = cache.getForRevalidation(productId);
+    if (cached != null) {
+      hotProducts.record(productId);
+      LOG.debug("getCompositeProduct: cached aggregate found for productId: {}", productId);
+      if (cached.isExpired(System.currentTimeMillis())) {
+        cache.revalidate(productId, () -> refresh(productId, cached));
+      }
+      return exchange.checkNotModified(selected.eTag(cached.getETags())) ? null : selected.project(cached.getAggregate());
+    }
+
+    /* INFO: Taken before the core services are called, so an invalidation during the calls keeps their result out of the cache. */
+    long generation = cache.generation(productId);
+    Product product;
+    RawSummaries recommendations;
+    RawSummaries reviews;
+    try {
+      product = integration.getProduct(productId);
+
+      if(product == null) {
+        throw new NotFoundException("No product found for productId: " + productId);
+      }
+      hotProducts.record(productId);
+
+      recommendations = selected.includes(Field.RECOMMENDATIONS) ? integration.getRawRecommendationSummaries(productId) : null;
+      reviews = selected.includes(Field.REVIEWS) ? integration.getRawReviewSummaries(productId) : null;
+
+    } catch (NotFoundException | InvalidInputException e) {
+      throw e;
+    } catch (RuntimeException re) {
+      /* INFO: stale-if-error, a failing core service is answered with the last aggregate if it is recent enough. */
+      CachedProductAggregate stale = cache.getForError(productId);
+      if (stale == null) {
+        throw re;
+      }
+      hotProducts.record(productId);
+      LOG.warn("getCompositeProduct: serves a stale aggregate for productId: {}, the core services failed: {}", productId, re.toString());
+      return exchange.checkNotModified(selected.eTag(stale.getETags())) ? null : selected.project(stale.getAggregate());
+    }
+
+    LOG.debug("getCompositeProduct: aggregate entity found for productId: {}", product);
+
+    /* INFO: Only has the selected parts already, so it is not projected, which would decode the spliced lists. */
+    EncodedProductAggregate aggregate = createProductAggregate(product, recommendations, reviews, selected);
+    ProductAggregateETags eTags = createETags(product, recommendations, reviews);
+    if (selected.isAll()) {
+      aggregate = cache.put(productId, aggregate, eTags, generation).getAggregate();
+    }
+
+    return exchange.checkNotModified(selected.eTag(eTags)) ? null : aggregate;
+  }
+
+  /**
+   * Loads the complete aggregate of the product into the cache, unless it is cached already.
+   */
+  public void preload(int productId) {
+
+    if (cache.getForRevalidation(productId) != null) {
+      return;
+    }
+
+    long generation = cache.generation(productId);
+    Product product = integration.getProduct(productId);
+    RawSummaries recommendations = integration.getRawRecommendationSummaries(productId);
+    RawSummaries reviews = integration.getRawReviewSummaries(productId);
+    cache.put(productId, createProductAggregate(product, recommendations, reviews, ProductAggregateFields.ALL), createETags(product, recommendations, reviews), generation);
+  }
+
+  /* INFO: Runs in the background, see ProductAggregateCache.revalidate(). */
+  private void refresh(int productId, CachedProductAggregate stale) {
+
+    try {
+      Product product = integration.getProduct(productId);
+      RawSummaries recommendations = integration.getRawRecommendationSummaries(productId);
+      RawSummaries reviews = integration.getRawReviewSummaries(productId);
+
+      ProductAggregate aggregate = createProductAggregate(product, recommendations, reviews, ProductAggregateFields.ALL);
+      cache.replace(productId, stale, aggregate, createETags(product, recommendations, reviews));
+
+    } catch (NotFoundException nfe) {
+      LOG.debug("refresh: productId: {} no longer exists, drops its cached aggregate", productId);
+      cache.remove(productId, stale);
+    }
+  }
+
+  /* INFO: Reads the precomputed statistics of the core services instead of the reviews and recommendations, so the cost does not grow with their number. Not cached, the statistics are already a single lookup each. */
   @Override
-  public ProductAggregate getProduct(int productId) {
+  public ProductSummary getProductSummary(int productId) {
 
     Product product = integration.getProduct(productId);
 
-    if(product == null) {
+    if (product == null) {
       throw new NotFoundException("No product found for productId: " + productId);
     }
 
-    List<Recommendation> recommendations = integration.getRecommendations(productId);
-    List<Review> reviews = integration.getReviews(productId);
+    RecommendationStatistics recommendationStatistics = integration.getRecommendationStatistics(productId);
+    ReviewStatistics reviewStatistics = integration.getReviewStatistics(productId);
 
-    LOG.debug("getCompositeProduct: aggregate entity found for productId: {}", product);
+    LOG.debug("getCompositeProductSummary: summary found for productId: {}", productId);
+
+    int recommendationCount = recommendationStatistics.getCount();
+    Double averageRate = recommendationCount == 0 ? null : (double) recommendationStatistics.getRateSum() / recommendationCount;
+    ServiceAddresses serviceAddresses = new ServiceAddresses(
+        serviceUtil.getServiceAddress(),
+        product.getServiceAddress(),
+        Objects.toString(reviewStatistics.getServiceAddress(), ""),
+        Objects.toString(recommendationStatistics.getServiceAddress(), ""));
+
+    return new ProductSummary(productId, product.getName(), product.getWeight(), recommendationCount, averageRate, reviewStatistics.getCount(), serviceAddresses);
+  }
+
+  @Override
+  public Flux<DataBuffer> getProductStream(int productId) {
+
+    LOG.debug("getCompositeProductStream: streams the aggregate for productId: {}", productId);
 
-    return createProductAggregate(product, recommendations, reviews, serviceUtil.getServiceAddress());
+    return integration.fetchProduct(productId)
+        .flatMapMany(product -> streamWriter.write(
+            product,
+            integration.streamRecommendations(productId),
+            integration.streamReviews(productId),
+            serviceUtil.getServiceAddress(),
+            DefaultDataBufferFactory.sharedInstance));
   }
 
   @Override
@@ -95,35 +249,39 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
     integration.deleteProduct(productId);
     integration.deleteRecommendations(productId);
     integration.deleteReviews(productId);
+    cache.invalidate(productId);
 
     LOG.debug("deleteCompositeProduct: aggregate entities deleted for productId: {}", productId);
   }
 
-  private ProductAggregate createProductAggregate(Product product, List<Recommendation> recommendations, List<Review> reviews, String serviceAddress) {
-
-    // 1. Setup product info
-    int productId = product.getProductId();
-    String name = product.getName();
-    int weight = product.getWeight();
+  /* INFO: The lists are left out, null, if they were not fetched. The addresses of the review and recommendation services come from the headers of their responses, so they are known even for empty lists. */
+  private EncodedProductAggregate createProductAggregate(Product product, RawSummaries recommendations, RawSummaries reviews, ProductAggregateFields selected) {
 
-    // 2. Copy summary recommendation info, if available
-    List<RecommendationSummary> recommendationSummaries = (recommendations == null) ? null :
-        recommendations.stream()
-            .map(r -> new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent()))
-            .collect(Collectors.toList());
+    ServiceAddresses serviceAddresses = !selected.includes(Field.SERVICE_ADDRESSES) ? null : new ServiceAddresses(
+        serviceUtil.getServiceAddress(),
+        product.getServiceAddress(),
+        reviews == null ? "" : reviews.getServiceAddress(),
+        recommendations == null ? "" : recommendations.getServiceAddress());
 
-    // 3. Copy summary review info, if available
-    List<ReviewSummary> reviewSummaries = (reviews == null) ? null :
-        reviews.stream()
-            .map(r -> new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()))
-            .collect(Collectors.toList());
+    return EncodedProductAggregate.splice(
+        product.getProductId(),
+        product.getName(),
+        product.getWeight(),
+        recommendations == null ? null : recommendations.getJson(),
+        reviews == null ? null : reviews.getJson(),
+        serviceAddresses,
+        mapper);
+  }
 
-    // 4. Create info regarding the involved microservices addresses
-    String productAddress = product.getServiceAddress();
-    String reviewAddress = (reviews != null && reviews.size() > 0) ? reviews.get(0).getServiceAddress() : "";
-    String recommendationAddress = (recommendations != null && recommendations.size() > 0) ? recommendations.get(0).getServiceAddress() : "";
-    ServiceAddresses serviceAddresses = new ServiceAddresses(serviceAddress, productAddress, reviewAddress, recommendationAddress);
+  /* INFO: The ETags of parts that were not fetched are left out, null, see ProductAggregateETags. */
+  private ProductAggregateETags createETags(Product product, RawSummaries recommendations, RawSummaries reviews) {
 
-    return new ProductAggregate(productId, name, weight, recommendationSummaries, reviewSummaries, serviceAddresses);
+    return new ProductAggregateETags(
+        product.getProductId(),
+        product.getVersion(),
+        product.getName(),
+        product.getWeight(),
+        recommendations == null ? null : recommendations.getETag(),
+        reviews == null ? null : reviews.getETag());
   }
 }
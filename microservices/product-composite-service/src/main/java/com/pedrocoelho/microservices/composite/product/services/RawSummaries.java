@@ -0,0 +1,53 @@
+package com.pedrocoelho.microservices.composite.product.services;
+
+import com.pedrocoelho.util.http.ServiceUtil;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The response of a summaries endpoint of a core service, e.g. ReviewService.getReviewSummaries(), as it was received:
+ * the JSON array, not parsed, and the ETag and service address from its headers.
+ */
+public class RawSummaries {
+
+  static final RawSummaries EMPTY = new RawSummaries("[]".getBytes(StandardCharsets.UTF_8), "", null);
+
+  private final byte[] json;
+  private final String serviceAddress;
+  private final String eTag;
+
+  public RawSummaries(byte[] json, String serviceAddress, String eTag) {
+
+    this.json = json;
+    this.serviceAddress = serviceAddress;
+    this.eTag = eTag;
+  }
+
+  static RawSummaries of(ResponseEntity<byte[]> response) {
+
+    String serviceAddress = response.getHeaders().getFirst(ServiceUtil.SERVICE_ADDRESS_HEADER);
+    return new RawSummaries(
+        response.getBody() == null ? EMPTY.json : response.getBody(),
+        serviceAddress == null ? "" : serviceAddress,
+        response.getHeaders().getETag());
+  }
+
+  /**
+   * @return the JSON array, shared and not to be modified
+   */
+  public byte[] getJson() {
+
+    return json;
+  }
+
+  public String getServiceAddress() {
+
+    return serviceAddress;
+  }
+
+  public String getETag() {
+
+    return eTag;
+  }
+}
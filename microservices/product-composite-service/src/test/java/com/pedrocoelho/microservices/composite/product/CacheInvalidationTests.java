@@ -0,0 +1,103 @@
+package com.pedrocoelho.microservices.composite.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pedrocoelho.api.composite.product.ProductAggregate;
+import com.pedrocoelho.api.exceptions.NotFoundException;
+import com.pedrocoelho.microservices.composite.product.cache.CacheInvalidationController;
+import com.pedrocoelho.microservices.composite.product.cache.HttpPeerInvalidationTransport;
+import com.pedrocoelho.microservices.composite.product.cache.LoopbackInvalidationTransport;
+import com.pedrocoelho.microservices.composite.product.cache.ProductAggregateCache;
+import com.pedrocoelho.microservices.composite.product.cache.ProductAggregateETags;
+import com.pedrocoelho.microservices.composite.product.hotkeys.HotProducts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+
+/* INFO: Two caches sharing one loopback transport stand in for two replicas of the composite service. */
+class CacheInvalidationTests {
+
+  private static final int PRODUCT_ID = 1;
+
+  private ProductAggregateCache replica1;
+  private ProductAggregateCache replica2;
+
+  @BeforeEach
+  void setUp() {
+
+    LoopbackInvalidationTransport transport = new LoopbackInvalidationTransport();
+    HotProducts noHotProducts = new HotProducts(false, 1, 2, 1, Duration.ZERO, "", Duration.ZERO);
+    replica1 = new ProductAggregateCache(transport, noHotProducts, new ObjectMapper(), true, Duration.ofMinutes(10), Duration.ZERO, Duration.ZERO, 100, DataSize.ofBytes(0));
+    replica2 = new ProductAggregateCache(transport, noHotProducts, new ObjectMapper(), true, Duration.ofMinutes(10), Duration.ZERO, Duration.ZERO, 100, DataSize.ofBytes(0));
+
+    replica1.put(PRODUCT_ID, aggregate(), eTags(PRODUCT_ID, "\"a\""), replica1.generation(PRODUCT_ID));
+    replica2.put(PRODUCT_ID, aggregate(), eTags(PRODUCT_ID, "\"a\""), replica2.generation(PRODUCT_ID));
+  }
+
+  @Test
+  void invalidateOnOneReplicaEvictsOnAll() {
+
+    replica1.invalidate(PRODUCT_ID);
+
+    assertNull(replica1.get(PRODUCT_ID));
+    assertNull(replica2.get(PRODUCT_ID));
+  }
+
+  @Test
+  void evictStaysLocal() {
+
+    replica1.evict(PRODUCT_ID);
+
+    assertNull(replica1.get(PRODUCT_ID));
+    assertNotNull(replica2.get(PRODUCT_ID));
+  }
+
+  @Test
+  void aggregateLoadedBeforeAnInvalidationIsNotCached() {
+
+    replica1.evict(PRODUCT_ID);
+    long generation = replica1.generation(PRODUCT_ID);
+
+    /* INFO: A peer's write lands while the aggregate is loaded from the core services. */
+    replica2.invalidate(PRODUCT_ID);
+
+    assertNotNull(replica1.put(PRODUCT_ID, aggregate(), eTags(PRODUCT_ID, "\"a\""), generation));
+    assertNull(replica1.get(PRODUCT_ID));
+
+    replica1.put(PRODUCT_ID, aggregate(), eTags(PRODUCT_ID, "\"b\""), replica1.generation(PRODUCT_ID));
+    assertEquals(eTags(PRODUCT_ID, "\"b\"").eTag(), replica1.get(PRODUCT_ID).getETag());
+  }
+
+  @Test
+  void peerInvalidationsRequireTheSharedSecret() {
+
+    HttpPeerInvalidationTransport transport = new HttpPeerInvalidationTransport(WebClient.builder(), "", Duration.ofSeconds(2), "secret");
+    List<Integer> received = new ArrayList<>();
+    transport.subscribe(received::add);
+    CacheInvalidationController controller = new CacheInvalidationController(transport);
+
+    assertThrows(NotFoundException.class, () -> controller.invalidate(PRODUCT_ID, null));
+    assertThrows(NotFoundException.class, () -> controller.invalidate(PRODUCT_ID, "guess"));
+    assertTrue(received.isEmpty());
+
+    controller.invalidate(PRODUCT_ID, "secret");
+    assertEquals(List.of(PRODUCT_ID), received);
+  }
+
+  private static ProductAggregate aggregate() {
+
+    return new ProductAggregate(PRODUCT_ID, "name", 1, emptyList(), emptyList(), null);
+  }
+
+  private static ProductAggregateETags eTags(int productId, String reviewsETag) {
+
+    return new ProductAggregateETags(productId, 0, "name", 1, "\"recommendations\"", reviewsETag);
+  }
+}
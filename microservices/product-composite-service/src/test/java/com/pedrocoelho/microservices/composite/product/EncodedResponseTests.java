@@ -0,0 +1,131 @@
+package com.pedrocoelho.microservices.composite.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pedrocoelho.api.composite.product.ProductAggregate;
+import com.pedrocoelho.api.composite.product.ReviewSummary;
+import com.pedrocoelho.api.composite.product.ServiceAddresses;
+import com.pedrocoelho.microservices.composite.product.cache.EncodedProductAggregate;
+import com.pedrocoelho.microservices.composite.product.services.EncodedProductAggregateWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.IntStream.rangeClosed;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncodedResponseTests {
+
+  private static final ResolvableType TYPE = ResolvableType.forClass(EncodedProductAggregate.class);
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final EncodedProductAggregateWriter writer = new EncodedProductAggregateWriter(mapper, true, DataSize.ofBytes(256));
+
+  @Test
+  void writesTheSameBytesAsJackson() throws IOException {
+
+    EncodedProductAggregate aggregate = new EncodedProductAggregate(aggregate(1));
+
+    MockServerHttpResponse response = write(aggregate, MockServerHttpRequest.get("/product-composite/1").build());
+
+    assertArrayEquals(mapper.writeValueAsBytes(aggregate(1)), body(response));
+    assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertSame(aggregate.json(mapper), aggregate.json(mapper));
+  }
+
+  @Test
+  void largeDocumentsAreSentCompressedToClientsThatAcceptGzip() throws IOException {
+
+    EncodedProductAggregate aggregate = new EncodedProductAggregate(aggregate(20));
+
+    MockServerHttpResponse gzip = write(aggregate, MockServerHttpRequest.get("/product-composite/1").header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.8").build());
+    MockServerHttpResponse identity = write(aggregate, MockServerHttpRequest.get("/product-composite/1").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0").build());
+
+    assertEquals("gzip", gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(HttpHeaders.ACCEPT_ENCODING, gzip.getHeaders().getFirst(HttpHeaders.VARY));
+    assertArrayEquals(mapper.writeValueAsBytes(aggregate(20)), new GZIPInputStream(new ByteArrayInputStream(body(gzip))).readAllBytes());
+
+    assertNull(identity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(HttpHeaders.ACCEPT_ENCODING, identity.getHeaders().getFirst(HttpHeaders.VARY));
+    assertArrayEquals(mapper.writeValueAsBytes(aggregate(20)), body(identity));
+  }
+
+  @Test
+  void splicedAggregatesHaveTheSameDocumentAsJackson() throws IOException {
+
+    ServiceAddresses addresses = new ServiceAddresses("composite", "product", "review", "recommendation");
+    ProductAggregate expected = new ProductAggregate(1, "na\"me", 2, emptyList(), aggregate(3).getReviews(), addresses);
+
+    EncodedProductAggregate spliced = EncodedProductAggregate.splice(
+        1, "na\"me", 2, "[]".getBytes(StandardCharsets.UTF_8), mapper.writeValueAsBytes(expected.getReviews()), addresses, mapper);
+    EncodedProductAggregate partial = EncodedProductAggregate.splice(
+        1, "na\"me", 2, null, mapper.writeValueAsBytes(expected.getReviews()), null, mapper);
+
+    assertArrayEquals(mapper.writeValueAsBytes(expected), spliced.json(mapper));
+    assertArrayEquals(mapper.writeValueAsBytes(new ProductAggregate(1, "na\"me", 2, null, expected.getReviews(), null)), partial.json(mapper));
+
+    assertEquals(3, spliced.getReviews().size());
+    assertEquals("subject", spliced.getReviews().get(2).getSubject());
+    assertTrue(spliced.getRecommendations().isEmpty());
+    assertNull(partial.getRecommendations());
+  }
+
+  @Test
+  void compactAggregatesKeepOnlyTheirDocuments() throws IOException {
+
+    EncodedProductAggregate encoded = new EncodedProductAggregate(aggregate(3));
+    byte[] gzip = encoded.gzip(mapper);
+
+    EncodedProductAggregate compact = EncodedProductAggregate.compact(encoded, mapper);
+
+    assertArrayEquals(mapper.writeValueAsBytes(aggregate(3)), compact.json(mapper));
+    assertSame(gzip, compact.gzip(mapper));
+    assertSame(compact, EncodedProductAggregate.compact(compact, mapper));
+    assertEquals("subject", compact.getReviews().get(2).getSubject());
+    assertNotSame(compact.decoded(), compact.decoded());
+  }
+
+  @Test
+  void onlyEncodedAggregatesAreWritten() {
+
+    assertTrue(writer.canWrite(TYPE, MediaType.APPLICATION_JSON));
+    assertFalse(writer.canWrite(ResolvableType.forClass(ProductAggregate.class), MediaType.APPLICATION_JSON));
+    assertFalse(writer.canWrite(TYPE, MediaType.APPLICATION_XML));
+  }
+
+  private MockServerHttpResponse write(EncodedProductAggregate aggregate, MockServerHttpRequest request) {
+
+    MockServerHttpResponse response = new MockServerHttpResponse();
+    writer.write(Mono.just(aggregate), TYPE, TYPE, MediaType.APPLICATION_JSON, request, response, Map.of()).block();
+    return response;
+  }
+
+  private static byte[] body(MockServerHttpResponse response) {
+
+    return DataBufferUtils.join(response.getBody()).map(buffer -> {
+      byte[] bytes = new byte[buffer.readableByteCount()];
+      buffer.read(bytes);
+      return bytes;
+    }).block();
+  }
+
+  private static ProductAggregate aggregate(int reviews) {
+
+    List<ReviewSummary> summaries = rangeClosed(1, reviews).mapToObj(i -> new ReviewSummary(i, "author", "subject", "content")).collect(Collectors.toList());
+    return new ProductAggregate(1, "name", 1, emptyList(), summaries, null);
+  }
+}
@@ -0,0 +1,68 @@
+package com.pedrocoelho.microservices.composite.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pedrocoelho.api.composite.product.ProductAggregate;
+import com.pedrocoelho.microservices.composite.product.cache.LoopbackInvalidationTransport;
+import com.pedrocoelho.microservices.composite.product.cache.ProductAggregateCache;
+import com.pedrocoelho.microservices.composite.product.cache.ProductAggregateETags;
+import com.pedrocoelho.microservices.composite.product.hotkeys.HotProducts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotProductsTests {
+
+  @Test
+  void hotProductsStayInAFullCache() {
+
+    HotProducts hotProducts = new HotProducts(true, 1, 256, 4, Duration.ZERO, "", Duration.ZERO);
+    for (int i = 0; i < 10; i++) {
+      hotProducts.record(1);
+    }
+    hotProducts.record(2);
+    assertTrue(hotProducts.isHot(1));
+    assertFalse(hotProducts.isHot(2));
+
+    ProductAggregateCache cache = new ProductAggregateCache(new LoopbackInvalidationTransport(), hotProducts, new ObjectMapper(), true, Duration.ofMinutes(1), Duration.ZERO, Duration.ZERO, 2, DataSize.ofBytes(0));
+    cache.put(1, aggregate(1), eTags(1, "\"a\""), cache.generation(1));
+    cache.put(2, aggregate(2), eTags(2, "\"a\""), cache.generation(2));
+    cache.put(3, aggregate(3), eTags(3, "\"a\""), cache.generation(3));
+
+    assertNotNull(cache.get(1));
+    assertNull(cache.get(2));
+    assertNotNull(cache.get(3));
+  }
+
+  @Test
+  void snapshotSurvivesARestart(@TempDir Path directory) {
+
+    String snapshotFile = directory.resolve("hot-products.txt").toString();
+    HotProducts beforeRestart = new HotProducts(true, 2, 256, 4, Duration.ZERO, snapshotFile, Duration.ZERO);
+    assertEquals(List.of(), beforeRestart.readSnapshot());
+    for (int i = 0; i < 3; i++) {
+      beforeRestart.record(7);
+    }
+    beforeRestart.record(5);
+    beforeRestart.shutdown();
+
+    HotProducts afterRestart = new HotProducts(true, 2, 256, 4, Duration.ZERO, snapshotFile, Duration.ZERO);
+    assertEquals(List.of(7, 5), afterRestart.readSnapshot());
+  }
+
+  private static ProductAggregate aggregate(int productId) {
+
+    return new ProductAggregate(productId, "name", 1, emptyList(), emptyList(), null);
+  }
+
+  private static ProductAggregateETags eTags(int productId, String reviewsETag) {
+
+    return new ProductAggregateETags(productId, 0, "name", 1, "\"recommendations\"", reviewsETag);
+  }
+}
@@ -1,24 +1,50 @@
 package com.pedrocoelho.microservices.composite.product;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pedrocoelho.api.composite.product.ProductAggregate;
 import com.pedrocoelho.api.composite.product.RecommendationSummary;
 import com.pedrocoelho.api.composite.product.ReviewSummary;
+import com.pedrocoelho.api.composite.product.ServiceAddresses;
 import com.pedrocoelho.api.core.product.Product;
 import com.pedrocoelho.api.core.recommendation.Recommendation;
+import com.pedrocoelho.api.core.recommendation.RecommendationStatistics;
 import com.pedrocoelho.api.core.review.Review;
+import com.pedrocoelho.api.core.review.ReviewStatistics;
 import com.pedrocoelho.api.exceptions.InvalidInputException;
 import com.pedrocoelho.api.exceptions.NotFoundException;
 import com.pedrocoelho.microservices.composite.product.services.ProductCompositeIntegration;
+import com.pedrocoelho.microservices.composite.product.services.RawSummaries;
+import com.pedrocoelho.util.http.ServiceUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.IntStream.rangeClosed;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
@@ -34,6 +60,14 @@ class ProductCompositeServiceApplicationTests {
   private static final int PRODUCT_ID_OK = 123;
   private static final int PRODUCT_ID_NOT_FOUND = 13;
   private static final int PRODUCT_ID_INVALID = -1;
+  private static final int PRODUCT_ID_LARGE = 124;
+  private static final int PRODUCT_ID_PROJECTED = 125;
+
+  @Autowired
+  private ObjectMapper mapper;
+
+  @Autowired
+  private ServiceUtil serviceUtil;
 
   @MockBean
   private ProductCompositeIntegration compositeIntegration;
@@ -42,8 +76,13 @@ class ProductCompositeServiceApplicationTests {
   void setUp() {
 
     when(compositeIntegration.getProduct(PRODUCT_ID_OK)).thenReturn(new Product(PRODUCT_ID_OK, "name", 123, "mock-address"));
-    when(compositeIntegration.getRecommendations(PRODUCT_ID_OK)).thenReturn(singletonList(new Recommendation(PRODUCT_ID_OK, 123, "author", 123, "content", "mock-address")));
-    when(compositeIntegration.getReviews(PRODUCT_ID_OK)).thenReturn(singletonList(new Review(PRODUCT_ID_OK, 123, "author", "subject", "content", "mock-address")));
+    when(compositeIntegration.getRawRecommendationSummaries(PRODUCT_ID_OK)).thenReturn(rawSummaries("[{\"recommendationId\":123,\"author\":\"author\",\"rate\":123,\"content\":\"content\"}]"));
+    when(compositeIntegration.getRawReviewSummaries(PRODUCT_ID_OK)).thenReturn(rawSummaries("[{\"reviewId\":123,\"author\":\"author\",\"subject\":\"subject\",\"content\":\"content\"}]"));
+    when(compositeIntegration.getRecommendationStatistics(PRODUCT_ID_OK)).thenReturn(new RecommendationStatistics(PRODUCT_ID_OK, 2, 7, "mock-address"));
+    when(compositeIntegration.getReviewStatistics(PRODUCT_ID_OK)).thenReturn(new ReviewStatistics(PRODUCT_ID_OK, 3, "mock-address"));
+    when(compositeIntegration.fetchProduct(PRODUCT_ID_OK)).thenReturn(Mono.just(new Product(PRODUCT_ID_OK, "name", 123, "mock-address")));
+    when(compositeIntegration.streamRecommendations(PRODUCT_ID_OK)).thenReturn(Flux.just(new Recommendation(PRODUCT_ID_OK, 123, "author", 123, "content", "mock-address")));
+    when(compositeIntegration.streamReviews(PRODUCT_ID_OK)).thenReturn(Flux.just(new Review(PRODUCT_ID_OK, 123, "author", "subject", "content", "mock-address")));
     when(compositeIntegration.getProduct(PRODUCT_ID_NOT_FOUND)).thenThrow(new NotFoundException("Not found product with id: " + PRODUCT_ID_NOT_FOUND));
     when(compositeIntegration.getProduct(PRODUCT_ID_INVALID)).thenThrow(new InvalidInputException("Invalid product id: " + PRODUCT_ID_INVALID));
   }
@@ -70,6 +109,9 @@ class ProductCompositeServiceApplicationTests {
     postProductAndVerify(compositeProduct, OK);
 
     getProductByIdAndVerify(compositeProduct.getProductId(), OK);
+
+    verify(compositeIntegration).createReviews(anyList());
+    verify(compositeIntegration, never()).createReview(any());
   }
 
   @Test
@@ -85,7 +127,148 @@ class ProductCompositeServiceApplicationTests {
     getProductByIdAndVerify(PRODUCT_ID_OK, OK)
         .jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK)
         .jsonPath("$.recommendations.length()").isEqualTo(1)
-        .jsonPath("$.reviews.length()").isEqualTo(1);
+        .jsonPath("$.reviews.length()").isEqualTo(1)
+        .jsonPath("$.reviews[0].subject").isEqualTo("subject")
+        .jsonPath("$.serviceAddresses.reviewAddress").isEqualTo("mock-address");
+  }
+
+  @Test
+  @DisplayName("get a product with selected fields")
+  void getProductByIdWithFields() {
+
+    client.get()
+        .uri("/product-composite/" + PRODUCT_ID_OK + "?fields=reviews")
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK)
+        .jsonPath("$.reviews.length()").isEqualTo(1)
+        .jsonPath("$.recommendations").doesNotExist()
+        .jsonPath("$.serviceAddresses").doesNotExist();
+
+    verify(compositeIntegration, never()).getRawRecommendationSummaries(anyInt());
+  }
+
+  @Test
+  @DisplayName("get a product with an unknown field")
+  void getProductByIdWithInvalidField() {
+
+    client.get()
+        .uri("/product-composite/" + PRODUCT_ID_OK + "?fields=reviews,price")
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(UNPROCESSABLE_ENTITY)
+        .expectBody()
+        .jsonPath("$.message").isEqualTo("Invalid field: price, expected any of recommendations,reviews,serviceAddresses");
+  }
+
+  @Test
+  @DisplayName("get a product with an up-to-date ETag")
+  void getProductByIdNotModified() {
+
+    String eTag = client.get()
+        .uri("/product-composite/" + PRODUCT_ID_OK)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().exists("ETag")
+        .returnResult(String.class)
+        .getResponseHeaders().getETag();
+
+    client.get()
+        .uri("/product-composite/" + PRODUCT_ID_OK)
+        .accept(APPLICATION_JSON)
+        .ifNoneMatch(eTag)
+        .exchange()
+        .expectStatus().isNotModified()
+        .expectHeader().valueEquals("ETag", eTag)
+        .expectBody().isEmpty();
+  }
+
+  /* INFO: The first request for the projection assembles it from the core services, the last one projects the complete aggregate cached by the request in between. */
+  @Test
+  @DisplayName("get a projection with the same ETag whether it is cached or not")
+  void getProjectionETagIndependentOfTheCache() {
+
+    when(compositeIntegration.getProduct(PRODUCT_ID_PROJECTED)).thenReturn(new Product(PRODUCT_ID_PROJECTED, "name", 123, "mock-address"));
+    when(compositeIntegration.getRawRecommendationSummaries(PRODUCT_ID_PROJECTED)).thenReturn(rawSummaries("[]"));
+    when(compositeIntegration.getRawReviewSummaries(PRODUCT_ID_PROJECTED)).thenReturn(rawSummaries("[]"));
+
+    String assembled = getETag(PRODUCT_ID_PROJECTED, "?fields=reviews");
+    String complete = getETag(PRODUCT_ID_PROJECTED, "");
+    String projected = getETag(PRODUCT_ID_PROJECTED, "?fields=reviews");
+
+    assertEquals(assembled, projected);
+    assertNotEquals(complete, projected);
+  }
+
+  /* INFO: The handler is declared to return ProductAggregate, so this checks that the registered EncodedProductAggregateWriter is picked by the runtime type, before Jackson. */
+  @Test
+  @DisplayName("get a large cached product gzip-compressed")
+  void getCachedProductCompressed() throws IOException {
+
+    List<ReviewSummary> reviews = rangeClosed(1, 50).mapToObj(i -> new ReviewSummary(i, "author", "subject-" + i, "content-" + i)).collect(Collectors.toList());
+    when(compositeIntegration.getProduct(PRODUCT_ID_LARGE)).thenReturn(new Product(PRODUCT_ID_LARGE, "name", 123, "mock-address"));
+    when(compositeIntegration.getRawRecommendationSummaries(PRODUCT_ID_LARGE)).thenReturn(rawSummaries("[]"));
+    when(compositeIntegration.getRawReviewSummaries(PRODUCT_ID_LARGE)).thenReturn(rawSummaries(mapper.writeValueAsString(reviews)));
+    ProductAggregate expected = new ProductAggregate(PRODUCT_ID_LARGE, "name", 123, emptyList(), reviews,
+        new ServiceAddresses(serviceUtil.getServiceAddress(), "mock-address", "mock-address", "mock-address"));
+
+    getProductByIdAndVerify(PRODUCT_ID_LARGE, OK);
+
+    byte[] gzip = client.get()
+        .uri("/product-composite/" + PRODUCT_ID_LARGE)
+        .accept(APPLICATION_JSON)
+        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+        .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+        .expectBody(byte[].class)
+        .returnResult().getResponseBody();
+
+    assertArrayEquals(mapper.writeValueAsBytes(expected), new GZIPInputStream(new ByteArrayInputStream(gzip)).readAllBytes());
+  }
+
+  @Test
+  @DisplayName("stream a product with valid and existing id")
+  void getProductStreamById() {
+
+    client.get()
+        .uri("/product-composite/" + PRODUCT_ID_OK + "/stream")
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(APPLICATION_JSON)
+        .expectBody()
+        .jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK)
+        .jsonPath("$.name").isEqualTo("name")
+        .jsonPath("$.recommendations.length()").isEqualTo(1)
+        .jsonPath("$.reviews.length()").isEqualTo(1)
+        .jsonPath("$.serviceAddresses.reviewAddress").isEqualTo("mock-address");
+  }
+
+  @Test
+  @DisplayName("get the summary of a product with valid and existing id")
+  void getProductSummaryById() {
+
+    getProductSummaryByIdAndVerify(PRODUCT_ID_OK, OK)
+        .jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK)
+        .jsonPath("$.name").isEqualTo("name")
+        .jsonPath("$.recommendationCount").isEqualTo(2)
+        .jsonPath("$.averageRate").isEqualTo(3.5)
+        .jsonPath("$.reviewCount").isEqualTo(3)
+        .jsonPath("$.recommendations").doesNotExist()
+        .jsonPath("$.reviews").doesNotExist();
+  }
+
+  @Test
+  @DisplayName("get the summary of a product with valid but non-existing id")
+  void getProductSummaryNotFound() {
+
+    getProductSummaryByIdAndVerify(PRODUCT_ID_NOT_FOUND, NOT_FOUND)
+        .jsonPath("$.message").isEqualTo("Not found product with id: " + PRODUCT_ID_NOT_FOUND);
   }
 
   @Test
@@ -119,6 +302,22 @@ class ProductCompositeServiceApplicationTests {
     deleteProductByIdAndVerify(compositeProduct.getProductId(), OK);
   }
 
+  private String getETag(int productId, String query) {
+
+    return client.get()
+        .uri("/product-composite/" + productId + query)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(String.class)
+        .getResponseHeaders().getETag();
+  }
+
+  private static RawSummaries rawSummaries(String json) {
+
+    return new RawSummaries(json.getBytes(StandardCharsets.UTF_8), "mock-address", "\"1\"");
+  }
+
   private void postProductAndVerify(ProductAggregate compositeProduct, HttpStatus expectedStatus) {
 
     client.post()
@@ -140,6 +339,17 @@ class ProductCompositeServiceApplicationTests {
         .expectBody();
   }
 
+  private WebTestClient.BodyContentSpec getProductSummaryByIdAndVerify(int productId, HttpStatus expectedStatus) {
+
+    return client.get()
+        .uri("/product-composite/" + productId + "?view=summary")
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(expectedStatus)
+        .expectHeader().contentType(APPLICATION_JSON)
+        .expectBody();
+  }
+
   private void deleteProductByIdAndVerify(int productId, HttpStatus expectedStatus) {
 
     client.delete()
@@ -0,0 +1,96 @@
+package com.pedrocoelho.microservices.composite.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pedrocoelho.api.composite.product.ProductAggregate;
+import com.pedrocoelho.microservices.composite.product.cache.CachedProductAggregate;
+import com.pedrocoelho.microservices.composite.product.cache.LoopbackInvalidationTransport;
+import com.pedrocoelho.microservices.composite.product.cache.ProductAggregateCache;
+import com.pedrocoelho.microservices.composite.product.cache.ProductAggregateETags;
+import com.pedrocoelho.microservices.composite.product.hotkeys.HotProducts;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+
+/* INFO: A TTL of zero makes every entry expire right away, so the stale windows can be tested without waiting. */
+class StaleWhileRevalidateTests {
+
+  private static final int PRODUCT_ID = 1;
+
+  @Test
+  void expiredEntriesAreServedWithinTheStaleWindows() {
+
+    ProductAggregateCache cache = cache(Duration.ofMinutes(1), Duration.ofMinutes(5));
+    cache.put(PRODUCT_ID, aggregate("name"), eTags(PRODUCT_ID, "\"a\""), cache.generation(PRODUCT_ID));
+
+    assertNull(cache.get(PRODUCT_ID));
+    assertNotNull(cache.getForRevalidation(PRODUCT_ID));
+    assertNotNull(cache.getForError(PRODUCT_ID));
+
+    ProductAggregateCache noStaleness = cache(Duration.ZERO, Duration.ofMinutes(5));
+    noStaleness.put(PRODUCT_ID, aggregate("name"), eTags(PRODUCT_ID, "\"a\""), noStaleness.generation(PRODUCT_ID));
+    assertNull(noStaleness.getForRevalidation(PRODUCT_ID));
+    assertNotNull(noStaleness.getForError(PRODUCT_ID));
+  }
+
+  @Test
+  void oneRefreshAtATime() throws InterruptedException {
+
+    ProductAggregateCache cache = cache(Duration.ofMinutes(1), Duration.ZERO);
+    CachedProductAggregate stale = cache.put(PRODUCT_ID, aggregate("name"), eTags(PRODUCT_ID, "\"a\""), cache.generation(PRODUCT_ID));
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+    AtomicInteger refreshes = new AtomicInteger();
+
+    Runnable refresh = () -> {
+      refreshes.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      cache.replace(PRODUCT_ID, stale, aggregate("refreshed"), eTags(PRODUCT_ID, "\"b\""));
+      done.countDown();
+    };
+    cache.revalidate(PRODUCT_ID, refresh);
+    cache.revalidate(PRODUCT_ID, refresh);
+    release.countDown();
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(1, refreshes.get());
+    assertEquals("refreshed", cache.getForRevalidation(PRODUCT_ID).getAggregate().getName());
+  }
+
+  @Test
+  void refreshDoesNotResurrectAnEvictedEntry() {
+
+    ProductAggregateCache cache = cache(Duration.ofMinutes(1), Duration.ZERO);
+    CachedProductAggregate stale = cache.put(PRODUCT_ID, aggregate("name"), eTags(PRODUCT_ID, "\"a\""), cache.generation(PRODUCT_ID));
+
+    cache.invalidate(PRODUCT_ID);
+
+    assertFalse(cache.replace(PRODUCT_ID, stale, aggregate("refreshed"), eTags(PRODUCT_ID, "\"b\"")));
+    assertNull(cache.getForRevalidation(PRODUCT_ID));
+  }
+
+  private static ProductAggregateCache cache(Duration maxStaleness, Duration staleIfError) {
+
+    return new ProductAggregateCache(new LoopbackInvalidationTransport(), new HotProducts(false, 1, 2, 1, Duration.ZERO, "", Duration.ZERO), new ObjectMapper(), true, Duration.ZERO, maxStaleness, staleIfError, 100, DataSize.ofBytes(0));
+  }
+
+  private static ProductAggregate aggregate(String name) {
+
+    return new ProductAggregate(PRODUCT_ID, name, 1, emptyList(), emptyList(), null);
+  }
+
+  private static ProductAggregateETags eTags(int productId, String reviewsETag) {
+
+    return new ProductAggregateETags(productId, 0, "name", 1, "\"recommendations\"", reviewsETag);
+  }
+}
@@ -0,0 +1,115 @@
+package com.pedrocoelho.microservices.composite.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pedrocoelho.api.composite.product.ProductAggregate;
+import com.pedrocoelho.api.composite.product.ReviewSummary;
+import com.pedrocoelho.microservices.composite.product.cache.CachedProductAggregate;
+import com.pedrocoelho.microservices.composite.product.cache.LoopbackInvalidationTransport;
+import com.pedrocoelho.microservices.composite.product.cache.ProductAggregateCache;
+import com.pedrocoelho.microservices.composite.product.cache.ProductAggregateETags;
+import com.pedrocoelho.microservices.composite.product.hotkeys.HotProducts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+
+/* INFO: A heap tier of two aggregates in front of an off-heap tier, so putting the third aggregate moves the first one, the first in the iteration order, off the heap. */
+class TieredCacheTests {
+
+  private ProductAggregateCache cache;
+
+  @BeforeEach
+  void setUp() {
+
+    HotProducts noHotProducts = new HotProducts(false, 1, 2, 1, Duration.ZERO, "", Duration.ZERO);
+    cache = new ProductAggregateCache(new LoopbackInvalidationTransport(), noHotProducts, new ObjectMapper(), true, Duration.ofMinutes(10), Duration.ZERO, Duration.ZERO, 2, DataSize.ofKilobytes(64));
+
+    for (int productId = 1; productId <= 3; productId++) {
+      cache.put(productId, aggregate(productId), eTags(productId, "\"a\""), cache.generation(productId));
+    }
+  }
+
+  @Test
+  void evictedAggregatesMoveOffHeapAndBack() {
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.offHeapSize());
+
+    for (int productId = 1; productId <= 3; productId++) {
+      CachedProductAggregate cached = cache.get(productId);
+      assertNotNull(cached, "productId: " + productId);
+      assertEquals(eTags(productId, "\"a\"").eTag(), cached.getETag());
+      assertEquals("name-" + productId, cached.getAggregate().getName());
+      assertEquals("subject-" + productId, cached.getAggregate().getReviews().get(0).getSubject());
+    }
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.offHeapSize());
+  }
+
+  @Test
+  void invalidateDropsOffHeapAggregates() {
+
+    for (int productId = 1; productId <= 3; productId++) {
+      cache.invalidate(productId);
+    }
+
+    for (int productId = 1; productId <= 3; productId++) {
+      assertNull(cache.get(productId));
+    }
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.offHeapSize());
+  }
+
+  @Test
+  void hitsAreCountedPerTier() {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    cache.bindTo(registry);
+
+    assertNotNull(cache.get(3));
+    assertNotNull(cache.get(1));
+    assertNull(cache.get(4));
+
+    assertEquals(1, requests(registry, "heap-hit"));
+    assertEquals(1, requests(registry, "off-heap-hit"));
+    assertEquals(1, requests(registry, "miss"));
+  }
+
+  @Test
+  void containsNeitherMovesNorCounts() {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    cache.bindTo(registry);
+
+    assertTrue(cache.contains(1));
+    assertTrue(cache.contains(3));
+    assertFalse(cache.contains(4));
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.offHeapSize());
+    assertEquals(0, requests(registry, "heap-hit") + requests(registry, "off-heap-hit") + requests(registry, "miss"));
+  }
+
+  private static double requests(SimpleMeterRegistry registry, String result) {
+
+    return registry.get("product.aggregate.cache.requests").tag("result", result).functionCounter().count();
+  }
+
+  private static ProductAggregate aggregate(int productId) {
+
+    List<ReviewSummary> reviews = List.of(new ReviewSummary(1, "author", "subject-" + productId, "content"));
+    return new ProductAggregate(productId, "name-" + productId, 1, emptyList(), reviews, null);
+  }
+
+  private static ProductAggregateETags eTags(int productId, String reviewsETag) {
+
+    return new ProductAggregateETags(productId, 0, "name", 1, "\"recommendations\"", reviewsETag);
+  }
+}
@@ -0,0 +1,43 @@
+package com.pedrocoelho.microservices.core.product.cache;
+
+import com.pedrocoelho.microservices.core.product.repository.ProductEntity;
+
+public class CachedProduct {
+
+  private final ProductEntity entity;
+  private final long expiresAt;
+  private volatile long lastAccess;
+
+  public CachedProduct(ProductEntity entity, long expiresAt, long lastAccess) {
+
+    this.entity = entity;
+    this.expiresAt = expiresAt;
+    this.lastAccess = lastAccess;
+  }
+
+  public ProductEntity getEntity() {
+
+    return entity;
+  }
+
+  public long getExpiresAt() {
+
+    return expiresAt;
+  }
+
+  public long getLastAccess() {
+
+    return lastAccess;
+  }
+
+  /* INFO: A plain volatile write, concurrent readers may overwrite each other's timestamps, which is good enough to pick eviction candidates. */
+  public void touch(long now) {
+
+    lastAccess = now;
+  }
+
+  public boolean isExpired(long now) {
+
+    return now >= expiresAt;
+  }
+}
@@ -0,0 +1,361 @@
+package com.pedrocoelho.microservices.core.product.cache;
+
+import com.pedrocoelho.microservices.core.product.repository.ProductEntity;
+import com.pedrocoelho.microservices.core.product.repository.ProductRepository;
+import com.pedrocoelho.util.collections.ConcurrentIntObjectMap;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * A read-through cache in front of ProductRepository.findByProductId, keyed by the primitive productId.
+ * <p>
+ * Entries live for a fixed TTL, which bounds the staleness when another instance deletes a product, and the cache
+ * never holds more than max-entries products: when it is full, the least recently used of a few randomly sampled
+ * entries is evicted. Cached entities are shared between callers and must not be modified.
+ * <p>
+ * If snapshot.file is set, the most recently used products are written to it every snapshot.interval and on shutdown,
+ * see ProductCacheSnapshot. On startup, the file is memory-mapped and the versions of its products are checked
+ * against the database in batches, products that were changed or deleted since are discarded. The others are read
+ * from the mapped file on their first request within the TTL, instead of from the database.
+ */
+@Component
+public class ProductCache implements MeterBinder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ProductCache.class);
+  private static final int EVICTION_SAMPLES = 8;
+  private static final int WARM_UP_PAGE_SIZE = 500;
+
+  private final ProductRepository repository;
+  private final boolean enabled;
+  private final long ttlMillis;
+  private final int maxEntries;
+  private final boolean warmUpOnStartup;
+  private final Path snapshotFile;
+  private final int snapshotMaxEntries;
+  private final ScheduledExecutorService snapshotExecutor;
+
+  private final ConcurrentIntObjectMap<CachedProduct> entries;
+  private final AtomicLong invalidations = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder restores = new LongAdder();
+
+  /* INFO: The snapshot of the last run, null once restorableUntil has passed, and the productIds in it that were found unchanged and were not requested or invalidated since. */
+  private volatile ProductCacheSnapshot restored;
+  private volatile long restorableUntil;
+  private final ConcurrentIntObjectMap<Boolean> restorable = new ConcurrentIntObjectMap<>();
+
+  @Autowired
+  public ProductCache(
+      ProductRepository repository,
+      @Value("${app.product.cache.enabled:true}") boolean enabled,
+      @Value("${app.product.cache.ttl:5m}") Duration ttl,
+      @Value("${app.product.cache.max-entries:10000}") int maxEntries,
+      @Value("${app.product.cache.warm-up:false}") boolean warmUpOnStartup,
+      @Value("${app.product.cache.snapshot.file:}") String snapshotFile,
+      @Value("${app.product.cache.snapshot.interval:5m}") Duration snapshotInterval,
+      @Value("${app.product.cache.snapshot.max-entries:1000}") int snapshotMaxEntries) {
+
+    this.repository = repository;
+    this.enabled = enabled;
+    this.ttlMillis = ttl.toMillis();
+    this.maxEntries = maxEntries;
+    this.warmUpOnStartup = warmUpOnStartup;
+    this.entries = new ConcurrentIntObjectMap<>(enabled ? maxEntries : 0);
+    this.snapshotFile = snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+    this.snapshotMaxEntries = snapshotMaxEntries;
+
+    if (enabled && this.snapshotFile != null && !snapshotInterval.isZero()) {
+      long millis = snapshotInterval.toMillis();
+      snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-cache-snapshot");
+        thread.setDaemon(true);
+        return thread;
+      });
+      snapshotExecutor.scheduleAtFixedRate(this::writeSnapshot, millis, millis, TimeUnit.MILLISECONDS);
+    } else {
+      snapshotExecutor = null;
+    }
+  }
+
+  public Optional<ProductEntity> findByProductId(int productId) {
+
+    if (!enabled) {
+      return repository.findByProductId(productId);
+    }
+
+    long now = System.currentTimeMillis();
+    CachedProduct cached = entries.get(productId);
+    if (cached != null) {
+      if (!cached.isExpired(now)) {
+        cached.touch(now);
+        hits.increment();
+        return Optional.of(cached.getEntity());
+      }
+      entries.remove(productId, cached);
+    }
+
+    long stamp = invalidations.get();
+    ProductEntity restoredEntity = restore(productId, now);
+    if (restoredEntity != null) {
+      restores.increment();
+      put(restoredEntity, stamp, now, restorableUntil);
+      return Optional.of(restoredEntity);
+    }
+
+    misses.increment();
+    Optional<ProductEntity> loaded = repository.findByProductId(productId);
+    loaded.ifPresent(entity -> put(entity, stamp, now));
+    return loaded;
+  }
+
+  /* INFO: The increment runs under the same segment lock as the put in put(), so a product loaded before its invalidation can never be stored after it. */
+  public void invalidate(int productId) {
+
+    entries.compute(productId, (key, current) -> {
+      invalidations.incrementAndGet();
+      return null;
+    });
+    restorable.remove(productId);
+    LOG.debug("invalidate: dropped cached product for productId: {}", productId);
+  }
+
+  public void clear() {
+
+    invalidations.incrementAndGet();
+    entries.clear();
+    dropRestored();
+  }
+
+  public int size() {
+
+    return entries.size();
+  }
+
+  /**
+   * Preloads the cache from the repository when the application is ready, page by page until the cache is full, so
+   * the first requests after a restart do not all go to the database.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+
+    if (!enabled || !warmUpOnStartup) {
+      return;
+    }
+
+    long start = System.currentTimeMillis();
+    long stamp = invalidations.get();
+    Page<ProductEntity> page;
+    int pageNumber = 0;
+    do {
+      page = repository.findAll(PageRequest.of(pageNumber++, WARM_UP_PAGE_SIZE));
+      page.forEach(entity -> put(entity, stamp, start));
+    } while (page.hasNext() && entries.size() < maxEntries);
+
+    LOG.info("warmUp: loaded {} products into the cache in {} ms", entries.size(), System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Maps the snapshot of the last run, if there is one, and keeps those of its products whose id, version, name and
+   * weight are still current. Each batch of productIds costs one query for these fields only, the products themselves
+   * are read from the mapped file on their first request.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void restoreSnapshot() {
+
+    if (!enabled || snapshotFile == null || !Files.isReadable(snapshotFile)) {
+      return;
+    }
+
+    long start = System.currentTimeMillis();
+    ProductCacheSnapshot snapshot;
+    try {
+      snapshot = ProductCacheSnapshot.open(snapshotFile);
+    } catch (IOException ioe) {
+      LOG.warn("restoreSnapshot: ignores the unreadable snapshot {}: {}", snapshotFile, ioe.toString());
+      return;
+    }
+
+    int[] productIds = snapshot.productIds();
+    try {
+      for (int from = 0; from < productIds.length; from += WARM_UP_PAGE_SIZE) {
+        List<Integer> batch = Arrays.stream(productIds, from, Math.min(from + WARM_UP_PAGE_SIZE, productIds.length)).boxed().collect(Collectors.toList());
+        long stamp = invalidations.get();
+        for (ProductEntity current : repository.findVersionsByProductIdIn(batch)) {
+          ProductEntity stored = snapshot.read(current.getProductId());
+          if (isCurrent(stored, current)) {
+            restorable.put(current.getProductId(), Boolean.TRUE);
+          }
+        }
+        /* INFO: A product invalidated while its version was read may have been read before the change, so the batch is discarded. */
+        if (invalidations.get() != stamp) {
+          batch.forEach(restorable::remove);
+        }
+      }
+    } catch (RuntimeException re) {
+      restorable.clear();
+      LOG.warn("restoreSnapshot: could not check the snapshot {}, starts with an empty cache: {}", snapshotFile, re.toString());
+      return;
+    }
+
+    restorableUntil = start + ttlMillis;
+    restored = snapshot;
+    LOG.info("restoreSnapshot: {} of {} products in {} are current, checked in {} ms", restorable.size(), productIds.length, snapshotFile, System.currentTimeMillis() - start);
+  }
+
+  /* INFO: The version alone is not enough, a product that was deleted and created again starts over at version 0, and in the "keyed-id" layout its id is its productId. */
+  private static boolean isCurrent(ProductEntity stored, ProductEntity current) {
+
+    return stored.getId().equals(current.getId())
+        && stored.getVersion().equals(current.getVersion())
+        && Objects.equals(stored.getName(), current.getName())
+        && stored.getWeight() == current.getWeight();
+  }
+
+  /**
+   * Writes the most recently used products to the snapshot file, unless the cache is empty.
+   */
+  public void writeSnapshot() {
+
+    if (!enabled || snapshotFile == null) {
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    List<ProductEntity> hottest = entries.values().stream()
+        .filter(cached -> !cached.isExpired(now))
+        .sorted(Comparator.comparingLong(CachedProduct::getLastAccess).reversed())
+        .limit(snapshotMaxEntries)
+        .map(CachedProduct::getEntity)
+        .collect(Collectors.toList());
+    if (hottest.isEmpty()) {
+      return;
+    }
+
+    try {
+      ProductCacheSnapshot.write(snapshotFile, hottest);
+      LOG.debug("writeSnapshot: wrote {} products to {}", hottest.size(), snapshotFile);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("writeSnapshot: could not write the snapshot {}: {}", snapshotFile, e.toString());
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+
+    if (snapshotExecutor != null) {
+      snapshotExecutor.shutdownNow();
+    }
+    writeSnapshot();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+
+    Gauge.builder("product.cache.size", entries, ConcurrentIntObjectMap::size).register(registry);
+    FunctionCounter.builder("product.cache.requests", hits, LongAdder::sum).tag("result", "hit").register(registry);
+    FunctionCounter.builder("product.cache.requests", misses, LongAdder::sum).tag("result", "miss").register(registry);
+    FunctionCounter.builder("product.cache.requests", restores, LongAdder::sum).tag("result", "snapshot").register(registry);
+    FunctionCounter.builder("product.cache.evictions", evictions, LongAdder::sum).register(registry);
+  }
+
+  private void put(ProductEntity entity, long stamp, long now) {
+
+    put(entity, stamp, now, now + ttlMillis);
+  }
+
+  private void put(ProductEntity entity, long stamp, long now, long expiresAt) {
+
+    if (entries.size() >= maxEntries && !entries.containsKey(entity.getProductId())) {
+      evictOne(now);
+    }
+
+    CachedProduct cached = new CachedProduct(entity, expiresAt, now);
+    entries.compute(entity.getProductId(), (key, current) -> invalidations.get() == stamp ? cached : current);
+  }
+
+  /**
+   * Takes the product from the restored snapshot, at most once, or returns null. A restored product expires like one
+   * loaded from the database when its version was checked.
+   */
+  private ProductEntity restore(int productId, long now) {
+
+    ProductCacheSnapshot snapshot = restored;
+    if (snapshot == null) {
+      return null;
+    }
+    if (now >= restorableUntil) {
+      dropRestored();
+      return null;
+    }
+    if (restorable.remove(productId) == null) {
+      return null;
+    }
+
+    try {
+      return snapshot.read(productId);
+    } catch (RuntimeException re) {
+      LOG.warn("restore: ignores the snapshot of productId: {}: {}", productId, re.toString());
+      return null;
+    }
+  }
+
+  private void dropRestored() {
+
+    restored = null;
+    restorable.clear();
+  }
+
+  /**
+   * Evicts an expired entry if one is sampled, else the least recently used of the sampled entries.
+   */
+  private void evictOne(long now) {
+
+    int[] victim = new int[1];
+    CachedProduct[] candidate = new CachedProduct[1];
+    entries.sample(EVICTION_SAMPLES, (productId, cached) -> {
+      if (candidate[0] == null || evictionRank(cached, now) < evictionRank(candidate[0], now)) {
+        victim[0] = productId;
+        candidate[0] = cached;
+      }
+    });
+
+    if (candidate[0] != null && entries.remove(victim[0], candidate[0])) {
+      evictions.increment();
+    }
+  }
+
+  private static long evictionRank(CachedProduct cached, long now) {
+
+    return cached.isExpired(now) ? Long.MIN_VALUE : cached.getLastAccess();
+  }
+}
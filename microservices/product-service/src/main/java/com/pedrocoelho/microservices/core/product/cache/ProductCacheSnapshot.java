@@ -0,0 +1,85 @@
+package com.pedrocoelho.microservices.core.product.cache;
+
+import com.pedrocoelho.microservices.core.product.repository.ProductEntity;
+import com.pedrocoelho.util.snapshot.MappedSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/* INFO: The products of ProductCache in a MappedSnapshot, one record of id, version, name and weight per productId. Records are decoded on demand, so opening a snapshot reads its index only. */
+class ProductCacheSnapshot {
+
+  private final MappedSnapshot snapshot;
+
+  private ProductCacheSnapshot(MappedSnapshot snapshot) {
+
+    this.snapshot = snapshot;
+  }
+
+  static void write(Path file, Collection<ProductEntity> entities) throws IOException {
+
+    Map<Integer, byte[]> records = new HashMap<>();
+    for (ProductEntity entity : entities) {
+      records.put(entity.getProductId(), encode(entity));
+    }
+    MappedSnapshot.write(file, records);
+  }
+
+  static ProductCacheSnapshot open(Path file) throws IOException {
+
+    return new ProductCacheSnapshot(MappedSnapshot.open(file));
+  }
+
+  int[] productIds() {
+
+    return snapshot.keys();
+  }
+
+  /**
+   * @return the product as it was when the snapshot was written, or null if it is not in the snapshot
+   */
+  ProductEntity read(int productId) {
+
+    byte[] record = snapshot.get(productId);
+    return record == null ? null : decode(productId, record);
+  }
+
+  private static byte[] encode(ProductEntity entity) {
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeUTF(entity.getId());
+      out.writeInt(entity.getVersion());
+      out.writeBoolean(entity.getName() != null);
+      out.writeUTF(entity.getName() == null ? "" : entity.getName());
+      out.writeInt(entity.getWeight());
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static ProductEntity decode(int productId, byte[] record) {
+
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+      String id = in.readUTF();
+      int version = in.readInt();
+      boolean hasName = in.readBoolean();
+      String name = in.readUTF();
+      ProductEntity entity = new ProductEntity(productId, hasName ? name : null, in.readInt());
+      entity.setId(id);
+      entity.setVersion(version);
+      return entity;
+    } catch (IOException ioe) {
+      throw new UncheckedIOException("Corrupt snapshot record of productId: " + productId, ioe);
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package com.pedrocoelho.microservices.core.product.repository;
+
+import com.pedrocoelho.util.collections.ConcurrentIntObjectMap;
+import org.bson.types.ObjectId;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * A ProductRepository that keeps the products in memory, used by the "inmemory" profile to run the service without
+ * MongoDB, e.g. for benchmarks of the web and service layers and for load tests.
+ * <p>
+ * It behaves like the MongoDB repository where the service relies on it: productId is unique, the version field is
+ * used for optimistic locking, and entities are copied on the way in and out, so callers never share state with the
+ * store. Reads are lock-free; writes are serialized so that both indexes are always updated together.
+ */
+@Repository
+@Profile("inmemory")
+public class InMemoryProductRepository implements ProductRepository {
+
+  private final ConcurrentIntObjectMap<ProductEntity> byProductId = new ConcurrentIntObjectMap<>();
+  private final Map<String, ProductEntity> byId = new ConcurrentHashMap<>();
+
+  @Override
+  public Optional<ProductEntity> findByProductId(int productId) {
+
+    return Optional.ofNullable(byProductId.get(productId)).map(InMemoryProductRepository::copy);
+  }
+
+  @Override
+  public List<ProductEntity> findVersionsByProductIdIn(Collection<Integer> productIds) {
+
+    return productIds.stream()
+        .map(byProductId::get)
+        .filter(Objects::nonNull)
+        .map(InMemoryProductRepository::copy)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public synchronized <S extends ProductEntity> S save(S entity) {
+
+    boolean isNew = entity.getVersion() == null;
+    ProductEntity stored = entity.getId() == null ? null : byId.get(entity.getId());
+
+    if (isNew && stored != null) {
+      throw new DuplicateKeyException("Duplicate key, id: " + entity.getId());
+    }
+    if (!isNew && (stored == null || !stored.getVersion().equals(entity.getVersion()))) {
+      throw new OptimisticLockingFailureException("Cannot save entity " + entity.getId() + " with version " + entity.getVersion() + ". Has it been modified meanwhile?");
+    }
+
+    ProductEntity sameProductId = byProductId.get(entity.getProductId());
+    if (sameProductId != null && sameProductId != stored) {
+      throw new DuplicateKeyException("Duplicate key, productId: " + entity.getProductId());
+    }
+
+    if (isNew) {
+      if (entity.getId() == null) {
+        entity.setId(new ObjectId().toHexString());
+      }
+      entity.setVersion(0);
+    } else {
+      entity.setVersion(entity.getVersion() + 1);
+      if (stored.getProductId() != entity.getProductId()) {
+        byProductId.remove(stored.getProductId());
+      }
+    }
+
+    ProductEntity copy = copy(entity);
+    byId.put(copy.getId(), copy);
+    byProductId.put(copy.getProductId(), copy);
+    return entity;
+  }
+
+  @Override
+  public <S extends ProductEntity> Iterable<S> saveAll(Iterable<S> entities) {
+
+    List<S> saved = new ArrayList<>();
+    entities.forEach(e -> saved.add(save(e)));
+    return saved;
+  }
+
+  @Override
+  public Optional<ProductEntity> findById(String id) {
+
+    return Optional.ofNullable(byId.get(id)).map(InMemoryProductRepository::copy);
+  }
+
+  @Override
+  public boolean existsById(String id) {
+
+    return byId.containsKey(id);
+  }
+
+  @Override
+  public Iterable<ProductEntity> findAll() {
+
+    return findAll(Sort.unsorted());
+  }
+
+  @Override
+  public Iterable<ProductEntity> findAllById(Iterable<String> ids) {
+
+    List<ProductEntity> found = new ArrayList<>();
+    ids.forEach(id -> findById(id).ifPresent(found::add));
+    return found;
+  }
+
+  @Override
+  public List<ProductEntity> findAll(Sort sort) {
+
+    return byId.values().stream()
+        .sorted(comparator(sort))
+        .map(InMemoryProductRepository::copy)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public Page<ProductEntity> findAll(Pageable pageable) {
+
+    List<ProductEntity> all = findAll(pageable.getSort());
+    if (pageable.isUnpaged()) {
+      return new PageImpl<>(all);
+    }
+
+    int from = (int) Math.min(pageable.getOffset(), all.size());
+    int to = Math.min(from + pageable.getPageSize(), all.size());
+    return new PageImpl<>(all.subList(from, to), pageable, all.size());
+  }
+
+  @Override
+  public long count() {
+
+    return byId.size();
+  }
+
+  @Override
+  public synchronized void deleteById(String id) {
+
+    ProductEntity stored = byId.remove(id);
+    if (stored != null) {
+      byProductId.remove(stored.getProductId(), stored);
+    }
+  }
+
+  /* INFO: Like the MongoDB repository, a versioned entity is only deleted if it has not been modified since it was read. */
+  @Override
+  public synchronized void delete(ProductEntity entity) {
+
+    ProductEntity stored = byId.get(entity.getId());
+    if (entity.getVersion() != null && (stored == null || !stored.getVersion().equals(entity.getVersion()))) {
+      throw new OptimisticLockingFailureException("The entity with id " + entity.getId() + " with version " + entity.getVersion() + " was already deleted or modified meanwhile");
+    }
+    deleteById(entity.getId());
+  }
+
+  @Override
+  public void deleteAllById(Iterable<? extends String> ids) {
+
+    ids.forEach(this::deleteById);
+  }
+
+  @Override
+  public void deleteAll(Iterable<? extends ProductEntity> entities) {
+
+    entities.forEach(this::delete);
+  }
+
+  @Override
+  public synchronized void deleteAll() {
+
+    byId.clear();
+    byProductId.clear();
+  }
+
+  private static Comparator<ProductEntity> comparator(Sort sort) {
+
+    Comparator<ProductEntity> comparator = (a, b) -> 0;
+    for (Sort.Order order : sort) {
+      comparator = comparator.thenComparing(new PropertyComparator<>(order.getProperty(), order.isIgnoreCase(), order.isAscending()));
+    }
+    return comparator;
+  }
+
+  private static ProductEntity copy(ProductEntity entity) {
+
+    ProductEntity copy = new ProductEntity(entity.getProductId(), entity.getName(), entity.getWeight());
+    copy.setId(entity.getId());
+    copy.setVersion(entity.getVersion());
+    return copy;
+  }
+}
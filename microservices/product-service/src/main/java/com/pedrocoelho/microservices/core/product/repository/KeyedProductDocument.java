@@ -0,0 +1,59 @@
+package com.pedrocoelho.microservices.core.product.repository;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/* INFO: The storage layout of the "keyed-id" profile, the productId is the _id of the document. MongoDB's mandatory _id index is the only index, so there is no secondary productId index to look up and to maintain on inserts. */
+@Document(collection = KeyedProductDocument.COLLECTION)
+public class KeyedProductDocument {
+  public static final String COLLECTION = "products_by_product_id";
+
+  @Id
+  private int productId;
+  @Version
+  private Integer version;
+  private String name;
+  private int weight;
+
+  public KeyedProductDocument() {}
+
+  public KeyedProductDocument(int productId, Integer version, String name, int weight) {
+    this.productId = productId;
+    this.version = version;
+    this.name = name;
+    this.weight = weight;
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public void setProductId(int productId) {
+    this.productId = productId;
+  }
+
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public int getWeight() {
+    return weight;
+  }
+
+  public void setWeight(int weight) {
+    this.weight = weight;
+  }
+}
@@ -0,0 +1,136 @@
+package com.pedrocoelho.microservices.core.product.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies the products of the default layout, the "products" collection, into the KeyedProductDocument layout of the
+ * "keyed-id" profile. Products that already exist in the new layout are left unchanged, so the migration can be run
+ * again, e.g. to pick up products created while it was running. The source collection is never modified.
+ * <p>
+ * Run it as a one-off, e.g. java -jar product-service.jar --app.product.keyed-id-migration.enabled=true, the
+ * application exits when the migration is done, with exit code 1 if it failed. Switch the instances to the
+ * "keyed-id" profile once it has succeeded, then run it once more and drop the "products" collection.
+ */
+@Component
+@Profile("!inmemory")
+public class KeyedProductMigration {
+
+  private static final Logger LOG = LoggerFactory.getLogger(KeyedProductMigration.class);
+  private static final int DUPLICATE_KEY = 11000;
+
+  public static class Result {
+    private final long copied;
+    private final long skipped;
+
+    public Result(long copied, long skipped) {
+      this.copied = copied;
+      this.skipped = skipped;
+    }
+
+    public long getCopied() {
+      return copied;
+    }
+
+    public long getSkipped() {
+      return skipped;
+    }
+  }
+
+  private final MongoOperations mongoTemplate;
+  private final ApplicationContext context;
+  private final boolean enabled;
+  private final int batchSize;
+
+  @Autowired
+  public KeyedProductMigration(
+      MongoOperations mongoTemplate,
+      ApplicationContext context,
+      @Value("${app.product.keyed-id-migration.enabled:false}") boolean enabled,
+      @Value("${app.product.keyed-id-migration.batch-size:1000}") int batchSize) {
+
+    this.mongoTemplate = mongoTemplate;
+    this.context = context;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void migrateAndExit() {
+
+    if (!enabled) {
+      return;
+    }
+
+    int exitCode = 0;
+    try {
+      migrate();
+    } catch (RuntimeException ex) {
+      LOG.error("migrate: failed, products copied so far are kept, run the migration again", ex);
+      exitCode = 1;
+    }
+    int status = exitCode;
+    System.exit(SpringApplication.exit(context, () -> status));
+  }
+
+  public Result migrate() {
+
+    long start = System.currentTimeMillis();
+    long copied = 0;
+    long skipped = 0;
+
+    try (CloseableIterator<ProductEntity> products = mongoTemplate.stream(new Query().with(Sort.by("productId")), ProductEntity.class)) {
+      List<KeyedProductDocument> batch = new ArrayList<>(batchSize);
+      while (products.hasNext()) {
+        ProductEntity product = products.next();
+        batch.add(new KeyedProductDocument(product.getProductId(), product.getVersion(), product.getName(), product.getWeight()));
+        if (batch.size() == batchSize || !products.hasNext()) {
+          long inserted = insert(batch);
+          copied += inserted;
+          skipped += batch.size() - inserted;
+          batch.clear();
+        }
+      }
+    }
+
+    long source = mongoTemplate.count(new Query(), ProductEntity.class);
+    long target = mongoTemplate.count(new Query(), KeyedProductDocument.class);
+    LOG.info("migrate: copied {} products, {} already existed, in {} ms; {} products in {}, {} in {}",
+        copied, skipped, System.currentTimeMillis() - start,
+        source, mongoTemplate.getCollectionName(ProductEntity.class), target, KeyedProductDocument.COLLECTION);
+    return new Result(copied, skipped);
+  }
+
+  /* INFO: Unordered, so a product that already exists does not stop the rest of the batch. */
+  private long insert(List<KeyedProductDocument> batch) {
+
+    try {
+      return mongoTemplate.bulkOps(BulkMode.UNORDERED, KeyedProductDocument.class).insert(batch).execute().getInsertedCount();
+    } catch (BulkOperationException ex) {
+      for (BulkWriteError error : ex.getErrors()) {
+        if (error.getCode() != DUPLICATE_KEY) {
+          throw ex;
+        }
+      }
+      return ex.getResult().getInsertedCount();
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package com.pedrocoelho.microservices.core.product.repository;
+
+import com.mongodb.client.result.DeleteResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * A ProductRepository on the KeyedProductDocument layout, used by the "keyed-id" profile. findByProductId is a fetch
+ * by _id and inserts maintain a single index.
+ * <p>
+ * The entities it returns carry the productId as their id, so findById and deleteById take the productId as a
+ * string. Duplicate productIds and concurrent updates fail with DuplicateKeyException and
+ * OptimisticLockingFailureException, as with the Spring Data repository on the default layout.
+ */
+@Repository
+@Profile("keyed-id")
+public class KeyedProductRepository implements ProductRepository {
+
+  private static final String ID = "_id";
+
+  private final MongoOperations mongoTemplate;
+
+  @Autowired
+  public KeyedProductRepository(MongoOperations mongoTemplate) {
+
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public Optional<ProductEntity> findByProductId(int productId) {
+
+    return Optional.ofNullable(mongoTemplate.findById(productId, KeyedProductDocument.class)).map(KeyedProductRepository::toEntity);
+  }
+
+  @Override
+  public List<ProductEntity> findVersionsByProductIdIn(Collection<Integer> productIds) {
+
+    Query query = new Query(where(ID).in(productIds));
+    query.fields().include("version", "name", "weight");
+    return find(query);
+  }
+
+  /* INFO: MongoTemplate inserts a document without version and updates the others only if their version is unchanged. */
+  @Override
+  public <S extends ProductEntity> S save(S entity) {
+
+    KeyedProductDocument saved = mongoTemplate.save(toDocument(entity));
+    entity.setId(String.valueOf(saved.getProductId()));
+    entity.setVersion(saved.getVersion());
+    return entity;
+  }
+
+  @Override
+  public <S extends ProductEntity> Iterable<S> saveAll(Iterable<S> entities) {
+
+    List<S> saved = new ArrayList<>();
+    entities.forEach(e -> saved.add(save(e)));
+    return saved;
+  }
+
+  @Override
+  public Optional<ProductEntity> findById(String id) {
+
+    return productId(id).flatMap(this::findByProductId);
+  }
+
+  @Override
+  public boolean existsById(String id) {
+
+    return productId(id).map(productId -> mongoTemplate.exists(byProductId(productId), KeyedProductDocument.class)).orElse(false);
+  }
+
+  @Override
+  public Iterable<ProductEntity> findAll() {
+
+    return findAll(Sort.unsorted());
+  }
+
+  @Override
+  public Iterable<ProductEntity> findAllById(Iterable<String> ids) {
+
+    List<Integer> productIds = new ArrayList<>();
+    ids.forEach(id -> productId(id).ifPresent(productIds::add));
+    return find(new Query(where(ID).in(productIds)));
+  }
+
+  @Override
+  public List<ProductEntity> findAll(Sort sort) {
+
+    return find(new Query().with(toDocumentSort(sort)));
+  }
+
+  @Override
+  public Page<ProductEntity> findAll(Pageable pageable) {
+
+    Query query = new Query().with(toDocumentSort(pageable.getSort()));
+    if (pageable.isPaged()) {
+      query.skip(pageable.getOffset()).limit(pageable.getPageSize());
+    }
+    return PageableExecutionUtils.getPage(find(query), pageable, this::count);
+  }
+
+  @Override
+  public long count() {
+
+    return mongoTemplate.count(new Query(), KeyedProductDocument.class);
+  }
+
+  @Override
+  public void deleteById(String id) {
+
+    productId(id).ifPresent(productId -> mongoTemplate.remove(byProductId(productId), KeyedProductDocument.class));
+  }
+
+  /* INFO: Like the Spring Data repository, a versioned entity is only deleted if it has not been modified since it was read. */
+  @Override
+  public void delete(ProductEntity entity) {
+
+    DeleteResult result = mongoTemplate.remove(toDocument(entity));
+    if (entity.getVersion() != null && result.wasAcknowledged() && result.getDeletedCount() == 0) {
+      throw new OptimisticLockingFailureException("The entity with id " + entity.getProductId() + " with version " + entity.getVersion() + " was already deleted or modified meanwhile");
+    }
+  }
+
+  @Override
+  public void deleteAllById(Iterable<? extends String> ids) {
+
+    ids.forEach(this::deleteById);
+  }
+
+  @Override
+  public void deleteAll(Iterable<? extends ProductEntity> entities) {
+
+    entities.forEach(this::delete);
+  }
+
+  @Override
+  public void deleteAll() {
+
+    mongoTemplate.remove(new Query(), KeyedProductDocument.class);
+  }
+
+  private List<ProductEntity> find(Query query) {
+
+    return mongoTemplate.find(query, KeyedProductDocument.class).stream()
+        .map(KeyedProductRepository::toEntity)
+        .collect(Collectors.toList());
+  }
+
+  private static Query byProductId(int productId) {
+
+    return new Query(where(ID).is(productId));
+  }
+
+  private static Optional<Integer> productId(String id) {
+
+    try {
+      return Optional.of(Integer.parseInt(id));
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+  }
+
+  /* INFO: The id of the entities is the productId, which the document maps to _id. */
+  private static Sort toDocumentSort(Sort sort) {
+
+    return Sort.by(sort.stream()
+        .map(order -> order.getProperty().equals("id") ? order.withProperty("productId") : order)
+        .collect(Collectors.toList()));
+  }
+
+  private static ProductEntity toEntity(KeyedProductDocument document) {
+
+    ProductEntity entity = new ProductEntity(document.getProductId(), document.getName(), document.getWeight());
+    entity.setId(String.valueOf(document.getProductId()));
+    entity.setVersion(document.getVersion());
+    return entity;
+  }
+
+  private static KeyedProductDocument toDocument(ProductEntity entity) {
+
+    return new KeyedProductDocument(entity.getProductId(), entity.getVersion(), entity.getName(), entity.getWeight());
+  }
+}
@@ -0,0 +1,35 @@
+package com.pedrocoelho.microservices.core.product.repository;
+
+import com.pedrocoelho.util.startup.MongoIndexHealthIndicator;
+import com.pedrocoelho.util.startup.MongoIndexProvisioner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.time.Duration;
+
+/* INFO: The indexes are those declared on ProductEntity, or on KeyedProductDocument with the "keyed-id" profile. The unique index on productId backs the duplicated key error. */
+@Configuration
+@Profile("!inmemory")
+public class MongoIndexConfiguration {
+
+  @Bean
+  public MongoIndexProvisioner mongoIndexProvisioner(
+      MongoOperations mongoTemplate,
+      Environment environment,
+      @Value("${app.mongodb.index-provisioning.retry-interval:10s}") Duration retryInterval) {
+
+    Class<?> documentClass = environment.acceptsProfiles(Profiles.of("keyed-id")) ? KeyedProductDocument.class : ProductEntity.class;
+    return new MongoIndexProvisioner(mongoTemplate, retryInterval, documentClass);
+  }
+
+  @Bean
+  public MongoIndexHealthIndicator mongoIndexHealthIndicator(MongoIndexProvisioner mongoIndexProvisioner) {
+
+    return new MongoIndexHealthIndicator(mongoIndexProvisioner);
+  }
+}
@@ -1,9 +1,17 @@
 package com.pedrocoelho.microservices.core.product.repository;
 
 
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProductRepository extends PagingAndSortingRepository<ProductEntity, String> {
   Optional<ProductEntity> findByProductId(int productId);
+
+  /* INFO: Returns the products with only id, version, productId, name and weight set, to check copies of them, e.g. in the snapshot of ProductCache, against their current state. */
+  @Query(value = "{ 'productId': { $in: ?0 } }", fields = "{ 'productId': 1, 'version': 1, 'name': 1, 'weight': 1 }")
+  List<ProductEntity> findVersionsByProductIdIn(Collection<Integer> productIds);
 }
@@ -4,6 +4,7 @@ import com.pedrocoelho.api.core.product.Product;
 import com.pedrocoelho.api.core.product.ProductService;
 import com.pedrocoelho.api.exceptions.InvalidInputException;
 import com.pedrocoelho.api.exceptions.NotFoundException;
+import com.pedrocoelho.microservices.core.product.cache.ProductCache;
 import com.pedrocoelho.microservices.core.product.repository.ProductEntity;
 import com.pedrocoelho.microservices.core.product.repository.ProductRepository;
 import com.pedrocoelho.util.http.ServiceUtil;
@@ -19,12 +20,14 @@ public class ProductServiceImpl implements ProductService {
   private final ServiceUtil serviceUtil;
   private final ProductRepository repository;
   private final ProductMapper mapper;
+  private final ProductCache cache;
 
   @Autowired
-  public ProductServiceImpl(ProductRepository repository, ProductMapper mapper, ServiceUtil serviceUtil) {
+  public ProductServiceImpl(ProductRepository repository, ProductMapper mapper, ServiceUtil serviceUtil, ProductCache cache) {
     this.repository = repository;
     this.mapper = mapper;
     this.serviceUtil = serviceUtil;
+    this.cache = cache;
   }
 
   @Override
@@ -32,6 +35,7 @@ public class ProductServiceImpl implements ProductService {
     try {
       ProductEntity entity = mapper.modelToEntity(body);
       ProductEntity newEntity = repository.save(entity);
+      cache.invalidate(body.getProductId());
 
       LOG.debug("createProduct: entity created for productId: {}", body.getProductId());
       return mapper.entityToModel(newEntity);
@@ -47,7 +51,7 @@ public class ProductServiceImpl implements ProductService {
       throw new InvalidInputException("Invalid productId: " + productId);
     }
 
-    ProductEntity entity = repository.findByProductId(productId)
+    ProductEntity entity = cache.findByProductId(productId)
         .orElseThrow(() -> new NotFoundException("No product found for productId: " + productId));
 
     Product response = mapper.entityToModel(entity);
@@ -62,5 +66,6 @@ public class ProductServiceImpl implements ProductService {
   public void deleteProduct(int productId) {
     LOG.debug("deleteProduct: tries to delete an entity with productId: {}", productId);
     repository.findByProductId(productId).ifPresent(e -> repository.delete(e));
+    cache.invalidate(productId);
   }
 }
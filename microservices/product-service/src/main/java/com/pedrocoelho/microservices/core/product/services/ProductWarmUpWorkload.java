@@ -0,0 +1,31 @@
+package com.pedrocoelho.microservices.core.product.services;
+
+import com.pedrocoelho.api.core.product.Product;
+import com.pedrocoelho.util.startup.WarmUpWorkload;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/* INFO: Creates, reads and deletes a product through the HTTP API, so the warm-up covers the controller, the mapper, the cache and the repository in the mix of real traffic, which is mostly reads. */
+@Component
+public class ProductWarmUpWorkload implements WarmUpWorkload {
+
+  private static final int READS_PER_RUN = 4;
+
+  @Override
+  public Mono<Void> run(WebClient client, int productId) {
+
+    return client.post().uri("/product").bodyValue(new Product(productId, "warm-up", 1, null))
+        .retrieve().toBodilessEntity()
+        .thenMany(Flux.range(0, READS_PER_RUN)
+            .concatMap(i -> client.get().uri("/product/{productId}", productId).retrieve().bodyToMono(Product.class)))
+        .then(cleanUp(client, productId));
+  }
+
+  @Override
+  public Mono<Void> cleanUp(WebClient client, int productId) {
+
+    return client.delete().uri("/product/{productId}", productId).retrieve().toBodilessEntity().then();
+  }
+}
@@ -0,0 +1,91 @@
+package com.pedrocoelho.microservices.core.product;
+
+import com.pedrocoelho.microservices.core.product.cache.ProductCache;
+import com.pedrocoelho.microservices.core.product.repository.InMemoryProductRepository;
+import com.pedrocoelho.microservices.core.product.repository.ProductEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static java.util.stream.IntStream.rangeClosed;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+/* INFO: Restarts ProductCache on the same snapshot file, with a spy on the repository to see which products are still read from it. */
+class CacheSnapshotTests {
+
+  @TempDir
+  Path dir;
+
+  private InMemoryProductRepository repository;
+  private String snapshotFile;
+
+  @BeforeEach
+  void setUp() {
+    repository = spy(new InMemoryProductRepository());
+    rangeClosed(1, 3).forEach(i -> repository.save(new ProductEntity(i, "n" + i, i)));
+    snapshotFile = dir.resolve("products.snapshot").toString();
+
+    ProductCache beforeRestart = cache();
+    rangeClosed(1, 3).forEach(beforeRestart::findByProductId);
+    beforeRestart.shutdown();
+  }
+
+  @Test
+  void onlyUnchangedProductsAreRestored() {
+    ProductEntity updated = repository.findByProductId(2).get();
+    updated.setName("n2b");
+    repository.save(updated);
+    repository.delete(repository.findByProductId(3).get());
+    repository.save(new ProductEntity(3, "n3b", 3));
+    clearInvocations(repository);
+
+    ProductCache afterRestart = cache();
+    afterRestart.restoreSnapshot();
+
+    assertEquals("n1", afterRestart.findByProductId(1).get().getName());
+    assertEquals("n2b", afterRestart.findByProductId(2).get().getName());
+    assertEquals("n3b", afterRestart.findByProductId(3).get().getName());
+    verify(repository, never()).findByProductId(1);
+    verify(repository).findByProductId(2);
+    verify(repository).findByProductId(3);
+  }
+
+  /* INFO: As in the "keyed-id" layout, where the id of a product is its productId. */
+  @Test
+  void productsCreatedAgainWithTheSameIdAreNotRestored() {
+    ProductEntity deleted = repository.findByProductId(3).get();
+    repository.delete(deleted);
+    ProductEntity createdAgain = new ProductEntity(3, "n3b", 3);
+    createdAgain.setId(deleted.getId());
+    repository.save(createdAgain);
+    clearInvocations(repository);
+
+    ProductCache afterRestart = cache();
+    afterRestart.restoreSnapshot();
+
+    assertEquals("n3b", afterRestart.findByProductId(3).get().getName());
+    verify(repository).findByProductId(3);
+  }
+
+  @Test
+  void invalidatedProductsAreNotRestored() {
+    clearInvocations(repository);
+
+    ProductCache afterRestart = cache();
+    afterRestart.restoreSnapshot();
+    afterRestart.invalidate(1);
+
+    afterRestart.findByProductId(1);
+    afterRestart.findByProductId(2);
+    verify(repository).findByProductId(1);
+    verify(repository, never()).findByProductId(2);
+  }
+
+  private ProductCache cache() {
+    return new ProductCache(repository, true, Duration.ofMinutes(5), 100, false, snapshotFile, Duration.ZERO, 100);
+  }
+}
@@ -0,0 +1,120 @@
+package com.pedrocoelho.microservices.core.product;
+
+import com.pedrocoelho.microservices.core.product.repository.InMemoryProductRepository;
+import com.pedrocoelho.microservices.core.product.repository.ProductEntity;
+import com.pedrocoelho.microservices.core.product.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.stream.IntStream.rangeClosed;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+import static org.springframework.data.domain.Sort.Direction.ASC;
+
+/* INFO: Runs without a database, the "inmemory" profile must start the application without MongoDB and give the same repository semantics that PersistenceTests verifies on MongoDB. */
+@SpringBootTest(webEnvironment = NONE)
+@ActiveProfiles("inmemory")
+class InMemoryPersistenceTests {
+
+  @Autowired
+  private ProductRepository repository;
+  private ProductEntity savedEntity;
+
+  @BeforeEach
+  void setupDb() {
+    repository.deleteAll();
+    savedEntity = repository.save(new ProductEntity(1, "n", 1));
+  }
+
+  @Test
+  void usesInMemoryRepository() {
+    assertInstanceOf(InMemoryProductRepository.class, repository);
+  }
+
+  @Test
+  void create() {
+    ProductEntity newEntity = new ProductEntity(2, "n", 2);
+    repository.save(newEntity);
+    ProductEntity foundEntity = repository.findById(newEntity.getId()).get();
+    assertEquals(0, foundEntity.getVersion());
+    assertEquals(newEntity.getName(), foundEntity.getName());
+    assertEquals(2, repository.count());
+  }
+
+  @Test
+  void update() {
+    savedEntity.setName("n2");
+    repository.save(savedEntity);
+    ProductEntity foundEntity = repository.findByProductId(1).get();
+    assertEquals(1, (long) foundEntity.getVersion());
+    assertEquals("n2", foundEntity.getName());
+  }
+
+  @Test
+  void delete() {
+    repository.delete(savedEntity);
+    assertFalse(repository.existsById(savedEntity.getId()));
+    assertTrue(repository.findByProductId(1).isEmpty());
+  }
+
+  @Test
+  void returnsCopies() {
+    repository.findByProductId(1).get().setName("changed");
+    assertEquals("n", repository.findByProductId(1).get().getName());
+  }
+
+  @Test
+  void duplicateError() {
+    assertThrows(DuplicateKeyException.class, () -> repository.save(new ProductEntity(savedEntity.getProductId(), "n", 1)));
+  }
+
+  @Test
+  void optimisticLockError() {
+    ProductEntity entity1 = repository.findById(savedEntity.getId()).get();
+    ProductEntity entity2 = repository.findById(savedEntity.getId()).get();
+
+    entity1.setName("n1");
+    repository.save(entity1);
+
+    assertThrows(OptimisticLockingFailureException.class, () -> {
+      entity2.setName("n2");
+      repository.save(entity2);
+    });
+
+    ProductEntity updatedEntity = repository.findById(savedEntity.getId()).get();
+    assertEquals(entity1.getVersion(), (int) updatedEntity.getVersion());
+    assertEquals(entity1.getName(), updatedEntity.getName());
+  }
+
+  @Test
+  void paging() {
+    repository.deleteAll();
+
+    List<ProductEntity> newProducts = rangeClosed(1001, 1010)
+        .mapToObj(i -> new ProductEntity(i, "name-" + i, i))
+        .collect(Collectors.toList());
+    repository.saveAll(newProducts);
+
+    Pageable nextPage = PageRequest.of(0, 4, ASC, "productId");
+    nextPage = testNextPage(nextPage, "[1001, 1002, 1003, 1004]");
+    nextPage = testNextPage(nextPage, "[1005, 1006, 1007, 1008]");
+    testNextPage(nextPage, "[1009, 1010]");
+  }
+
+  private Pageable testNextPage(Pageable nextPage, String expectedProductIds) {
+    Page<ProductEntity> productPage = repository.findAll(nextPage);
+    assertEquals(expectedProductIds, productPage.getContent().stream().map(p -> p.getProductId()).collect(Collectors.toList()).toString());
+    return productPage.nextPageable();
+  }
+}
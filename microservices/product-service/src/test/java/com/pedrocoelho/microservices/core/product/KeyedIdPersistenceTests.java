@@ -0,0 +1,123 @@
+package com.pedrocoelho.microservices.core.product;
+
+import com.pedrocoelho.microservices.core.product.repository.KeyedProductDocument;
+import com.pedrocoelho.microservices.core.product.repository.KeyedProductMigration;
+import com.pedrocoelho.microservices.core.product.repository.KeyedProductRepository;
+import com.pedrocoelho.microservices.core.product.repository.ProductEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.stream.IntStream.rangeClosed;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.data.domain.Sort.Direction.ASC;
+
+/* INFO: The repository and the migration on the layout of the "keyed-id" profile, where the productId is the _id of the document. */
+@DataMongoTest(excludeAutoConfiguration = EmbeddedMongoAutoConfiguration.class)
+@ActiveProfiles("keyed-id")
+@Import({KeyedProductRepository.class, KeyedProductMigration.class})
+class KeyedIdPersistenceTests extends MongoDbTestBase {
+
+  @Autowired
+  private KeyedProductRepository repository;
+
+  @Autowired
+  private KeyedProductMigration migration;
+
+  @Autowired
+  private MongoOperations mongoTemplate;
+
+  @BeforeEach
+  void setupDb() {
+    repository.deleteAll();
+    mongoTemplate.remove(new Query(), ProductEntity.class);
+  }
+
+  @Test
+  void createAndFind() {
+    ProductEntity saved = repository.save(new ProductEntity(1, "n", 1));
+
+    assertEquals("1", saved.getId());
+    assertEquals(0, (int) saved.getVersion());
+
+    ProductEntity found = repository.findByProductId(1).get();
+    assertEquals("n", found.getName());
+    assertEquals(found.getName(), repository.findById(saved.getId()).get().getName());
+    assertTrue(repository.findByProductId(2).isEmpty());
+    assertTrue(repository.findById("not-a-product-id").isEmpty());
+  }
+
+  @Test
+  void duplicateError() {
+    repository.save(new ProductEntity(1, "n", 1));
+
+    assertThrows(DuplicateKeyException.class, () -> repository.save(new ProductEntity(1, "n", 1)));
+  }
+
+  @Test
+  void optimisticLockError() {
+    repository.save(new ProductEntity(1, "n", 1));
+    ProductEntity entity1 = repository.findByProductId(1).get();
+    ProductEntity entity2 = repository.findByProductId(1).get();
+
+    entity1.setName("n1");
+    repository.save(entity1);
+
+    entity2.setName("n2");
+    assertThrows(OptimisticLockingFailureException.class, () -> repository.save(entity2));
+    assertThrows(OptimisticLockingFailureException.class, () -> repository.delete(entity2));
+
+    ProductEntity updated = repository.findByProductId(1).get();
+    assertEquals(1, (int) updated.getVersion());
+    assertEquals("n1", updated.getName());
+
+    repository.delete(updated);
+    assertFalse(repository.existsById("1"));
+  }
+
+  @Test
+  void paging() {
+    repository.saveAll(rangeClosed(1, 10).mapToObj(i -> new ProductEntity(11 - i, "n" + i, i)).collect(Collectors.toList()));
+
+    Page<ProductEntity> page = repository.findAll(PageRequest.of(1, 4, ASC, "productId"));
+
+    assertEquals("[5, 6, 7, 8]", page.getContent().stream().map(ProductEntity::getProductId).collect(Collectors.toList()).toString());
+    assertEquals(10, page.getTotalElements());
+    assertTrue(page.hasNext());
+  }
+
+  @Test
+  void migration() {
+    rangeClosed(1, 5).forEach(i -> mongoTemplate.insert(new ProductEntity(i, "n" + i, i)));
+    repository.save(new ProductEntity(3, "already migrated", 3));
+
+    KeyedProductMigration.Result result = migration.migrate();
+
+    assertEquals(4, result.getCopied());
+    assertEquals(1, result.getSkipped());
+    assertEquals(5, mongoTemplate.count(new Query(), KeyedProductDocument.class));
+    assertEquals("n5", repository.findByProductId(5).get().getName());
+    assertEquals("already migrated", repository.findByProductId(3).get().getName());
+
+    KeyedProductMigration.Result again = migration.migrate();
+    assertEquals(0, again.getCopied());
+    assertEquals(5, again.getSkipped());
+
+    List<ProductEntity> all = repository.findAll(Sort.by("id"));
+    assertEquals("1", all.get(0).getId());
+  }
+}
@@ -1,19 +1,23 @@
 package com.pedrocoelho.microservices.core.product;
 
 import com.pedrocoelho.microservices.core.product.MongoDbTestBase;
+import com.pedrocoelho.microservices.core.product.repository.MongoIndexConfiguration;
 import com.pedrocoelho.microservices.core.product.repository.ProductEntity;
 import com.pedrocoelho.microservices.core.product.repository.ProductRepository;
+import com.pedrocoelho.util.startup.MongoIndexProvisioner;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -23,15 +27,21 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.data.domain.Sort.Direction.ASC;
 
 /* INFO: The @DataMongoTest annotation is designed to start an embedded database by default. Since we want to use a containerized database, we have to disable this feature. */
+/* INFO: The indexes are created by MongoIndexProvisioner, declared in MongoIndexConfiguration, which is not part of a @DataMongoTest slice by default. */
 @DataMongoTest(excludeAutoConfiguration = EmbeddedMongoAutoConfiguration.class)
+@Import(MongoIndexConfiguration.class)
 class PersistenceTests extends MongoDbTestBase {
 
   @Autowired
   private ProductRepository repository;
   private ProductEntity savedEntity;
 
+  @Autowired
+  private MongoIndexProvisioner indexProvisioner;
+
   @BeforeEach
-  void setupDb() {
+  void setupDb() throws InterruptedException {
+    assertTrue(indexProvisioner.awaitProvisioned(Duration.ofSeconds(30)));
     repository.deleteAll();
     ProductEntity entity = new ProductEntity(1, "n", 1);
     savedEntity = repository.save(entity);
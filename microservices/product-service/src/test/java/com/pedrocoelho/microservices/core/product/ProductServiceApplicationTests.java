@@ -1,7 +1,9 @@
 package com.pedrocoelho.microservices.core.product;
 
 import com.pedrocoelho.api.core.product.Product;
+import com.pedrocoelho.microservices.core.product.cache.ProductCache;
 import com.pedrocoelho.microservices.core.product.repository.ProductRepository;
+import com.pedrocoelho.util.startup.MongoIndexProvisioner;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +11,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.time.Duration;
+
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
@@ -23,9 +27,15 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
 
   @Autowired private ProductRepository repository;
 
+  @Autowired private ProductCache cache;
+
+  @Autowired private MongoIndexProvisioner indexProvisioner;
+
   @BeforeEach
-  void setupDb() {
+  void setupDb() throws InterruptedException {
+    assertTrue(indexProvisioner.awaitProvisioned(Duration.ofSeconds(30)));
     repository.deleteAll();
+    cache.clear();
   }
 
   @Test
@@ -40,6 +50,34 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
     getAndVerifyProduct(productId, OK).jsonPath("$.productId").isEqualTo(productId);
   }
 
+  @Test
+  void getProductByIdFromCache() {
+
+    int productId = 1;
+
+    postAndVerifyProduct(productId, OK);
+    getAndVerifyProduct(productId, OK);
+
+    /* INFO: Removed behind the back of the service, the product is still served from the cache until it is deleted through the API. */
+    repository.deleteAll();
+    getAndVerifyProduct(productId, OK).jsonPath("$.productId").isEqualTo(productId);
+
+    deleteAndVerifyProduct(productId, OK);
+    getAndVerifyProduct(productId, NOT_FOUND);
+  }
+
+  @Test
+  void readyOnceIndexesAreProvisioned() {
+
+    client.get()
+        .uri("/actuator/health/readiness")
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.status").isEqualTo("UP");
+  }
+
   @Test
   void duplicateError() {
 
@@ -1,22 +1,12 @@
 package com.pedrocoelho.microservices.core.recommendation;
 
-import com.pedrocoelho.microservices.core.recommendation.repository.RecommendationEntity;
+import com.mongodb.client.MongoClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.ComponentScan;
-import org.springframework.context.event.ContextRefreshedEvent;
-import org.springframework.context.event.EventListener;
-import org.springframework.data.mapping.context.MappingContext;
-import org.springframework.data.mongodb.core.MongoOperations;
-import org.springframework.data.mongodb.core.index.IndexOperations;
-import org.springframework.data.mongodb.core.index.IndexResolver;
-import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
-import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
-import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
 
 @SpringBootApplication
 @ComponentScan("com.pedrocoelho")
@@ -26,21 +16,11 @@ public class RecommendationServiceApplication {
 
 	public static void main(String[] args) {
 		ConfigurableApplicationContext ctx = SpringApplication.run(RecommendationServiceApplication.class, args);
-		String mongoDbHost = ctx.getEnvironment().getProperty("spring.data.mongodb.host");
-		String mongoDbPort = ctx.getEnvironment().getProperty("spring.data.mongodb.port");
-		LOG.info("Connected to MongoDB: {}:{}", mongoDbHost, mongoDbPort);
-	}
-
-	@Autowired
-	MongoOperations mongoTemplate;
-
-	@EventListener(ContextRefreshedEvent.class)
-	public void initIndicesAfterStartup() {
-
-		MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext = mongoTemplate.getConverter().getMappingContext();
-		IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
-
-		IndexOperations indexOps = mongoTemplate.indexOps(RecommendationEntity.class);
-		resolver.resolveIndexFor(RecommendationEntity.class).forEach(e -> indexOps.ensureIndex(e));
+		/* INFO: The "inmemory" profile excludes the Mongo auto-configuration, then there is no MongoClient and no connection to log. */
+		if (ctx.getBeanNamesForType(MongoClient.class).length > 0) {
+			String mongoDbHost = ctx.getEnvironment().getProperty("spring.data.mongodb.host");
+			String mongoDbPort = ctx.getEnvironment().getProperty("spring.data.mongodb.port");
+			LOG.info("Connected to MongoDB: {}:{}", mongoDbHost, mongoDbPort);
+		}
 	}
 }
@@ -0,0 +1,224 @@
+package com.pedrocoelho.microservices.core.recommendation.repository;
+
+import com.pedrocoelho.util.collections.ConcurrentIntObjectMap;
+import org.bson.types.ObjectId;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * A RecommendationRepository that keeps the recommendations in memory, used by the "inmemory" profile to run the
+ * service without MongoDB.
+ * <p>
+ * Recommendations are indexed by productId, each product holding an immutable list that is replaced on every write,
+ * so findByProductId is a single lock-free lookup. The pair productId and recommendationId is unique and the version
+ * field is used for optimistic locking, as with the compound index and @Version in MongoDB.
+ */
+@Repository
+@Profile("inmemory")
+public class InMemoryRecommendationRepository implements RecommendationRepository {
+
+  private final ConcurrentIntObjectMap<List<RecommendationEntity>> byProductId = new ConcurrentIntObjectMap<>();
+  private final Map<String, RecommendationEntity> byId = new ConcurrentHashMap<>();
+
+  @Override
+  public List<RecommendationEntity> findByProductId(int productId) {
+
+    List<RecommendationEntity> recommendations = byProductId.get(productId);
+    return recommendations == null ? new ArrayList<>() : copyAll(recommendations);
+  }
+
+  @Override
+  public List<RecommendationEntity> findByRecommendationId(int recommendationId) {
+
+    return copyAll(byId.values().stream().filter(e -> e.getRecommendationId() == recommendationId).collect(Collectors.toList()));
+  }
+
+  @Override
+  public synchronized <S extends RecommendationEntity> S save(S entity) {
+
+    boolean isNew = entity.getVersion() == null;
+    RecommendationEntity stored = entity.getId() == null ? null : byId.get(entity.getId());
+
+    if (isNew && stored != null) {
+      throw new DuplicateKeyException("Duplicate key, id: " + entity.getId());
+    }
+    if (!isNew && (stored == null || !stored.getVersion().equals(entity.getVersion()))) {
+      throw new OptimisticLockingFailureException("Cannot save entity " + entity.getId() + " with version " + entity.getVersion() + ". Has it been modified meanwhile?");
+    }
+
+    List<RecommendationEntity> sameProduct = byProductId.get(entity.getProductId());
+    if (sameProduct != null && sameProduct.stream().anyMatch(e -> e != stored && e.getRecommendationId() == entity.getRecommendationId())) {
+      throw new DuplicateKeyException("Duplicate key, productId: " + entity.getProductId() + ", recommendationId: " + entity.getRecommendationId());
+    }
+
+    if (isNew) {
+      if (entity.getId() == null) {
+        entity.setId(new ObjectId().toHexString());
+      }
+      entity.setVersion(0);
+    } else {
+      entity.setVersion(entity.getVersion() + 1);
+      unindex(stored);
+    }
+
+    RecommendationEntity copy = copy(entity);
+    byId.put(copy.getId(), copy);
+    byProductId.compute(copy.getProductId(), (productId, current) -> {
+      List<RecommendationEntity> updated = current == null ? new ArrayList<>() : new ArrayList<>(current);
+      updated.add(copy);
+      return Collections.unmodifiableList(updated);
+    });
+    return entity;
+  }
+
+  @Override
+  public <S extends RecommendationEntity> Iterable<S> saveAll(Iterable<S> entities) {
+
+    List<S> saved = new ArrayList<>();
+    entities.forEach(e -> saved.add(save(e)));
+    return saved;
+  }
+
+  @Override
+  public Optional<RecommendationEntity> findById(String id) {
+
+    return Optional.ofNullable(byId.get(id)).map(InMemoryRecommendationRepository::copy);
+  }
+
+  @Override
+  public boolean existsById(String id) {
+
+    return byId.containsKey(id);
+  }
+
+  @Override
+  public Iterable<RecommendationEntity> findAll() {
+
+    return findAll(Sort.unsorted());
+  }
+
+  @Override
+  public Iterable<RecommendationEntity> findAllById(Iterable<String> ids) {
+
+    List<RecommendationEntity> found = new ArrayList<>();
+    ids.forEach(id -> findById(id).ifPresent(found::add));
+    return found;
+  }
+
+  @Override
+  public List<RecommendationEntity> findAll(Sort sort) {
+
+    return byId.values().stream()
+        .sorted(comparator(sort))
+        .map(InMemoryRecommendationRepository::copy)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public Page<RecommendationEntity> findAll(Pageable pageable) {
+
+    List<RecommendationEntity> all = findAll(pageable.getSort());
+    if (pageable.isUnpaged()) {
+      return new PageImpl<>(all);
+    }
+
+    int from = (int) Math.min(pageable.getOffset(), all.size());
+    int to = Math.min(from + pageable.getPageSize(), all.size());
+    return new PageImpl<>(all.subList(from, to), pageable, all.size());
+  }
+
+  @Override
+  public long count() {
+
+    return byId.size();
+  }
+
+  @Override
+  public synchronized void deleteById(String id) {
+
+    RecommendationEntity stored = byId.remove(id);
+    if (stored != null) {
+      unindex(stored);
+    }
+  }
+
+  /* INFO: Like the MongoDB repository, a versioned entity is only deleted if it has not been modified since it was read. */
+  @Override
+  public synchronized void delete(RecommendationEntity entity) {
+
+    RecommendationEntity stored = byId.get(entity.getId());
+    if (entity.getVersion() != null && (stored == null || !stored.getVersion().equals(entity.getVersion()))) {
+      throw new OptimisticLockingFailureException("The entity with id " + entity.getId() + " with version " + entity.getVersion() + " was already deleted or modified meanwhile");
+    }
+    deleteById(entity.getId());
+  }
+
+  @Override
+  public void deleteAllById(Iterable<? extends String> ids) {
+
+    ids.forEach(this::deleteById);
+  }
+
+  @Override
+  public synchronized void deleteAll(Iterable<? extends RecommendationEntity> entities) {
+
+    entities.forEach(this::delete);
+  }
+
+  @Override
+  public synchronized void deleteAll() {
+
+    byId.clear();
+    byProductId.clear();
+  }
+
+  private void unindex(RecommendationEntity stored) {
+
+    byProductId.compute(stored.getProductId(), (productId, current) -> {
+      if (current == null) {
+        return null;
+      }
+      List<RecommendationEntity> updated = new ArrayList<>(current);
+      updated.removeIf(e -> e.getId().equals(stored.getId()));
+      return updated.isEmpty() ? null : Collections.unmodifiableList(updated);
+    });
+  }
+
+  private static Comparator<RecommendationEntity> comparator(Sort sort) {
+
+    Comparator<RecommendationEntity> comparator = (a, b) -> 0;
+    for (Sort.Order order : sort) {
+      comparator = comparator.thenComparing(new PropertyComparator<>(order.getProperty(), order.isIgnoreCase(), order.isAscending()));
+    }
+    return comparator;
+  }
+
+  private static List<RecommendationEntity> copyAll(List<RecommendationEntity> entities) {
+
+    return entities.stream().map(InMemoryRecommendationRepository::copy).collect(Collectors.toList());
+  }
+
+  private static RecommendationEntity copy(RecommendationEntity entity) {
+
+    RecommendationEntity copy = new RecommendationEntity(entity.getProductId(), entity.getRecommendationId(), entity.getAuthor(), entity.getRating(), entity.getContent());
+    copy.setId(entity.getId());
+    copy.setVersion(entity.getVersion());
+    return copy;
+  }
+}
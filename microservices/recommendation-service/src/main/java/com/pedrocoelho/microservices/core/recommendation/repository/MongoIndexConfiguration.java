@@ -0,0 +1,31 @@
+package com.pedrocoelho.microservices.core.recommendation.repository;
+
+import com.pedrocoelho.util.startup.MongoIndexHealthIndicator;
+import com.pedrocoelho.util.startup.MongoIndexProvisioner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.time.Duration;
+
+/* INFO: The indexes are those declared on RecommendationEntity. The unique index on productId and recommendationId backs the duplicated key error. */
+@Configuration
+@Profile("!inmemory")
+public class MongoIndexConfiguration {
+
+  @Bean
+  public MongoIndexProvisioner mongoIndexProvisioner(
+      MongoOperations mongoTemplate,
+      @Value("${app.mongodb.index-provisioning.retry-interval:10s}") Duration retryInterval) {
+
+    return new MongoIndexProvisioner(mongoTemplate, retryInterval, RecommendationEntity.class);
+  }
+
+  @Bean
+  public MongoIndexHealthIndicator mongoIndexHealthIndicator(MongoIndexProvisioner mongoIndexProvisioner) {
+
+    return new MongoIndexHealthIndicator(mongoIndexProvisioner);
+  }
+}
@@ -0,0 +1,32 @@
+package com.pedrocoelho.microservices.core.recommendation.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/* INFO: Compresses the content before a RecommendationEntity is converted to a document. Only the writes are handled here, reading compressed content needs no configuration. */
+@Component
+public class RecommendationContentCompression implements BeforeConvertCallback<RecommendationEntity> {
+
+  private final boolean enabled;
+  private final int threshold;
+
+  @Autowired
+  public RecommendationContentCompression(
+      @Value("${app.content-compression.enabled:false}") boolean enabled,
+      @Value("${app.content-compression.threshold:512}") int threshold) {
+
+    this.enabled = enabled;
+    this.threshold = threshold;
+  }
+
+  @Override
+  public RecommendationEntity onBeforeConvert(RecommendationEntity entity, String collection) {
+
+    if (enabled) {
+      entity.compressContent(threshold);
+    }
+    return entity;
+  }
+}
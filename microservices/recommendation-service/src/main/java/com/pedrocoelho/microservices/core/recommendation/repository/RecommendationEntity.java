@@ -1,6 +1,8 @@
 package com.pedrocoelho.microservices.core.recommendation.repository;
 
+import com.pedrocoelho.util.compression.ContentCompression;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -18,6 +20,10 @@ public class RecommendationEntity {
   private String author;
   private int rating;
   private String content;
+  /* INFO: Set instead of content when the content was compressed on its way to MongoDB, see RecommendationContentCompression. Documents written before compression was enabled keep their plain content. */
+  private byte[] compressedContent;
+  @Transient
+  private String decompressedContent;
 
   public RecommendationEntity() {}
 
@@ -77,11 +83,32 @@ public class RecommendationEntity {
     this.rating = rating;
   }
 
+  /* INFO: Decompressed on the first call only, so reading the content again costs nothing, and entities that are loaded but whose content is never read, such as those loaded to be deleted, skip the decompression. */
   public String getContent() {
-    return content;
+    if (content != null || compressedContent == null) {
+      return content;
+    }
+    if (decompressedContent == null) {
+      decompressedContent = ContentCompression.decompress(compressedContent);
+    }
+    return decompressedContent;
   }
 
   public void setContent(String content) {
     this.content = content;
+    this.compressedContent = null;
+    this.decompressedContent = null;
+  }
+
+  /**
+   * Moves the content to compressedContent if it is at least threshold bytes long and compresses well.
+   */
+  void compressContent(int threshold) {
+    byte[] compressed = ContentCompression.compress(content, threshold);
+    if (compressed != null) {
+      compressedContent = compressed;
+      decompressedContent = content;
+      content = null;
+    }
   }
 }
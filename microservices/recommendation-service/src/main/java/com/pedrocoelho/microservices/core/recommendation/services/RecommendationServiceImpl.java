@@ -1,18 +1,24 @@
 package com.pedrocoelho.microservices.core.recommendation.services;
 
+import com.pedrocoelho.api.composite.product.RecommendationSummary;
 import com.pedrocoelho.api.core.recommendation.Recommendation;
 import com.pedrocoelho.api.core.recommendation.RecommendationService;
+import com.pedrocoelho.api.core.recommendation.RecommendationStatistics;
 import com.pedrocoelho.api.exceptions.InvalidInputException;
 import com.pedrocoelho.microservices.core.recommendation.repository.RecommendationEntity;
 import com.pedrocoelho.microservices.core.recommendation.repository.RecommendationRepository;
+import com.pedrocoelho.microservices.core.recommendation.statistics.RecommendationStatisticsStore;
 import com.pedrocoelho.util.http.ServiceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 public class RecommendationServiceImpl implements RecommendationService {
@@ -25,12 +31,19 @@ public class RecommendationServiceImpl implements RecommendationService {
 
   private final ServiceUtil serviceUtil;
 
+  private final RecommendationStatisticsStore statistics;
+
   @Autowired
-  public RecommendationServiceImpl(RecommendationRepository repository, RecommendationMapper mapper, ServiceUtil serviceUtil) {
+  public RecommendationServiceImpl(
+      RecommendationRepository repository,
+      RecommendationMapper mapper,
+      ServiceUtil serviceUtil,
+      RecommendationStatisticsStore statistics) {
 
     this.repository = repository;
     this.mapper = mapper;
     this.serviceUtil = serviceUtil;
+    this.statistics = statistics;
   }
 
   @Override
@@ -39,6 +52,7 @@ public class RecommendationServiceImpl implements RecommendationService {
     try {
       RecommendationEntity entity = mapper.modelToEntity(body);
       RecommendationEntity newEntity = repository.save(entity);
+      statistics.add(body.getProductId(), 1, body.getRate());
 
       LOG.debug("createRecommendation: created a recommendation entity: {}/{}", body.getProductId(), body.getRecommendationId());
       return mapper.entityToModel(newEntity);
@@ -64,9 +78,49 @@ public class RecommendationServiceImpl implements RecommendationService {
     return list;
   }
 
+  /* INFO: The ETag hashes the ids, versions and contents, so adding, removing or updating a recommendation changes it, and so does re-creating a recommendation with the same id, whose version starts over. A matching If-None-Match is answered with 304 and no body. */
+  @Override
+  public List<RecommendationSummary> getRecommendationSummaries(int productId, ServerWebExchange exchange) {
+
+    if (productId < 1) {
+      throw new InvalidInputException("Invalid productId: " + productId);
+    }
+
+    List<Recommendation> recommendations = mapper.entityListToModelList(repository.findByProductId(productId));
+
+    long hash = recommendations.size();
+    List<RecommendationSummary> summaries = new ArrayList<>(recommendations.size());
+    for (Recommendation r : recommendations) {
+      hash = 31 * (31 * hash + r.getRecommendationId()) + r.getVersion();
+      hash = 31 * hash + Objects.hash(r.getAuthor(), r.getRate(), r.getContent());
+      summaries.add(new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent()));
+    }
+
+    LOG.debug("getRecommendationSummaries: response size: {}", summaries.size());
+
+    exchange.getResponse().getHeaders().set(ServiceUtil.SERVICE_ADDRESS_HEADER, serviceUtil.getServiceAddress());
+    return exchange.checkNotModified("\"" + Long.toHexString(hash) + "\"") ? null : summaries;
+  }
+
+  @Override
+  public RecommendationStatistics getRecommendationStatistics(int productId) {
+
+    if (productId < 1) {
+      throw new InvalidInputException("Invalid productId: " + productId);
+    }
+
+    RecommendationStatistics result = statistics.get(productId);
+    result.setServiceAddress(serviceUtil.getServiceAddress());
+
+    LOG.debug("getRecommendationStatistics: {} recommendations for productId: {}", result.getCount(), productId);
+
+    return result;
+  }
+
   @Override
   public void deleteRecommendations(int productId) {
     LOG.debug("deleteRecomendation: tries to delete recommendations for the product with productId: {}", productId);
     repository.deleteAll(repository.findByProductId(productId));
+    statistics.clear(productId);
   }
 }
@@ -0,0 +1,38 @@
+package com.pedrocoelho.microservices.core.recommendation.services;
+
+import com.pedrocoelho.api.core.recommendation.Recommendation;
+import com.pedrocoelho.util.startup.WarmUpWorkload;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/* INFO: Creates a few recommendations for a product, reads them and deletes them through the HTTP API, so the warm-up covers the controller, the mapper and the repository in the mix of real traffic, which is mostly reads. */
+@Component
+public class RecommendationWarmUpWorkload implements WarmUpWorkload {
+
+  private static final int RECOMMENDATIONS_PER_RUN = 3;
+  private static final int READS_PER_RUN = 4;
+  private static final ParameterizedTypeReference<List<Recommendation>> RECOMMENDATIONS = new ParameterizedTypeReference<>() {};
+
+  @Override
+  public Mono<Void> run(WebClient client, int productId) {
+
+    return Flux.range(1, RECOMMENDATIONS_PER_RUN)
+        .concatMap(recommendationId -> client.post().uri("/recommendation")
+            .bodyValue(new Recommendation(productId, recommendationId, "warm-up", 1, "warm-up", null))
+            .retrieve().toBodilessEntity())
+        .thenMany(Flux.range(0, READS_PER_RUN)
+            .concatMap(i -> client.get().uri("/recommendation?productId={productId}", productId).retrieve().bodyToMono(RECOMMENDATIONS)))
+        .then(cleanUp(client, productId));
+  }
+
+  @Override
+  public Mono<Void> cleanUp(WebClient client, int productId) {
+
+    return client.delete().uri("/recommendation?productId={productId}", productId).retrieve().toBodilessEntity().then();
+  }
+}
@@ -0,0 +1,37 @@
+package com.pedrocoelho.microservices.core.recommendation.statistics;
+
+import com.pedrocoelho.api.core.recommendation.RecommendationStatistics;
+import com.pedrocoelho.util.collections.ConcurrentIntObjectMap;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/* INFO: The recommendation statistics of the "inmemory" profile, next to InMemoryRecommendationRepository. The count and the rate sum of a product are replaced together, so a reader never sees one without the other. */
+@Component
+@Profile("inmemory")
+public class InMemoryRecommendationStatisticsStore implements RecommendationStatisticsStore {
+
+  private final ConcurrentIntObjectMap<long[]> statistics = new ConcurrentIntObjectMap<>();
+
+  @Override
+  public void add(int productId, int recommendations, long rates) {
+
+    statistics.compute(productId, (key, current) -> current == null
+        ? new long[] {recommendations, rates}
+        : new long[] {current[0] + recommendations, current[1] + rates});
+  }
+
+  @Override
+  public void clear(int productId) {
+
+    statistics.remove(productId);
+  }
+
+  @Override
+  public RecommendationStatistics get(int productId) {
+
+    long[] current = statistics.get(productId);
+    return current == null
+        ? new RecommendationStatistics(productId, 0, 0, null)
+        : new RecommendationStatistics(productId, (int) current[0], current[1], null);
+  }
+}
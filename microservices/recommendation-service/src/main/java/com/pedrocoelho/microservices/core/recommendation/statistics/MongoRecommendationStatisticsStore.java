@@ -0,0 +1,103 @@
+package com.pedrocoelho.microservices.core.recommendation.statistics;
+
+import com.pedrocoelho.api.core.recommendation.RecommendationStatistics;
+import com.pedrocoelho.microservices.core.recommendation.repository.RecommendationEntity;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Keeps the recommendation statistics in the recommendation_statistics collection. A change is a single upsert with
+ * $inc on the document of the product, which is atomic, also when the first recommendations of a product are created
+ * concurrently.
+ * <p>
+ * MongoDB writes the recommendation and its statistics separately, without a transaction, so a crash between the two
+ * leaves the count one off until the recommendations of the product are deleted.
+ */
+@Component
+@Profile("!inmemory")
+public class MongoRecommendationStatisticsStore implements RecommendationStatisticsStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MongoRecommendationStatisticsStore.class);
+
+  private static final String MIGRATIONS = "statistics_migrations";
+  private static final String BACKFILL = "recommendation_statistics_backfill";
+
+  private final MongoOperations mongoTemplate;
+
+  @Autowired
+  public MongoRecommendationStatisticsStore(MongoOperations mongoTemplate) {
+
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public void add(int productId, int recommendations, long rates) {
+
+    mongoTemplate.upsert(byProductId(productId), new Update().inc("count", recommendations).inc("rateSum", rates), RecommendationStatisticsDocument.class);
+  }
+
+  @Override
+  public void clear(int productId) {
+
+    mongoTemplate.remove(byProductId(productId), RecommendationStatisticsDocument.class);
+  }
+
+  @Override
+  public RecommendationStatistics get(int productId) {
+
+    RecommendationStatisticsDocument document = mongoTemplate.findById(productId, RecommendationStatisticsDocument.class);
+    return document == null
+        ? new RecommendationStatistics(productId, 0, 0, null)
+        : new RecommendationStatistics(productId, document.getCount(), document.getRateSum(), null);
+  }
+
+  /* INFO: Computes the recommendation statistics from the recommendations once per database, for databases with recommendations from before the statistics were kept. Whether it ran is recorded in the statistics_migrations collection, not derived from recommendation_statistics, which recommendations created during startup may have filled already. */
+  /* INFO: The marker is written after the statistics, so a crash in between only repeats the backfill. The counts are set, not incremented, so replicas that backfill at the same time write the same values, and counts that exist already are replaced by the counted ones, which include the recommendations behind them. Products written to while it runs may end up with wrong statistics, delete and recreate their recommendations if that matters. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfill() {
+
+    if (mongoTemplate.exists(new Query(where("_id").is(BACKFILL)), MIGRATIONS)) {
+      return;
+    }
+
+    List<RecommendationStatisticsDocument> statistics = mongoTemplate.aggregate(
+            newAggregation(group("productId").count().as("count").sum("rating").as("rateSum")),
+            RecommendationEntity.class,
+            RecommendationStatisticsDocument.class)
+        .getMappedResults();
+    if (!statistics.isEmpty()) {
+      BulkOperations upserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RecommendationStatisticsDocument.class);
+      statistics.forEach(s -> upserts.upsert(byProductId(s.getProductId()), new Update().set("count", s.getCount()).set("rateSum", s.getRateSum())));
+      upserts.execute();
+      LOG.info("backfill: computed the recommendation statistics of {} products", statistics.size());
+    }
+
+    try {
+      mongoTemplate.insert(new Document("_id", BACKFILL), MIGRATIONS);
+    } catch (DuplicateKeyException dke) {
+      LOG.debug("backfill: another replica completed the backfill meanwhile");
+    }
+  }
+
+  private Query byProductId(int productId) {
+
+    return new Query(where("_id").is(productId));
+  }
+}
@@ -0,0 +1,45 @@
+package com.pedrocoelho.microservices.core.recommendation.statistics;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/* INFO: One document per product with recommendations, keyed by the productId, written by MongoRecommendationStatisticsStore. */
+@Document(collection = "recommendation_statistics")
+public class RecommendationStatisticsDocument {
+  @Id
+  private int productId;
+  private int count;
+  private long rateSum;
+
+  public RecommendationStatisticsDocument() {}
+
+  public RecommendationStatisticsDocument(int productId, int count, long rateSum) {
+    this.productId = productId;
+    this.count = count;
+    this.rateSum = rateSum;
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public void setProductId(int productId) {
+    this.productId = productId;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public void setCount(int count) {
+    this.count = count;
+  }
+
+  public long getRateSum() {
+    return rateSum;
+  }
+
+  public void setRateSum(long rateSum) {
+    this.rateSum = rateSum;
+  }
+}
@@ -0,0 +1,20 @@
+package com.pedrocoelho.microservices.core.recommendation.statistics;
+
+import com.pedrocoelho.api.core.recommendation.RecommendationStatistics;
+
+/**
+ * The number of recommendations per product and the sum of their rates, kept up to date by RecommendationServiceImpl
+ * on every create and delete so they can be read without scanning the recommendations.
+ */
+public interface RecommendationStatisticsStore {
+
+  void add(int productId, int recommendations, long rates);
+
+  void clear(int productId);
+
+  /**
+   * @return the statistics of the product, without service address, with a count of 0 for a product without
+   * recommendations
+   */
+  RecommendationStatistics get(int productId);
+}
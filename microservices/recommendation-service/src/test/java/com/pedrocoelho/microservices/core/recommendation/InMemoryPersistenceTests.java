@@ -0,0 +1,89 @@
+package com.pedrocoelho.microservices.core.recommendation;
+
+import com.pedrocoelho.microservices.core.recommendation.repository.InMemoryRecommendationRepository;
+import com.pedrocoelho.microservices.core.recommendation.repository.RecommendationEntity;
+import com.pedrocoelho.microservices.core.recommendation.repository.RecommendationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+/* INFO: Runs without a database, the "inmemory" profile must start the application without MongoDB and give the same repository semantics that PersistenceTests verifies on MongoDB. */
+@SpringBootTest(webEnvironment = NONE)
+@ActiveProfiles("inmemory")
+class InMemoryPersistenceTests {
+
+  @Autowired
+  private RecommendationRepository repository;
+  private RecommendationEntity savedEntity;
+
+  @BeforeEach
+  void setupDb() {
+    repository.deleteAll();
+    savedEntity = repository.save(new RecommendationEntity(1, 2, "a", 3, "c"));
+  }
+
+  @Test
+  void usesInMemoryRepository() {
+    assertInstanceOf(InMemoryRecommendationRepository.class, repository);
+  }
+
+  @Test
+  void create() {
+    repository.save(new RecommendationEntity(1, 3, "a", 5, "c"));
+    repository.save(new RecommendationEntity(2, 3, "a", 5, "c"));
+    assertThat(repository.findByProductId(1), hasSize(2));
+    assertThat(repository.findByRecommendationId(3), hasSize(2));
+    assertEquals(3, repository.count());
+  }
+
+  @Test
+  void update() {
+    savedEntity.setAuthor("a2");
+    repository.save(savedEntity);
+    List<RecommendationEntity> entityList = repository.findByProductId(1);
+    assertThat(entityList, hasSize(1));
+    assertEquals(1, (long) entityList.get(0).getVersion());
+    assertEquals("a2", entityList.get(0).getAuthor());
+  }
+
+  @Test
+  void delete() {
+    repository.deleteAll(repository.findByProductId(1));
+    assertFalse(repository.existsById(savedEntity.getId()));
+    assertThat(repository.findByProductId(1), hasSize(0));
+  }
+
+  @Test
+  void duplicateError() {
+    assertThrows(DuplicateKeyException.class, () -> repository.save(new RecommendationEntity(1, 2, "a", 3, "c")));
+  }
+
+  @Test
+  void optimisticLockError() {
+    RecommendationEntity recommendation1 = repository.findById(savedEntity.getId()).get();
+    RecommendationEntity recommendation2 = repository.findById(savedEntity.getId()).get();
+
+    recommendation1.setAuthor("a1");
+    repository.save(recommendation1);
+
+    assertThrows(OptimisticLockingFailureException.class, () -> {
+      recommendation2.setAuthor("a2");
+      repository.save(recommendation2);
+    });
+
+    RecommendationEntity updatedRecommendation = repository.findById(recommendation1.getId()).get();
+    assertEquals(1, updatedRecommendation.getVersion());
+    assertEquals(recommendation1.getAuthor(), updatedRecommendation.getAuthor());
+  }
+}
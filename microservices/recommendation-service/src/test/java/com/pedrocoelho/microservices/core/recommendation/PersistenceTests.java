@@ -1,15 +1,19 @@
 package com.pedrocoelho.microservices.core.recommendation;
 
+import com.pedrocoelho.microservices.core.recommendation.repository.MongoIndexConfiguration;
 import com.pedrocoelho.microservices.core.recommendation.repository.RecommendationEntity;
 import com.pedrocoelho.microservices.core.recommendation.repository.RecommendationRepository;
+import com.pedrocoelho.util.startup.MongoIndexProvisioner;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.OptimisticLockingFailureException;
 
+import java.time.Duration;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -17,15 +21,21 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.*;
 
 /* INFO: The @DataMongoTest annotation is designed to start an embedded database by default. Since we want to use a containerized database, we have to disable this feature. */
+/* INFO: The indexes are created by MongoIndexProvisioner, declared in MongoIndexConfiguration, which is not part of a @DataMongoTest slice by default. */
 @DataMongoTest(excludeAutoConfiguration = EmbeddedMongoAutoConfiguration.class)
+@Import(MongoIndexConfiguration.class)
 class PersistenceTests extends MongoDbTestBase {
 
   @Autowired
   private RecommendationRepository repository;
   private RecommendationEntity savedEntity;
 
+  @Autowired
+  private MongoIndexProvisioner indexProvisioner;
+
   @BeforeEach
-  void setupDb() {
+  void setupDb() throws InterruptedException {
+    assertTrue(indexProvisioner.awaitProvisioned(Duration.ofSeconds(30)));
     repository.deleteAll();
     RecommendationEntity entity = new RecommendationEntity(1, 2, "a", 3, "c");
     savedEntity = repository.save(entity);
@@ -1,15 +1,23 @@
 package com.pedrocoelho.microservices.core.recommendation;
 
 import com.pedrocoelho.api.core.recommendation.Recommendation;
+import com.pedrocoelho.microservices.core.recommendation.repository.RecommendationEntity;
 import com.pedrocoelho.microservices.core.recommendation.repository.RecommendationRepository;
+import com.pedrocoelho.microservices.core.recommendation.statistics.MongoRecommendationStatisticsStore;
+import com.pedrocoelho.util.startup.MongoIndexProvisioner;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.time.Duration;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
@@ -24,8 +32,18 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
   @Autowired
   private RecommendationRepository repository;
 
+  @Autowired
+  private MongoIndexProvisioner indexProvisioner;
+
+  @Autowired
+  private MongoRecommendationStatisticsStore statistics;
+
+  @Autowired
+  private MongoOperations mongoTemplate;
+
   @BeforeEach
-  void setUp() {
+  void setUp() throws InterruptedException {
+    assertTrue(indexProvisioner.awaitProvisioned(Duration.ofSeconds(30)));
     repository.deleteAll();
     assertEquals(0, repository.count());
   }
@@ -82,6 +100,70 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
     deleteRecommendationAndVerify(productId, OK);
   }
 
+  @Test
+  void getRecommendationSummaries() {
+
+    int productId = 1;
+
+    postRecommendationAndVerify(productId, 1, OK);
+    postRecommendationAndVerify(productId, 2, OK);
+
+    client.get()
+        .uri("/recommendation/summaries?productId=" + productId)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().exists("ETag")
+        .expectHeader().exists("Service-Address")
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[1].recommendationId").isEqualTo(2)
+        .jsonPath("$[1].productId").doesNotExist();
+  }
+
+  @Test
+  void getRecommendationStatistics() {
+
+    int productId = 3;
+    deleteRecommendationAndVerify(productId, OK);
+
+    postRecommendationAndVerify(productId, 1, OK);
+    postRecommendationAndVerify(productId, 4, OK);
+    postRecommendationAndVerify(productId, 4, UNPROCESSABLE_ENTITY);
+
+    getRecommendationStatisticsAndVerify(productId)
+        .jsonPath("$.count").isEqualTo(2)
+        .jsonPath("$.rateSum").isEqualTo(5);
+
+    deleteRecommendationAndVerify(productId, OK);
+    getRecommendationStatisticsAndVerify(productId)
+        .jsonPath("$.count").isEqualTo(0)
+        .jsonPath("$.rateSum").isEqualTo(0);
+  }
+
+  /* INFO: A recommendation created before the backfill, e.g. during startup, must not make it skip the recommendations from before the statistics were kept, and the backfill runs only once. */
+  @Test
+  void backfillRunsOnceAndCountsAllRecommendations() {
+
+    int productId = 4;
+    deleteRecommendationAndVerify(productId, OK);
+    mongoTemplate.remove(new Query(), "statistics_migrations");
+
+    repository.save(new RecommendationEntity(productId, 1, "a", 2, "c"));
+    postRecommendationAndVerify(productId, 2, OK);
+
+    statistics.backfill();
+    getRecommendationStatisticsAndVerify(productId)
+        .jsonPath("$.count").isEqualTo(2);
+
+    repository.save(new RecommendationEntity(productId, 3, "a", 2, "c"));
+    statistics.backfill();
+    getRecommendationStatisticsAndVerify(productId)
+        .jsonPath("$.count").isEqualTo(2);
+
+    deleteRecommendationAndVerify(productId, OK);
+  }
+
   @Test
   void getRecommendationsMissingParameter() {
 
@@ -138,6 +220,17 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
         .expectBody();
   }
 
+  private WebTestClient.BodyContentSpec getRecommendationStatisticsAndVerify(int productId) {
+
+    return client.get()
+        .uri("/recommendation/statistics?productId=" + productId)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(OK)
+        .expectHeader().contentType(APPLICATION_JSON)
+        .expectBody();
+  }
+
   private WebTestClient.BodyContentSpec postRecommendationAndVerify(int productId, int recommendationId, HttpStatus expectedStatus) {
 
     Recommendation recomendation = new Recommendation(productId, recommendationId, "Author-" + recommendationId, recommendationId, "Content-" + recommendationId, "SA");
@@ -7,6 +7,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.ComponentScan;
 
+import javax.sql.DataSource;
+
 /* INFO: To enable Spring Boot's autoconfiguration feature to detect Spring beans in the api and util projects, we also need to add a @ComponentScan annotation to the main application class, which includes the pacjages o  the api and util projects. */
 @SpringBootApplication
 @ComponentScan("com.pedrocoelho")
@@ -16,8 +18,11 @@ public class ReviewServiceApplication {
 
 	public static void main(String[] args) {
 		ConfigurableApplicationContext ctx = SpringApplication.run(ReviewServiceApplication.class, args);
-		String mysqlUri = ctx.getEnvironment().getProperty("spring.datasource.url");
-		LOG.info("Connected to MongoDB: {}", mysqlUri);
+		/* INFO: The "inmemory" profile excludes the DataSource auto-configuration, then there is no connection to log. */
+		if (ctx.getBeanNamesForType(DataSource.class).length > 0) {
+			String mysqlUri = ctx.getEnvironment().getProperty("spring.datasource.url");
+			LOG.info("Connected to MongoDB: {}", mysqlUri);
+		}
 	}
 
 }
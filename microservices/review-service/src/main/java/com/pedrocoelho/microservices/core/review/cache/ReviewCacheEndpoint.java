@@ -0,0 +1,93 @@
+package com.pedrocoelho.microservices.core.review.cache;
+
+import com.pedrocoelho.microservices.core.review.repository.ReviewEntity;
+import com.pedrocoelho.microservices.core.review.repository.ReviewRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the effect of the second-level and query cache as /actuator/reviewcache: hits, misses and hit ratio of both
+ * regions, and how often reviews were still loaded from MySQL and hydrated into entities. Hibernate does not time
+ * hydration by itself, the query execution times cover the SQL round trip and the hydration of the rows.
+ * The counters are only collected with app.review.cache.statistics enabled; without it the endpoint says so instead of
+ * reporting zeros. A DELETE empties both regions, e.g. after reviews were changed directly in MySQL.
+ */
+@Component
+@Profile("!inmemory & !r2dbc")
+@Endpoint(id = "reviewcache")
+public class ReviewCacheEndpoint {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReviewCacheEndpoint.class);
+
+  private final SessionFactory sessionFactory;
+
+  @Autowired
+  public ReviewCacheEndpoint(EntityManagerFactory entityManagerFactory) {
+
+    this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+  }
+
+  @ReadOperation
+  public Map<String, Object> statistics() {
+
+    Statistics statistics = sessionFactory.getStatistics();
+    boolean enabled = sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled();
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("enabled", enabled);
+    result.put("statisticsEnabled", statistics.isStatisticsEnabled());
+    if (!statistics.isStatisticsEnabled()) {
+      result.put("statistics", "disabled, set app.review.cache.statistics to true to collect them");
+      return result;
+    }
+    if (enabled) {
+      result.put("entityCache", region(statistics.getDomainDataRegionStatistics(ReviewEntity.CACHE_REGION)));
+      /* INFO: The query region only exists once the first query has been cached. */
+      result.put("queryCache", region(statistics.getQueryRegionStatistics(ReviewRepository.PRODUCT_QUERY_CACHE_REGION)));
+    }
+
+    Map<String, Object> database = new LinkedHashMap<>();
+    database.put("entitiesLoaded", statistics.getEntityLoadCount());
+    database.put("queriesExecuted", statistics.getQueryExecutionCount());
+    database.put("statementsPrepared", statistics.getPrepareStatementCount());
+    database.put("queryExecutionMaxTimeMs", statistics.getQueryExecutionMaxTime());
+    database.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+    result.put("database", database);
+    return result;
+  }
+
+  @DeleteOperation
+  public void evictAll() {
+
+    sessionFactory.getCache().evictAllRegions();
+    LOG.info("evictAll: emptied the second-level and query cache");
+  }
+
+  private static Map<String, Object> region(CacheRegionStatistics region) {
+
+    Map<String, Object> result = new LinkedHashMap<>();
+    if (region == null) {
+      return result;
+    }
+    long hits = region.getHitCount();
+    long misses = region.getMissCount();
+    result.put("hits", hits);
+    result.put("misses", misses);
+    result.put("puts", region.getPutCount());
+    result.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+    result.put("entriesInMemory", region.getElementCountInMemory());
+    return result;
+  }
+}
@@ -0,0 +1,72 @@
+package com.pedrocoelho.microservices.core.review.datasource;
+
+import com.pedrocoelho.util.collections.ConcurrentIntObjectMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Keeps reads of a product on the primary for a while after the product's reviews were written through this instance,
+ * so that a client reading right after its createReview does not miss the review on a lagging replica. The window
+ * should cover the replication lag. Without replicas, or with a zero window, reads are left alone.
+ */
+@Component
+public class ReadYourWrites {
+
+  private static final int PURGE_THRESHOLD = 10_000;
+
+  private final long windowMillis;
+  private final ConcurrentIntObjectMap<Long> writtenAt = new ConcurrentIntObjectMap<>();
+
+  @Autowired
+  public ReadYourWrites(@Value("${app.review.datasource.read-your-writes-window:2s}") Duration window) {
+
+    this.windowMillis = window.toMillis();
+  }
+
+  public void markWritten(int productId) {
+
+    if (windowMillis <= 0) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    writtenAt.put(productId, now);
+    if (writtenAt.size() > PURGE_THRESHOLD) {
+      purgeExpired(now);
+    }
+  }
+
+  public <T> T read(int productId, Supplier<T> read) {
+
+    Long written = writtenAt.get(productId);
+    if (written == null) {
+      return read.get();
+    }
+    if (System.currentTimeMillis() - written >= windowMillis) {
+      writtenAt.remove(productId, written);
+      return read.get();
+    }
+    return ReplicaRoutingDataSource.onPrimary(read);
+  }
+
+  private void purgeExpired(long now) {
+
+    List<Integer> productIds = new ArrayList<>();
+    List<Long> timestamps = new ArrayList<>();
+    writtenAt.forEach((productId, written) -> {
+      if (now - written >= windowMillis) {
+        productIds.add(productId);
+        timestamps.add(written);
+      }
+    });
+    /* INFO: Removed only if unchanged, a product written again meanwhile keeps its new timestamp. */
+    for (int i = 0; i < productIds.size(); i++) {
+      writtenAt.remove(productIds.get(i), timestamps.get(i));
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.pedrocoelho.microservices.core.review.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* INFO: Replaces Boot's single data source once app.review.datasource.replica-urls lists at least one replica. The primary pool is still configured through spring.datasource and spring.datasource.hikari, the replicas use the same credentials. Each pool reports hikaricp.* metrics tagged with its pool name, and review.datasource.routed counts the connections handed out per pool. */
+@Configuration
+@Profile("!inmemory & !r2dbc")
+@ConditionalOnExpression("'${app.review.datasource.replica-urls:}' != ''")
+public class ReplicaDataSourceConfiguration implements DisposableBean {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReplicaDataSourceConfiguration.class);
+
+  private final List<HikariDataSource> replicaPools = new ArrayList<>();
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+
+    HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+    return primary;
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(
+      HikariDataSource primaryDataSource,
+      DataSourceProperties properties,
+      ObjectProvider<MeterRegistry> meterRegistry,
+      @Value("${app.review.datasource.replica-urls}") List<String> replicaUrls,
+      @Value("${app.review.datasource.replica-pool-size:10}") int replicaPoolSize) {
+
+    MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+
+    Map<String, DataSource> replicas = new LinkedHashMap<>();
+    for (int i = 0; i < replicaUrls.size(); i++) {
+      HikariDataSource replica = DataSourceBuilder.create()
+          .type(HikariDataSource.class)
+          .driverClassName(properties.determineDriverClassName())
+          .url(replicaUrls.get(i).trim())
+          .username(properties.determineUsername())
+          .password(properties.determinePassword())
+          .build();
+      replica.setPoolName("replica-" + (i + 1));
+      replica.setMaximumPoolSize(replicaPoolSize);
+      replica.setReadOnly(true);
+      replica.setMetricRegistry(registry);
+      replicas.put(replica.getPoolName(), replica);
+      replicaPools.add(replica);
+    }
+    LOG.info("Routing read-only transactions to {} replicas: {}", replicas.size(), replicaUrls);
+
+    ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicas, registry);
+    routing.afterPropertiesSet();
+    return new LazyConnectionDataSourceProxy(routing);
+  }
+
+  /* INFO: The replica pools are not beans of their own, so they are closed here. */
+  @Override
+  public void destroy() {
+
+    replicaPools.forEach(HikariDataSource::close);
+  }
+}
@@ -0,0 +1,71 @@
+package com.pedrocoelho.microservices.core.review.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections for read-only transactions to one of the replicas, round robin, and all others to the primary.
+ * <p>
+ * The read-only flag of a transaction is only known once the transaction has started, so this data source must be
+ * wrapped in a LazyConnectionDataSourceProxy, which defers getting the connection to the first statement. Code that
+ * must see its own writes can force reads onto the primary with onPrimary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+  static final String PRIMARY = "primary";
+
+  private static final ThreadLocal<Boolean> PRIMARY_ONLY = ThreadLocal.withInitial(() -> false);
+
+  private final List<String> replicas;
+  private final AtomicInteger next = new AtomicInteger();
+  private final Map<String, Counter> routed = new HashMap<>();
+
+  public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, MeterRegistry registry) {
+
+    Map<Object, Object> targets = new HashMap<>(replicas);
+    targets.put(PRIMARY, primary);
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+    this.replicas = List.copyOf(replicas.keySet());
+
+    targets.keySet().forEach(pool -> routed.put((String) pool, Counter.builder("review.datasource.routed")
+        .description("Connections handed out per pool")
+        .tag("pool", (String) pool)
+        .register(registry)));
+  }
+
+  /**
+   * Runs the given code with all reads, also those in read-only transactions, on the primary.
+   */
+  public static <T> T onPrimary(Supplier<T> work) {
+
+    if (PRIMARY_ONLY.get()) {
+      return work.get();
+    }
+    PRIMARY_ONLY.set(true);
+    try {
+      return work.get();
+    } finally {
+      PRIMARY_ONLY.remove();
+    }
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+
+    String pool = replicas.isEmpty() || PRIMARY_ONLY.get() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+        ? PRIMARY
+        : replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+    routed.get(pool).increment();
+    return pool;
+  }
+}
@@ -0,0 +1,189 @@
+package com.pedrocoelho.microservices.core.review.repository;
+
+import com.pedrocoelho.util.collections.ConcurrentIntObjectMap;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * A ReviewRepository that keeps the reviews in memory, used by the "inmemory" profile to run the service without
+ * MySQL.
+ * <p>
+ * Both indexes are keyed by primitive ints: the generated id and the productId, each product holding an immutable
+ * list that is replaced on every write. The pair productId and reviewId is unique and the version field is used for
+ * optimistic locking, as with the unique index and @Version in the JPA mapping.
+ */
+@Repository
+@Profile("inmemory")
+public class InMemoryReviewRepository implements ReviewRepository {
+
+  private final ConcurrentIntObjectMap<ReviewEntity> byId = new ConcurrentIntObjectMap<>();
+  private final ConcurrentIntObjectMap<List<ReviewEntity>> byProductId = new ConcurrentIntObjectMap<>();
+  private final AtomicInteger sequence = new AtomicInteger();
+
+  @Override
+  public List<ReviewEntity> findByProductId(int productId) {
+
+    List<ReviewEntity> reviews = byProductId.get(productId);
+    return reviews == null ? new ArrayList<>() : copyAll(reviews);
+  }
+
+  @Override
+  public List<ReviewEntity> findByReviewId(int reviewId) {
+
+    return copyAll(byId.values().stream().filter(e -> e.getReviewId() == reviewId).collect(Collectors.toList()));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public synchronized <S extends ReviewEntity> S save(S entity) {
+
+    boolean isNew = entity.getVersion() == null;
+    ReviewEntity stored = isNew ? null : byId.get(entity.getId());
+
+    if (!isNew && (stored == null || !stored.getVersion().equals(entity.getVersion()))) {
+      throw new OptimisticLockingFailureException("Row was updated or deleted by another transaction: " + entity.getId());
+    }
+
+    List<ReviewEntity> sameProduct = byProductId.get(entity.getProductId());
+    if (sameProduct != null && sameProduct.stream().anyMatch(e -> e != stored && e.getReviewId() == entity.getReviewId())) {
+      throw new DataIntegrityViolationException("Duplicate entry for key 'reviews_unique_idx': " + entity.getProductId() + "-" + entity.getReviewId());
+    }
+
+    ReviewEntity copy;
+    if (isNew) {
+      entity.setId(sequence.incrementAndGet());
+      entity.setVersion(0);
+      copy = copy(entity);
+    } else {
+      unindex(stored);
+      copy = copy(entity);
+      copy.setVersion(entity.getVersion() + 1);
+    }
+
+    byId.put(copy.getId(), copy);
+    byProductId.compute(copy.getProductId(), (productId, current) -> {
+      List<ReviewEntity> updated = current == null ? new ArrayList<>() : new ArrayList<>(current);
+      updated.add(copy);
+      return Collections.unmodifiableList(updated);
+    });
+
+    /* INFO: Like persist() and merge() in JPA: a new entity is updated in place, while an update returns a new instance and leaves the given one as it was. */
+    return isNew ? entity : (S) copy(copy);
+  }
+
+  @Override
+  public <S extends ReviewEntity> Iterable<S> saveAll(Iterable<S> entities) {
+
+    List<S> saved = new ArrayList<>();
+    entities.forEach(e -> saved.add(save(e)));
+    return saved;
+  }
+
+  @Override
+  public Optional<ReviewEntity> findById(Integer id) {
+
+    return Optional.ofNullable(byId.get(id)).map(InMemoryReviewRepository::copy);
+  }
+
+  @Override
+  public boolean existsById(Integer id) {
+
+    return byId.containsKey(id);
+  }
+
+  @Override
+  public Iterable<ReviewEntity> findAll() {
+
+    return copyAll(byId.values());
+  }
+
+  @Override
+  public Iterable<ReviewEntity> findAllById(Iterable<Integer> ids) {
+
+    List<ReviewEntity> found = new ArrayList<>();
+    ids.forEach(id -> findById(id).ifPresent(found::add));
+    return found;
+  }
+
+  @Override
+  public long count() {
+
+    return byId.size();
+  }
+
+  @Override
+  public synchronized void deleteById(Integer id) {
+
+    ReviewEntity stored = byId.remove(id);
+    if (stored != null) {
+      unindex(stored);
+    }
+  }
+
+  /* INFO: Like JPA, a versioned entity is only deleted if it has not been modified since it was read. */
+  @Override
+  public synchronized void delete(ReviewEntity entity) {
+
+    ReviewEntity stored = byId.get(entity.getId());
+    if (stored == null) {
+      return;
+    }
+    if (entity.getVersion() != null && !stored.getVersion().equals(entity.getVersion())) {
+      throw new OptimisticLockingFailureException("Row was updated or deleted by another transaction: " + entity.getId());
+    }
+    deleteById(entity.getId());
+  }
+
+  @Override
+  public void deleteAllById(Iterable<? extends Integer> ids) {
+
+    ids.forEach(this::deleteById);
+  }
+
+  @Override
+  public synchronized void deleteAll(Iterable<? extends ReviewEntity> entities) {
+
+    entities.forEach(this::delete);
+  }
+
+  @Override
+  public synchronized void deleteAll() {
+
+    byId.clear();
+    byProductId.clear();
+  }
+
+  private void unindex(ReviewEntity stored) {
+
+    byProductId.compute(stored.getProductId(), (productId, current) -> {
+      if (current == null) {
+        return null;
+      }
+      List<ReviewEntity> updated = new ArrayList<>(current);
+      updated.removeIf(e -> e.getId() == stored.getId());
+      return updated.isEmpty() ? null : Collections.unmodifiableList(updated);
+    });
+  }
+
+  private static List<ReviewEntity> copyAll(List<ReviewEntity> entities) {
+
+    return entities.stream().map(InMemoryReviewRepository::copy).collect(Collectors.toList());
+  }
+
+  private static ReviewEntity copy(ReviewEntity entity) {
+
+    ReviewEntity copy = new ReviewEntity(entity.getProductId(), entity.getReviewId(), entity.getAuthor(), entity.getSubject(), entity.getContent());
+    copy.setId(entity.getId());
+    copy.setVersion(entity.getVersion());
+    return copy;
+  }
+}
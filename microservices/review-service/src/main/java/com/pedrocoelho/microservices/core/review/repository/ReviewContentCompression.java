@@ -0,0 +1,34 @@
+package com.pedrocoelho.microservices.core.review.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+/* INFO: Entity listener of ReviewEntity, created by Spring through Hibernate's bean container so that it can be configured. Only the writes are handled here, reading compressed content needs no configuration. */
+@Component
+public class ReviewContentCompression {
+
+  private final boolean enabled;
+  private final int threshold;
+
+  @Autowired
+  public ReviewContentCompression(
+      @Value("${app.content-compression.enabled:false}") boolean enabled,
+      @Value("${app.content-compression.threshold:512}") int threshold) {
+
+    this.enabled = enabled;
+    this.threshold = threshold;
+  }
+
+  @PrePersist
+  @PreUpdate
+  void compress(ReviewEntity entity) {
+
+    if (enabled) {
+      entity.compressContent(threshold);
+    }
+  }
+}
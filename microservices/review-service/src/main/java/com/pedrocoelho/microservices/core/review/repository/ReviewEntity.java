@@ -1,12 +1,32 @@
 package com.pedrocoelho.microservices.core.review.repository;
 
+import com.pedrocoelho.util.compression.ContentCompression;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 
+/* INFO: Cached in the "reviews" region of Hibernate's second-level cache, see ehcache.xml. READ_WRITE keeps the cache consistent with concurrent writes through this service; rows changed in MySQL by others are only seen once the entry expires. */
 @Entity
+@EntityListeners(ReviewContentCompression.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ReviewEntity.CACHE_REGION)
 @Table(name = "reviews", indexes = {@Index(name = "reviews_unique_idx", unique = true, columnList = "productId, reviewId")})
 public class ReviewEntity {
+  public static final String CACHE_REGION = "reviews";
+  public static final int ID_BLOCK_SIZE = 50;
+  private static final String ID_GENERATOR = "review_id";
+
+  /* INFO: Ids are taken from the hibernate_sequence table in blocks of ID_BLOCK_SIZE, so an insert needs no round trip of its own for its id and Hibernate can batch the inserts, see hibernate.jdbc.batch_size. With pooled-lo the value in the table is the first id of the next free block, which is also how the former one-by-one generator left it, so existing rows keep their ids. */
   @Id
-  @GeneratedValue
+  @GeneratedValue(generator = ID_GENERATOR)
+  @GenericGenerator(name = ID_GENERATOR, strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+      @Parameter(name = "sequence_name", value = "hibernate_sequence"),
+      @Parameter(name = "increment_size", value = "" + ID_BLOCK_SIZE),
+      @Parameter(name = "optimizer", value = "pooled-lo")
+  })
   private int id;
   /* INFO: The version field is used to implement optimistic locking, allowing Spring Data to verify that updates of an entity in the database do not overwrite a concurrent update. */
   @Version
@@ -16,6 +36,12 @@ public class ReviewEntity {
   private String author;
   private String subject;
   private String content;
+  /* INFO: Set instead of content when the content was compressed on its way to the database, see ReviewContentCompression. Rows written before compression was enabled keep their plain content. */
+  @Lob
+  @Column(name = "content_lz4")
+  private byte[] compressedContent;
+  @Transient
+  private String decompressedContent;
 
   public ReviewEntity() {}
 
@@ -75,12 +101,33 @@ public class ReviewEntity {
     this.subject = subject;
   }
 
+  /* INFO: Decompressed on the first call only, so reading the content again costs nothing, and entities that are loaded but whose content is never read, such as those loaded to be deleted, skip the decompression. */
   public String getContent() {
-    return content;
+    if (content != null || compressedContent == null) {
+      return content;
+    }
+    if (decompressedContent == null) {
+      decompressedContent = ContentCompression.decompress(compressedContent);
+    }
+    return decompressedContent;
   }
 
   public void setContent(String content) {
     this.content = content;
+    this.compressedContent = null;
+    this.decompressedContent = null;
+  }
+
+  /**
+   * Moves the content to compressedContent if it is at least threshold bytes long and compresses well.
+   */
+  void compressContent(int threshold) {
+    byte[] compressed = ContentCompression.compress(content, threshold);
+    if (compressed != null) {
+      compressedContent = compressed;
+      decompressedContent = content;
+      content = null;
+    }
   }
 
   // FOR DEBUG
@@ -93,7 +140,7 @@ public class ReviewEntity {
         ", reviewId=" + reviewId +
         ", author='" + author + '\'' +
         ", subject='" + subject + '\'' +
-        ", content='" + content + '\'' +
+        ", content='" + getContent() + '\'' +
         '}';
   }
 }
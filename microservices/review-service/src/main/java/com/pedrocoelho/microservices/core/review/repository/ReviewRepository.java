@@ -1,12 +1,21 @@
 package com.pedrocoelho.microservices.core.review.repository;
 
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 public interface ReviewRepository extends CrudRepository<ReviewEntity, Integer> {
+  String PRODUCT_QUERY_CACHE_REGION = "reviews-by-product";
+
+  /* INFO: The ids found are kept in Hibernate's query cache and the entities in the second-level cache. Hibernate discards the cached results as soon as the reviews table is written through JPA. */
   @Transactional(readOnly = true)
+  @QueryHints({
+      @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+      @QueryHint(name = "org.hibernate.cacheRegion", value = PRODUCT_QUERY_CACHE_REGION)
+  })
   List<ReviewEntity> findByProductId(int productId);
 
   List<ReviewEntity> findByReviewId(int reviewId);
@@ -0,0 +1,17 @@
+package com.pedrocoelho.microservices.core.review.repository.r2dbc;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/* INFO: Extends R2dbcRepository rather than ReactiveCrudRepository, so that Spring Data's JPA module, which is on the classpath as well, does not also try to implement it. */
+public interface ReactiveReviewRepository extends R2dbcRepository<ReviewRecord, Integer> {
+
+  Flux<ReviewRecord> findByProductId(int productId);
+
+  @Modifying
+  @Query("DELETE FROM reviews WHERE product_id = :productId")
+  Mono<Integer> deleteByProductId(int productId);
+}
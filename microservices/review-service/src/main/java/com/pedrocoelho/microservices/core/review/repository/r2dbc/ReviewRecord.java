@@ -0,0 +1,126 @@
+package com.pedrocoelho.microservices.core.review.repository.r2dbc;
+
+import com.pedrocoelho.util.compression.ContentCompression;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/* INFO: The R2DBC counterpart of ReviewEntity, mapped by Spring Data R2DBC instead of JPA onto the same reviews table, so a deployment can switch between the two. The ids are taken from the same hibernate_sequence, see ReviewRecordIdGenerator, and long content is compressed into the same content_lz4 column, see ReviewRecordContentCompression. */
+@Table("reviews")
+public class ReviewRecord {
+  @Id
+  private Integer id;
+  @Version
+  private Integer version;
+  private int productId;
+  private int reviewId;
+  private String author;
+  private String subject;
+  private String content;
+  @Column("content_lz4")
+  private byte[] compressedContent;
+  @Transient
+  private String decompressedContent;
+
+  public ReviewRecord() {}
+
+  public ReviewRecord(int productId, int reviewId, String author, String subject, String content) {
+    this.productId = productId;
+    this.reviewId = reviewId;
+    this.author = author;
+    this.subject = subject;
+    this.content = content;
+  }
+
+  public Integer getId() {
+    return id;
+  }
+
+  public void setId(Integer id) {
+    this.id = id;
+  }
+
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public void setProductId(int productId) {
+    this.productId = productId;
+  }
+
+  public int getReviewId() {
+    return reviewId;
+  }
+
+  public void setReviewId(int reviewId) {
+    this.reviewId = reviewId;
+  }
+
+  public String getAuthor() {
+    return author;
+  }
+
+  public void setAuthor(String author) {
+    this.author = author;
+  }
+
+  public String getSubject() {
+    return subject;
+  }
+
+  public void setSubject(String subject) {
+    this.subject = subject;
+  }
+
+  /* INFO: Decompressed on the first call only, as in ReviewEntity. */
+  public String getContent() {
+    if (content != null || compressedContent == null) {
+      return content;
+    }
+    if (decompressedContent == null) {
+      decompressedContent = ContentCompression.decompress(compressedContent);
+    }
+    return decompressedContent;
+  }
+
+  public void setContent(String content) {
+    this.content = content;
+    this.compressedContent = null;
+    this.decompressedContent = null;
+  }
+
+  /**
+   * Moves the content to compressedContent if it is at least threshold bytes long and compresses well.
+   */
+  void compressContent(int threshold) {
+    byte[] compressed = ContentCompression.compress(content, threshold);
+    if (compressed != null) {
+      compressedContent = compressed;
+      decompressedContent = content;
+      content = null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ReviewRecord{" +
+        "id=" + id +
+        ", version=" + version +
+        ", productId=" + productId +
+        ", reviewId=" + reviewId +
+        ", author='" + author + '\'' +
+        ", subject='" + subject + '\'' +
+        ", content='" + getContent() + '\'' +
+        '}';
+  }
+}
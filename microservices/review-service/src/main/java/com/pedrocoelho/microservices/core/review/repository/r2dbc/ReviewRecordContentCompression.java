@@ -0,0 +1,37 @@
+package com.pedrocoelho.microservices.core.review.repository.r2dbc;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/* INFO: The R2DBC counterpart of ReviewContentCompression, with the same configuration, so reviews written through either path are stored alike. */
+@Component
+@Profile("r2dbc")
+public class ReviewRecordContentCompression implements BeforeConvertCallback<ReviewRecord> {
+
+  private final boolean enabled;
+  private final int threshold;
+
+  @Autowired
+  public ReviewRecordContentCompression(
+      @Value("${app.content-compression.enabled:false}") boolean enabled,
+      @Value("${app.content-compression.threshold:512}") int threshold) {
+
+    this.enabled = enabled;
+    this.threshold = threshold;
+  }
+
+  @Override
+  public Publisher<ReviewRecord> onBeforeConvert(ReviewRecord record, SqlIdentifier table) {
+
+    if (enabled) {
+      record.compressContent(threshold);
+    }
+    return Mono.just(record);
+  }
+}
@@ -0,0 +1,84 @@
+package com.pedrocoelho.microservices.core.review.repository.r2dbc;
+
+import com.pedrocoelho.microservices.core.review.repository.ReviewEntity;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Mono;
+
+/**
+ * Assigns the ids of new ReviewRecords from the hibernate_sequence table, as the generator of ReviewEntity does on
+ * MySQL, so both paths can write the reviews table. Like its pooled-lo optimizer, it reserves ReviewEntity.ID_BLOCK_SIZE
+ * ids per round trip: the value in the table is the first id of the next free block.
+ * <p>
+ * A block is reserved in a transaction of its own, so a rolled back write does not hand out its ids again. Requests
+ * that find the block used up at the same time each reserve one and all but the last are left partly unused, which
+ * only leaves gaps in the ids.
+ */
+@Component
+@Profile("r2dbc")
+public class ReviewRecordIdGenerator implements BeforeConvertCallback<ReviewRecord> {
+
+  private final DatabaseClient databaseClient;
+  private final TransactionalOperator newTransaction;
+
+  private int next;
+  private int limit;
+
+  @Autowired
+  public ReviewRecordIdGenerator(DatabaseClient databaseClient, ReactiveTransactionManager transactionManager) {
+
+    this.databaseClient = databaseClient;
+    this.newTransaction = TransactionalOperator.create(transactionManager,
+        new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+  }
+
+  @Override
+  public Publisher<ReviewRecord> onBeforeConvert(ReviewRecord record, SqlIdentifier table) {
+
+    if (record.getId() != null) {
+      return Mono.just(record);
+    }
+    return nextId().map(id -> {
+      record.setId(id);
+      return record;
+    });
+  }
+
+  private Mono<Integer> nextId() {
+
+    synchronized (this) {
+      if (next < limit) {
+        return Mono.just(next++);
+      }
+    }
+    return reserveBlock().map(first -> {
+      synchronized (this) {
+        next = first + 1;
+        limit = first + ReviewEntity.ID_BLOCK_SIZE;
+      }
+      return first;
+    });
+  }
+
+  private Mono<Integer> reserveBlock() {
+
+    return databaseClient.sql("SELECT next_val FROM hibernate_sequence FOR UPDATE")
+        .map(row -> row.get("next_val", Long.class))
+        .one()
+        .flatMap(first -> databaseClient.sql("UPDATE hibernate_sequence SET next_val = :next")
+            .bind("next", first + ReviewEntity.ID_BLOCK_SIZE)
+            .fetch()
+            .rowsUpdated()
+            .thenReturn(first.intValue()))
+        .as(newTransaction::transactional);
+  }
+}
@@ -0,0 +1,168 @@
+package com.pedrocoelho.microservices.core.review.services;
+
+import com.pedrocoelho.api.composite.product.ReviewSummary;
+import com.pedrocoelho.api.core.review.Review;
+import com.pedrocoelho.api.core.review.ReviewStatistics;
+import com.pedrocoelho.api.exceptions.InvalidInputException;
+import com.pedrocoelho.microservices.core.review.repository.r2dbc.ReactiveReviewRepository;
+import com.pedrocoelho.microservices.core.review.repository.r2dbc.ReviewRecord;
+import com.pedrocoelho.microservices.core.review.statistics.R2dbcReviewStatisticsStore;
+import com.pedrocoelho.util.http.ServiceUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The review API of ReviewService on R2DBC, used by the "r2dbc" profile instead of ReviewServiceImpl. The handlers
+ * return Mono and Flux, so no thread waits for the database. It cannot implement ReviewService, whose methods return
+ * the values themselves, but serves the same paths with the same responses and errors.
+ */
+@RestController
+@Profile("r2dbc")
+public class ReactiveReviewServiceImpl {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReactiveReviewServiceImpl.class);
+
+  private final ReactiveReviewRepository repository;
+
+  private final R2dbcReviewStatisticsStore statistics;
+
+  private final ReviewMapper mapper;
+
+  private final ServiceUtil serviceUtil;
+
+  private final int maxBatchSize;
+
+  @Autowired
+  public ReactiveReviewServiceImpl(
+      ReactiveReviewRepository repository,
+      R2dbcReviewStatisticsStore statistics,
+      ReviewMapper mapper,
+      ServiceUtil serviceUtil,
+      @Value("${app.review.batch.max-size:1000}") int maxBatchSize) {
+
+    this.repository = repository;
+    this.statistics = statistics;
+    this.mapper = mapper;
+    this.serviceUtil = serviceUtil;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  @PostMapping(
+      value = "/review",
+      consumes = "application/json",
+      produces = "application/json")
+  @Transactional
+  public Mono<Review> createReview(@RequestBody Review body) {
+
+    return repository.save(mapper.modelToRecord(body))
+        .doOnNext(saved -> LOG.debug("createReview: created a review record: {}/{}", body.getProductId(), body.getReviewId()))
+        .flatMap(saved -> statistics.add(saved.getProductId(), 1).thenReturn(saved))
+        .map(mapper::recordToModel)
+        .onErrorMap(DataIntegrityViolationException.class,
+            ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId() + ", Review Id: " + body.getReviewId()));
+  }
+
+  @PostMapping(
+      value = "/reviews",
+      consumes = "application/json",
+      produces = "application/json")
+  @Transactional
+  public Flux<Review> createReviews(@RequestBody List<Review> body) {
+
+    if (body.size() > maxBatchSize) {
+      throw new InvalidInputException("Too many reviews: " + body.size() + ", at most " + maxBatchSize + " per request");
+    }
+
+    return repository.saveAll(body.stream().map(mapper::modelToRecord).collect(Collectors.toList()))
+        .collectList()
+        .flatMapMany(saved -> addStatistics(saved).thenMany(Flux.fromIterable(saved)))
+        .map(mapper::recordToModel)
+        .onErrorMap(DataIntegrityViolationException.class,
+            ex -> new InvalidInputException("Duplicate key, at least one of the " + body.size() + " reviews already exists"));
+  }
+
+  private Mono<Void> addStatistics(List<ReviewRecord> saved) {
+
+    Map<Integer, Long> reviewsPerProduct = saved.stream()
+        .collect(Collectors.groupingBy(ReviewRecord::getProductId, Collectors.counting()));
+    return Flux.fromIterable(reviewsPerProduct.entrySet())
+        .concatMap(reviews -> statistics.add(reviews.getKey(), reviews.getValue().intValue()))
+        .then();
+  }
+
+  @GetMapping(
+      value = "/review",
+      produces = "application/json")
+  public Flux<Review> getReviews(@RequestParam(value = "productId", required = true) int productId) {
+
+    if (productId < 1) {
+      throw new InvalidInputException("Invalid productId: " + productId);
+    }
+
+    String serviceAddress = serviceUtil.getServiceAddress();
+    return repository.findByProductId(productId)
+        .map(record -> {
+          Review review = mapper.recordToModel(record);
+          review.setServiceAddress(serviceAddress);
+          return review;
+        });
+  }
+
+  /* INFO: Collected into a list, the ETag header depends on all the reviews and has to be sent before the body. */
+  @GetMapping(
+      value = "/review/summaries",
+      produces = "application/json")
+  public Mono<List<ReviewSummary>> getReviewSummaries(@RequestParam(value = "productId", required = true) int productId, ServerWebExchange exchange) {
+
+    if (productId < 1) {
+      throw new InvalidInputException("Invalid productId: " + productId);
+    }
+
+    String serviceAddress = serviceUtil.getServiceAddress();
+    return repository.findByProductId(productId)
+        .map(mapper::recordToModel)
+        .collectList()
+        .flatMap(reviews -> Mono.justOrEmpty(ReviewServiceImpl.summaries(reviews, serviceAddress, exchange)));
+  }
+
+  /* INFO: Read from the review_statistics table, kept up to date on writes as on the JPA path, instead of counting the reviews. */
+  @GetMapping(
+      value = "/review/statistics",
+      produces = "application/json")
+  public Mono<ReviewStatistics> getReviewStatistics(@RequestParam(value = "productId", required = true) int productId) {
+
+    if (productId < 1) {
+      throw new InvalidInputException("Invalid productId: " + productId);
+    }
+
+    String serviceAddress = serviceUtil.getServiceAddress();
+    return statistics.count(productId)
+        .map(count -> new ReviewStatistics(productId, count, serviceAddress));
+  }
+
+  @DeleteMapping(value = "/review")
+  @Transactional
+  public Mono<Void> deleteReviews(@RequestParam(value = "productId", required = true) int productId) {
+
+    LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
+    return repository.deleteByProductId(productId).then(statistics.clear(productId));
+  }
+}
@@ -2,6 +2,7 @@ package com.pedrocoelho.microservices.core.review.services;
 
 import com.pedrocoelho.api.core.review.Review;
 import com.pedrocoelho.microservices.core.review.repository.ReviewEntity;
+import com.pedrocoelho.microservices.core.review.repository.r2dbc.ReviewRecord;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
@@ -25,4 +26,15 @@ public interface ReviewMapper {
   List<Review> entityListToModelList(List<ReviewEntity> entity);
 
   List<ReviewEntity> modelListToEntityList(List<Review> api);
+
+  @Mappings({
+      @Mapping(target = "serviceAddress", ignore = true)
+  })
+  Review recordToModel(ReviewRecord record);
+
+  @Mappings({
+      @Mapping(target = "id", ignore = true),
+      @Mapping(target = "version", ignore = true)
+  })
+  ReviewRecord modelToRecord(Review api);
 }
@@ -3,21 +3,40 @@ package com.pedrocoelho.microservices.core.review.services;
 import java.util.List;
 
 import com.mysql.cj.util.StringUtils;
+import com.pedrocoelho.api.composite.product.ReviewSummary;
 import com.pedrocoelho.api.core.review.Review;
 import com.pedrocoelho.api.core.review.ReviewService;
+import com.pedrocoelho.api.core.review.ReviewStatistics;
 import com.pedrocoelho.api.exceptions.InvalidInputException;
+import com.pedrocoelho.microservices.core.review.datasource.ReadYourWrites;
+import com.pedrocoelho.microservices.core.review.datasource.ReplicaRoutingDataSource;
 import com.pedrocoelho.microservices.core.review.repository.ReviewEntity;
 import com.pedrocoelho.microservices.core.review.repository.ReviewRepository;
+import com.pedrocoelho.microservices.core.review.statistics.ReviewStatisticsStore;
 import com.pedrocoelho.util.http.ServiceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.util.Streamable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+/* INFO: Replaced by ReactiveReviewServiceImpl in the "r2dbc" profile. */
 @RestController
+@Profile("!r2dbc")
 public class ReviewServiceImpl implements ReviewService {
 
   private static final Logger LOG = LoggerFactory.getLogger(ReviewServiceImpl.class);
@@ -28,12 +47,32 @@ public class ReviewServiceImpl implements ReviewService {
 
   private final ServiceUtil serviceUtil;
 
+  private final ReadYourWrites readYourWrites;
+
+  private final ReviewStatisticsStore statistics;
+
+  /* INFO: Null in the "inmemory" profile, which has no transaction manager. */
+  private final TransactionTemplate transactionTemplate;
+
+  private final int maxBatchSize;
+
   @Autowired
-  public ReviewServiceImpl(ReviewRepository repository, ReviewMapper mapper, ServiceUtil serviceUtil) {
+  public ReviewServiceImpl(
+      ReviewRepository repository,
+      ReviewMapper mapper,
+      ServiceUtil serviceUtil,
+      ReadYourWrites readYourWrites,
+      ReviewStatisticsStore statistics,
+      ObjectProvider<PlatformTransactionManager> transactionManager,
+      @Value("${app.review.batch.max-size:1000}") int maxBatchSize) {
 
     this.repository = repository;
     this.mapper = mapper;
     this.serviceUtil = serviceUtil;
+    this.readYourWrites = readYourWrites;
+    this.statistics = statistics;
+    this.transactionTemplate = transactionManager.stream().findFirst().map(TransactionTemplate::new).orElse(null);
+    this.maxBatchSize = maxBatchSize;
   }
 
   @Override
@@ -41,7 +80,12 @@ public class ReviewServiceImpl implements ReviewService {
 
     try {
       ReviewEntity entity = mapper.modelToEntity(body);
-      ReviewEntity newEntity = repository.save(entity);
+      ReviewEntity newEntity = inTransaction(() -> {
+        ReviewEntity saved = repository.save(entity);
+        statistics.add(body.getProductId(), 1);
+        return saved;
+      });
+      readYourWrites.markWritten(body.getProductId());
 
       LOG.debug("createReview: created a review entity: {}/{}", body.getProductId(), body.getReviewId());
       return mapper.entityToModel(newEntity);
@@ -51,6 +95,32 @@ public class ReviewServiceImpl implements ReviewService {
     }
   }
 
+  /* INFO: The reviews and the statistics are written in a single transaction, so a duplicate key rolls back the whole batch. The ids come in blocks and the inserts are sent in JDBC batches, see ReviewEntity and hibernate.jdbc.batch_size. */
+  @Override
+  public List<Review> createReviews(List<Review> body) {
+
+    if (body.size() > maxBatchSize) {
+      throw new InvalidInputException("Too many reviews: " + body.size() + ", at most " + maxBatchSize + " per request");
+    }
+
+    try {
+      List<ReviewEntity> entities = mapper.modelListToEntityList(body);
+      List<ReviewEntity> newEntities = inTransaction(() -> {
+        List<ReviewEntity> saved = Streamable.of(repository.saveAll(entities)).toList();
+        Map<Integer, Long> perProduct = body.stream().collect(Collectors.groupingBy(Review::getProductId, Collectors.counting()));
+        perProduct.forEach((productId, reviews) -> statistics.add(productId, reviews.intValue()));
+        return saved;
+      });
+      body.stream().mapToInt(Review::getProductId).distinct().forEach(readYourWrites::markWritten);
+
+      LOG.debug("createReviews: created {} review entities", newEntities.size());
+      return mapper.entityListToModelList(newEntities);
+
+    } catch (DataIntegrityViolationException dive) {
+      throw new InvalidInputException("Duplicate key, at least one of the " + body.size() + " reviews already exists");
+    }
+  }
+
   @Override
   public List<Review> getReviews(int productId) {
 
@@ -58,7 +128,7 @@ public class ReviewServiceImpl implements ReviewService {
       throw new InvalidInputException("Invalid productId: " + productId);
     }
 
-    List<ReviewEntity> entityList = repository.findByProductId(productId);
+    List<ReviewEntity> entityList = readYourWrites.read(productId, () -> repository.findByProductId(productId));
     List<Review> list = mapper.entityListToModelList(entityList);
     list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
 
@@ -67,10 +137,64 @@ public class ReviewServiceImpl implements ReviewService {
     return list;
   }
 
+  @Override
+  public List<ReviewSummary> getReviewSummaries(int productId, ServerWebExchange exchange) {
+
+    if (productId < 1) {
+      throw new InvalidInputException("Invalid productId: " + productId);
+    }
+
+    List<ReviewEntity> entityList = readYourWrites.read(productId, () -> repository.findByProductId(productId));
+
+    LOG.debug("getReviewSummaries: response size: {}", entityList.size());
+
+    return summaries(mapper.entityListToModelList(entityList), serviceUtil.getServiceAddress(), exchange);
+  }
+
+  /* INFO: Shared with ReactiveReviewServiceImpl. The ETag hashes the ids, versions and contents, so adding, removing or updating a review changes it, and so does re-creating a review with the same id, whose version starts over. A matching If-None-Match is answered with 304 and no body. */
+  static List<ReviewSummary> summaries(List<Review> reviews, String serviceAddress, ServerWebExchange exchange) {
+
+    long hash = reviews.size();
+    List<ReviewSummary> summaries = new ArrayList<>(reviews.size());
+    for (Review r : reviews) {
+      hash = 31 * (31 * hash + r.getReviewId()) + r.getVersion();
+      hash = 31 * hash + Objects.hash(r.getAuthor(), r.getSubject(), r.getContent());
+      summaries.add(new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()));
+    }
+
+    exchange.getResponse().getHeaders().set(ServiceUtil.SERVICE_ADDRESS_HEADER, serviceAddress);
+    return exchange.checkNotModified("\"" + Long.toHexString(hash) + "\"") ? null : summaries;
+  }
+
+  @Override
+  public ReviewStatistics getReviewStatistics(int productId) {
+
+    if (productId < 1) {
+      throw new InvalidInputException("Invalid productId: " + productId);
+    }
+
+    int count = readYourWrites.read(productId, () -> statistics.count(productId));
+
+    LOG.debug("getReviewStatistics: {} reviews for productId: {}", count, productId);
+
+    return new ReviewStatistics(productId, count, serviceUtil.getServiceAddress());
+  }
+
   @Override
   public void deleteReviews(int productId) {
 
     LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
-    repository.deleteAll(repository.findByProductId(productId));
+    /* INFO: Looked up on the primary, a lagging replica could miss reviews that were just created. */
+    inTransaction(() -> {
+      repository.deleteAll(ReplicaRoutingDataSource.onPrimary(() -> repository.findByProductId(productId)));
+      statistics.clear(productId);
+      return null;
+    });
+    readYourWrites.markWritten(productId);
+  }
+
+  private <T> T inTransaction(Supplier<T> work) {
+
+    return transactionTemplate == null ? work.get() : transactionTemplate.execute(status -> work.get());
   }
 }
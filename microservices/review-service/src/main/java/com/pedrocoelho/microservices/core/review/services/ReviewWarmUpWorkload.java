@@ -0,0 +1,38 @@
+package com.pedrocoelho.microservices.core.review.services;
+
+import com.pedrocoelho.api.core.review.Review;
+import com.pedrocoelho.util.startup.WarmUpWorkload;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/* INFO: Creates a few reviews for a product, reads them and deletes them through the HTTP API, so the warm-up covers the controller, the mapper and the repository in the mix of real traffic, which is mostly reads. */
+@Component
+public class ReviewWarmUpWorkload implements WarmUpWorkload {
+
+  private static final int REVIEWS_PER_RUN = 3;
+  private static final int READS_PER_RUN = 4;
+  private static final ParameterizedTypeReference<List<Review>> REVIEWS = new ParameterizedTypeReference<>() {};
+
+  @Override
+  public Mono<Void> run(WebClient client, int productId) {
+
+    return Flux.range(1, REVIEWS_PER_RUN)
+        .concatMap(reviewId -> client.post().uri("/review")
+            .bodyValue(new Review(productId, reviewId, "warm-up", "warm-up", "warm-up", null))
+            .retrieve().toBodilessEntity())
+        .thenMany(Flux.range(0, READS_PER_RUN)
+            .concatMap(i -> client.get().uri("/review?productId={productId}", productId).retrieve().bodyToMono(REVIEWS)))
+        .then(cleanUp(client, productId));
+  }
+
+  @Override
+  public Mono<Void> cleanUp(WebClient client, int productId) {
+
+    return client.delete().uri("/review?productId={productId}", productId).retrieve().toBodilessEntity().then();
+  }
+}
@@ -0,0 +1,32 @@
+package com.pedrocoelho.microservices.core.review.statistics;
+
+import com.pedrocoelho.util.collections.ConcurrentIntObjectMap;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/* INFO: The review statistics of the "inmemory" profile, next to InMemoryReviewRepository. */
+@Component
+@Profile("inmemory")
+public class InMemoryReviewStatisticsStore implements ReviewStatisticsStore {
+
+  private final ConcurrentIntObjectMap<Integer> counts = new ConcurrentIntObjectMap<>();
+
+  @Override
+  public void add(int productId, int reviews) {
+
+    counts.compute(productId, (key, current) -> current == null ? reviews : current + reviews);
+  }
+
+  @Override
+  public void clear(int productId) {
+
+    counts.remove(productId);
+  }
+
+  @Override
+  public int count(int productId) {
+
+    Integer count = counts.get(productId);
+    return count == null ? 0 : count;
+  }
+}
@@ -0,0 +1,108 @@
+package com.pedrocoelho.microservices.core.review.statistics;
+
+import org.hibernate.query.NativeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Keeps the review statistics in the review_statistics table, next to the reviews, so they are updated in the same
+ * transaction.
+ * <p>
+ * A count is changed with a single upsert, MySQL's INSERT ... ON DUPLICATE KEY UPDATE, which also holds when the first
+ * reviews of a product are created concurrently. The native statements are declared to touch ReviewStatisticsEntity
+ * only, otherwise Hibernate would evict all second-level and query cache regions, the cached reviews included, on
+ * every write.
+ */
+@Component
+@Profile("!inmemory & !r2dbc")
+public class JpaReviewStatisticsStore implements ReviewStatisticsStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JpaReviewStatisticsStore.class);
+
+  private static final String BACKFILL = "review_statistics_backfill";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  public JpaReviewStatisticsStore(PlatformTransactionManager transactionManager) {
+
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  @Override
+  public void add(int productId, int reviews) {
+
+    entityManager.createNativeQuery(
+            "INSERT INTO review_statistics (product_id, review_count) VALUES (:productId, :reviews) " +
+            "ON DUPLICATE KEY UPDATE review_count = review_count + :reviews")
+        .unwrap(NativeQuery.class)
+        .addSynchronizedEntityClass(ReviewStatisticsEntity.class)
+        .setParameter("productId", productId)
+        .setParameter("reviews", reviews)
+        .executeUpdate();
+  }
+
+  @Override
+  public void clear(int productId) {
+
+    entityManager.createQuery("DELETE FROM ReviewStatisticsEntity s WHERE s.productId = :productId")
+        .setParameter("productId", productId)
+        .executeUpdate();
+  }
+
+  /* INFO: Read-only, so it goes to a replica when there are replicas, see ReplicaRoutingDataSource. */
+  @Override
+  @Transactional(readOnly = true)
+  public int count(int productId) {
+
+    ReviewStatisticsEntity statistics = entityManager.find(ReviewStatisticsEntity.class, productId);
+    return statistics == null ? 0 : statistics.getReviewCount();
+  }
+
+  /* INFO: Computes the review statistics from the reviews once per database, for databases with reviews from before the statistics were kept. Whether it ran is recorded in the statistics_migrations table, not derived from review_statistics, which reviews created during startup may have filled already. */
+  /* INFO: The marker row is inserted first, in the same transaction, so a second replica waits on its lock and then finds it; a crash rolls both back. Counts that exist already are replaced by the counted ones, which include the reviews behind them. Reviews written while it runs may be counted twice or not at all, delete and recreate the statistics of such a product if that matters. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfill() {
+
+    try {
+      Integer products = transactionTemplate.execute(status -> {
+        int claimed = entityManager.createNativeQuery("INSERT IGNORE INTO statistics_migrations (name) VALUES (:name)")
+            .unwrap(NativeQuery.class)
+            .addSynchronizedEntityClass(StatisticsMigrationEntity.class)
+            .setParameter("name", BACKFILL)
+            .executeUpdate();
+        if (claimed == 0) {
+          return null;
+        }
+
+        entityManager.createQuery("DELETE FROM ReviewStatisticsEntity").executeUpdate();
+        return entityManager.createNativeQuery(
+                "INSERT INTO review_statistics (product_id, review_count) " +
+                "SELECT product_id, COUNT(*) FROM reviews GROUP BY product_id")
+            .unwrap(NativeQuery.class)
+            .addSynchronizedEntityClass(ReviewStatisticsEntity.class)
+            .executeUpdate();
+      });
+      if (products != null) {
+        LOG.info("backfill: computed the review statistics of {} products", products);
+      }
+    } catch (DataIntegrityViolationException dive) {
+      LOG.warn("backfill: the statistics were backfilled by another replica meanwhile, they were left as they are: {}", dive.getMessage());
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package com.pedrocoelho.microservices.core.review.statistics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * The R2DBC counterpart of JpaReviewStatisticsStore, on the same review_statistics table, so the counts stay right
+ * whichever path writes the reviews. It cannot implement ReviewStatisticsStore, whose methods block. Writes are
+ * expected to run in the transaction that writes the reviews.
+ */
+@Component
+@Profile("r2dbc")
+public class R2dbcReviewStatisticsStore {
+
+  private final DatabaseClient databaseClient;
+
+  @Autowired
+  public R2dbcReviewStatisticsStore(DatabaseClient databaseClient) {
+
+    this.databaseClient = databaseClient;
+  }
+
+  /* INFO: VALUES(review_count) refers to the value of the insert, so the statement binds each parameter once. */
+  public Mono<Void> add(int productId, int reviews) {
+
+    return databaseClient.sql(
+            "INSERT INTO review_statistics (product_id, review_count) VALUES (:productId, :reviews) " +
+            "ON DUPLICATE KEY UPDATE review_count = review_count + VALUES(review_count)")
+        .bind("productId", productId)
+        .bind("reviews", reviews)
+        .then();
+  }
+
+  public Mono<Void> clear(int productId) {
+
+    return databaseClient.sql("DELETE FROM review_statistics WHERE product_id = :productId")
+        .bind("productId", productId)
+        .then();
+  }
+
+  public Mono<Integer> count(int productId) {
+
+    return databaseClient.sql("SELECT review_count FROM review_statistics WHERE product_id = :productId")
+        .bind("productId", productId)
+        .map(row -> row.get("review_count", Integer.class))
+        .one()
+        .defaultIfEmpty(0);
+  }
+}
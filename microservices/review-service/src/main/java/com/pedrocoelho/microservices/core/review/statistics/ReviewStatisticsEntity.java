@@ -0,0 +1,37 @@
+package com.pedrocoelho.microservices.core.review.statistics;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/* INFO: One row per product with reviews, written by JpaReviewStatisticsStore. Not cached, the counter changes with every review of the product. */
+@Entity
+@Table(name = "review_statistics")
+public class ReviewStatisticsEntity {
+  @Id
+  private int productId;
+  private int reviewCount;
+
+  public ReviewStatisticsEntity() {}
+
+  public ReviewStatisticsEntity(int productId, int reviewCount) {
+    this.productId = productId;
+    this.reviewCount = reviewCount;
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public void setProductId(int productId) {
+    this.productId = productId;
+  }
+
+  public int getReviewCount() {
+    return reviewCount;
+  }
+
+  public void setReviewCount(int reviewCount) {
+    this.reviewCount = reviewCount;
+  }
+}
@@ -0,0 +1,14 @@
+package com.pedrocoelho.microservices.core.review.statistics;
+
+/**
+ * The number of reviews per product, kept up to date by ReviewServiceImpl on every create and delete so it can be
+ * read without counting the reviews. Writes are expected to run in the transaction that writes the reviews.
+ */
+public interface ReviewStatisticsStore {
+
+  void add(int productId, int reviews);
+
+  void clear(int productId);
+
+  int count(int productId);
+}
@@ -0,0 +1,27 @@
+package com.pedrocoelho.microservices.core.review.statistics;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/* INFO: One row per one-off migration of the statistics that has completed, written by JpaReviewStatisticsStore. */
+@Entity
+@Table(name = "statistics_migrations")
+public class StatisticsMigrationEntity {
+  @Id
+  private String name;
+
+  public StatisticsMigrationEntity() {}
+
+  public StatisticsMigrationEntity(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+}
@@ -0,0 +1,22 @@
+CREATE TABLE IF NOT EXISTS reviews (
+  id INT NOT NULL PRIMARY KEY,
+  version INT,
+  product_id INT NOT NULL,
+  review_id INT NOT NULL,
+  author VARCHAR(255),
+  subject VARCHAR(255),
+  content VARCHAR(255),
+  content_lz4 LONGBLOB,
+  CONSTRAINT reviews_unique_idx UNIQUE (product_id, review_id)
+);
+
+CREATE TABLE IF NOT EXISTS hibernate_sequence (
+  next_val BIGINT
+);
+
+INSERT INTO hibernate_sequence (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM hibernate_sequence);
+
+CREATE TABLE IF NOT EXISTS review_statistics (
+  product_id INT NOT NULL PRIMARY KEY,
+  review_count INT NOT NULL
+);
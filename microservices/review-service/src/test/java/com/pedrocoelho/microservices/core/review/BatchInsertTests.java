@@ -0,0 +1,71 @@
+package com.pedrocoelho.microservices.core.review;
+
+import com.pedrocoelho.api.core.review.Review;
+import com.pedrocoelho.api.exceptions.InvalidInputException;
+import com.pedrocoelho.microservices.core.review.repository.ReviewEntity;
+import com.pedrocoelho.microservices.core.review.repository.ReviewRepository;
+import com.pedrocoelho.microservices.core.review.services.ReviewServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.stream.IntStream.rangeClosed;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+/* INFO: Counts the statements Hibernate prepares, on the H2 stand-in. Without id blocks and batching, every review would need its own id round trip and its own insert. */
+@SpringBootTest(webEnvironment = NONE, properties = "app.review.cache.statistics=true")
+@ActiveProfiles("h2")
+class BatchInsertTests {
+
+  private static final int REVIEWS = 2 * ReviewEntity.ID_BLOCK_SIZE;
+
+  @Autowired
+  private ReviewRepository repository;
+
+  @Autowired
+  private ReviewServiceImpl service;
+
+  private Statistics statistics;
+
+  @BeforeEach
+  void setUp(@Autowired EntityManagerFactory entityManagerFactory) {
+    repository.deleteAll();
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  @Test
+  void insertsAreBatched() {
+    List<ReviewEntity> entities = rangeClosed(1, REVIEWS).mapToObj(i -> new ReviewEntity(1, i, "a", "s", "c")).collect(Collectors.toList());
+
+    repository.saveAll(entities);
+
+    assertEquals(REVIEWS, statistics.getEntityInsertCount());
+    assertTrue(statistics.getPrepareStatementCount() < 10, "prepared " + statistics.getPrepareStatementCount() + " statements");
+    assertEquals(REVIEWS, entities.stream().mapToInt(ReviewEntity::getId).distinct().count());
+  }
+
+  @Test
+  void createReviewsIsAllOrNothing() {
+    service.createReview(new Review(1, 3, "a", "s", "c", null));
+    List<Review> reviews = rangeClosed(1, 5).mapToObj(i -> new Review(1, i, "a", "s", "c", null)).collect(Collectors.toList());
+
+    assertThrows(InvalidInputException.class, () -> service.createReviews(reviews));
+    assertEquals(1, repository.count());
+
+    List<Review> otherProduct = rangeClosed(1, 5).mapToObj(i -> new Review(2, i, "a", "s", "c", null)).collect(Collectors.toList());
+    assertEquals(5, service.createReviews(otherProduct).size());
+    assertEquals(6, repository.count());
+  }
+}
@@ -0,0 +1,68 @@
+package com.pedrocoelho.microservices.core.review;
+
+import com.pedrocoelho.microservices.core.review.repository.ReviewEntity;
+import com.pedrocoelho.microservices.core.review.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+@SpringBootTest(webEnvironment = NONE, properties = {"app.content-compression.enabled=true", "app.content-compression.threshold=256"})
+@ActiveProfiles("h2")
+class CompressedContentTests {
+
+  private static final String LONG_CONTENT = "Sturdy, quiet and easy to clean, would buy again. ".repeat(20);
+
+  @Autowired
+  private ReviewRepository repository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void setUp() {
+    repository.deleteAll();
+  }
+
+  @Test
+  void longContentIsStoredCompressed() {
+    repository.save(new ReviewEntity(1, 1, "a", "s", LONG_CONTENT));
+
+    assertNull(jdbcTemplate.queryForObject("SELECT content FROM reviews WHERE review_id = 1", String.class));
+    byte[] compressed = jdbcTemplate.queryForObject("SELECT content_lz4 FROM reviews WHERE review_id = 1", byte[].class);
+    assertTrue(compressed.length < LONG_CONTENT.length() / 4);
+
+    List<ReviewEntity> found = repository.findByProductId(1);
+    assertEquals(LONG_CONTENT, found.get(0).getContent());
+  }
+
+  @Test
+  void shortContentIsStoredAsItIs() {
+    repository.save(new ReviewEntity(1, 2, "a", "s", "short"));
+
+    assertEquals("short", jdbcTemplate.queryForObject("SELECT content FROM reviews WHERE review_id = 2", String.class));
+    assertFalse(jdbcTemplate.queryForObject("SELECT content_lz4 IS NOT NULL FROM reviews WHERE review_id = 2", Boolean.class));
+    assertEquals("short", repository.findByProductId(1).get(0).getContent());
+  }
+
+  @Test
+  void updatedContentIsCompressedAgain() {
+    ReviewEntity entity = repository.save(new ReviewEntity(1, 3, "a", "s", "short"));
+
+    entity.setContent(LONG_CONTENT);
+    repository.save(entity);
+
+    assertNull(jdbcTemplate.queryForObject("SELECT content FROM reviews WHERE review_id = 3", String.class));
+    assertEquals(LONG_CONTENT, repository.findByProductId(1).get(0).getContent());
+  }
+}
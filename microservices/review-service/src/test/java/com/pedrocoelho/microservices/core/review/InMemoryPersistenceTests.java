@@ -0,0 +1,87 @@
+package com.pedrocoelho.microservices.core.review;
+
+import com.pedrocoelho.microservices.core.review.repository.InMemoryReviewRepository;
+import com.pedrocoelho.microservices.core.review.repository.ReviewEntity;
+import com.pedrocoelho.microservices.core.review.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+/* INFO: Runs without a database, the "inmemory" profile must start the application without MySQL and give the same repository semantics that PersistenceTests verifies on MySQL. */
+@SpringBootTest(webEnvironment = NONE)
+@ActiveProfiles("inmemory")
+class InMemoryPersistenceTests {
+
+  @Autowired
+  private ReviewRepository repository;
+  private ReviewEntity savedEntity;
+
+  @BeforeEach
+  void setUp() {
+    repository.deleteAll();
+    savedEntity = repository.save(new ReviewEntity(1, 2, "a", "s", "c"));
+    assertEquals(1, repository.count());
+  }
+
+  @Test
+  void usesInMemoryRepository() {
+    assertInstanceOf(InMemoryReviewRepository.class, repository);
+  }
+
+  @Test
+  void create() {
+    ReviewEntity newEntity = new ReviewEntity(1, 3, "a", "s", "c");
+    repository.save(newEntity);
+    assertNotEquals(savedEntity.getId(), newEntity.getId());
+    assertThat(repository.findByProductId(1), hasSize(2));
+    assertEquals(2, repository.count());
+  }
+
+  @Test
+  void update() {
+    savedEntity.setAuthor("a1");
+    repository.save(savedEntity);
+    ReviewEntity foundEntity = repository.findById(savedEntity.getId()).get();
+    assertEquals(savedEntity.getVersion() + 1, foundEntity.getVersion());
+    assertEquals(savedEntity.getAuthor(), foundEntity.getAuthor());
+  }
+
+  @Test
+  void delete() {
+    repository.deleteAll(repository.findByProductId(1));
+    assertFalse(repository.existsById(savedEntity.getId()));
+    assertEquals(0, repository.count());
+  }
+
+  @Test
+  void duplicateError() {
+    assertThrows(DataIntegrityViolationException.class, () -> repository.save(new ReviewEntity(1, 2, "a", "s", "c")));
+  }
+
+  @Test
+  void optimisticLockError() {
+    ReviewEntity entity1 = repository.findById(savedEntity.getId()).get();
+    ReviewEntity entity2 = repository.findById(savedEntity.getId()).get();
+
+    entity1.setAuthor("a1");
+    repository.save(entity1);
+
+    assertThrows(OptimisticLockingFailureException.class, () -> {
+      entity2.setAuthor("a2");
+      repository.save(entity2);
+    });
+
+    ReviewEntity updatedEntity = repository.findById(savedEntity.getId()).get();
+    assertEquals(savedEntity.getVersion() + 1, updatedEntity.getVersion());
+    assertEquals(entity1.getAuthor(), updatedEntity.getAuthor());
+  }
+}
@@ -0,0 +1,197 @@
+package com.pedrocoelho.microservices.core.review;
+
+import com.pedrocoelho.api.core.review.Review;
+import com.pedrocoelho.microservices.core.review.repository.r2dbc.ReactiveReviewRepository;
+import com.pedrocoelho.microservices.core.review.repository.r2dbc.ReviewRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static reactor.core.publisher.Mono.just;
+
+/* INFO: Runs the "r2dbc" profile on the in-memory H2 stand-in, so the R2DBC path keeps the API's semantics, including the duplicate key error, without MySQL. Compression is enabled with a threshold the other tests' content stays below. */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"app.content-compression.enabled=true", "app.content-compression.threshold=256"})
+@ActiveProfiles({"r2dbc", "h2"})
+class R2dbcPersistenceTests {
+
+  @Autowired
+  private WebTestClient client;
+
+  @Autowired
+  private ReactiveReviewRepository repository;
+
+  @Autowired
+  private DatabaseClient databaseClient;
+
+  @BeforeEach
+  void setupDb() {
+    repository.deleteAll().block();
+    databaseClient.sql("DELETE FROM review_statistics").then().block();
+  }
+
+  @Test
+  void createAndGetReviews() {
+
+    int productId = 1;
+
+    postReviewAndVerify(productId, 1, OK)
+        .jsonPath("$.productId").isEqualTo(productId)
+        .jsonPath("$.reviewId").isEqualTo(1);
+    postReviewAndVerify(productId, 2, OK);
+
+    assertEquals(2, repository.findByProductId(productId).count().block());
+
+    client.get()
+        .uri("/review?productId=" + productId)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(APPLICATION_JSON)
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].serviceAddress").isNotEmpty();
+  }
+
+  @Test
+  void duplicateError() {
+
+    int productId = 1;
+    int reviewId = 1;
+
+    postReviewAndVerify(productId, reviewId, OK);
+
+    postReviewAndVerify(productId, reviewId, UNPROCESSABLE_ENTITY)
+        .jsonPath("$.path").isEqualTo("/review")
+        .jsonPath("$.message").isEqualTo("Duplicate key, Product Id: " + productId + ", Review Id: " + reviewId);
+
+    assertEquals(1, repository.findByProductId(productId).count().block());
+  }
+
+  @Test
+  void invalidProductId() {
+
+    client.get()
+        .uri("/review?productId=-1")
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(UNPROCESSABLE_ENTITY)
+        .expectBody()
+        .jsonPath("$.message").isEqualTo("Invalid productId: -1");
+  }
+
+  @Test
+  void deleteReviews() {
+
+    int productId = 1;
+
+    postReviewAndVerify(productId, 1, OK);
+    postReviewAndVerify(productId, 2, OK);
+    postReviewAndVerify(productId + 1, 1, OK);
+
+    client.delete().uri("/review?productId=" + productId).exchange().expectStatus().isOk();
+    client.delete().uri("/review?productId=" + productId).exchange().expectStatus().isOk();
+
+    assertEquals(0, repository.findByProductId(productId).count().block());
+    assertEquals(1, repository.findByProductId(productId + 1).count().block());
+  }
+
+  @Test
+  void statisticsFollowCreatesAndDeletes() {
+
+    int productId = 1;
+
+    postReviewAndVerify(productId, 1, OK);
+    postReviewAndVerify(productId, 2, OK);
+    postReviewAndVerify(productId, 2, UNPROCESSABLE_ENTITY);
+    getStatisticsAndVerify(productId, 2);
+
+    client.delete().uri("/review?productId=" + productId).exchange().expectStatus().isOk();
+    getStatisticsAndVerify(productId, 0);
+  }
+
+  @Test
+  void longContentIsStoredCompressed() {
+
+    int productId = 1;
+    String content = "Long content. ".repeat(100);
+
+    client.post()
+        .uri("/review")
+        .accept(APPLICATION_JSON)
+        .body(just(new Review(productId, 1, "a", "s", content, null)), Review.class)
+        .exchange()
+        .expectStatus().isOk();
+
+    ReviewRecord stored = repository.findByProductId(productId).blockFirst();
+    assertNotNull(stored.getId());
+    assertEquals(content, stored.getContent());
+    assertEquals(1L, databaseClient.sql("SELECT COUNT(*) AS compressed FROM reviews WHERE product_id = :productId AND content IS NULL AND content_lz4 IS NOT NULL")
+        .bind("productId", productId)
+        .map(row -> row.get("compressed", Long.class))
+        .one()
+        .block());
+
+    client.get()
+        .uri("/review?productId=" + productId)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$[0].content").isEqualTo(content);
+  }
+
+  @Test
+  void optimisticLockError() {
+
+    ReviewRecord saved = repository.save(new ReviewRecord(1, 2, "a", "s", "c")).block();
+    ReviewRecord record1 = repository.findById(saved.getId()).block();
+    ReviewRecord record2 = repository.findById(saved.getId()).block();
+
+    record1.setAuthor("a1");
+    repository.save(record1).block();
+
+    record2.setAuthor("a2");
+    StepVerifier.create(repository.save(record2)).expectError(OptimisticLockingFailureException.class).verify();
+
+    ReviewRecord updated = repository.findById(saved.getId()).block();
+    assertEquals(1, (int) updated.getVersion());
+    assertEquals("a1", updated.getAuthor());
+  }
+
+  private void getStatisticsAndVerify(int productId, int expectedCount) {
+
+    client.get()
+        .uri("/review/statistics?productId=" + productId)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.count").isEqualTo(expectedCount);
+  }
+
+  private WebTestClient.BodyContentSpec postReviewAndVerify(int productId, int reviewId, HttpStatus expectedStatus) {
+
+    Review review = new Review(productId, reviewId, "author-" + reviewId, "subject-" + reviewId, "content-" + reviewId, null);
+
+    return client.post()
+        .uri("/review")
+        .accept(APPLICATION_JSON)
+        .body(just(review), Review.class)
+        .exchange()
+        .expectStatus().isEqualTo(expectedStatus)
+        .expectHeader().contentType(APPLICATION_JSON)
+        .expectBody();
+  }
+}
@@ -0,0 +1,96 @@
+package com.pedrocoelho.microservices.core.review;
+
+import com.pedrocoelho.microservices.core.review.datasource.ReadYourWrites;
+import com.pedrocoelho.microservices.core.review.datasource.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/* INFO: Two in-memory H2 databases stand in for the primary and a replica, each one answers with its own name. */
+class ReplicaRoutingDataSourceTests {
+
+  private SimpleMeterRegistry registry;
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate readWrite;
+  private TransactionTemplate readOnly;
+
+  @BeforeEach
+  void setUp() {
+
+    DataSource primary = database("primary");
+    DataSource replica = database("replica-1");
+
+    registry = new SimpleMeterRegistry();
+    ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, Map.of("replica-1", replica), registry);
+    routing.afterPropertiesSet();
+    DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    readWrite = new TransactionTemplate(transactionManager);
+    readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+  }
+
+  @Test
+  void readOnlyTransactionsGoToTheReplica() {
+
+    /* INFO: The proxy has already fetched one connection from the primary, to learn the connection defaults. */
+    double primaryBefore = routed("primary");
+
+    assertEquals("replica-1", readOnly.execute(status -> databaseName()));
+    assertEquals("primary", readWrite.execute(status -> databaseName()));
+    assertEquals("primary", databaseName());
+
+    assertEquals(1.0, routed("replica-1"));
+    assertEquals(primaryBefore + 2.0, routed("primary"));
+  }
+
+  @Test
+  void onPrimaryOverridesReadOnly() {
+
+    assertEquals("primary", ReplicaRoutingDataSource.onPrimary(() -> readOnly.execute(status -> databaseName())));
+    assertEquals("replica-1", readOnly.execute(status -> databaseName()));
+  }
+
+  @Test
+  void readsStayOnThePrimaryWithinTheWindow() throws InterruptedException {
+
+    ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofMillis(200));
+    readYourWrites.markWritten(1);
+
+    assertEquals("primary", readYourWrites.read(1, () -> readOnly.execute(status -> databaseName())));
+    assertEquals("replica-1", readYourWrites.read(2, () -> readOnly.execute(status -> databaseName())));
+
+    Thread.sleep(250);
+    assertEquals("replica-1", readYourWrites.read(1, () -> readOnly.execute(status -> databaseName())));
+  }
+
+  private String databaseName() {
+    return jdbcTemplate.queryForObject("SELECT name FROM database_name", String.class);
+  }
+
+  private double routed(String pool) {
+    return registry.get("review.datasource.routed").tag("pool", pool).counter().count();
+  }
+
+  private static DataSource database(String name) {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS database_name (name VARCHAR(20))");
+    jdbcTemplate.update("DELETE FROM database_name");
+    jdbcTemplate.update("INSERT INTO database_name VALUES (?)", name);
+    return dataSource;
+  }
+}
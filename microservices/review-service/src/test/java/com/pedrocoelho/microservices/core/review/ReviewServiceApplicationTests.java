@@ -10,6 +10,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
@@ -98,6 +99,63 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
         .jsonPath("$[2].reviewId").isEqualTo(3);
   }
 
+  @Test
+  void getReviewSummaries() {
+
+    int productId = 1;
+
+    postReviewAndVerify(productId, 1, OK);
+    postReviewAndVerify(productId, 2, OK);
+
+    String eTag = client.get()
+        .uri("/review/summaries?productId=" + productId)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().exists("Service-Address")
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[1].reviewId").isEqualTo(2)
+        .jsonPath("$[1].subject").isEqualTo("subject-2")
+        .jsonPath("$[1].productId").doesNotExist()
+        .returnResult().getResponseHeaders().getETag();
+
+    client.get()
+        .uri("/review/summaries?productId=" + productId)
+        .header("If-None-Match", eTag)
+        .exchange()
+        .expectStatus().isNotModified()
+        .expectBody().isEmpty();
+
+    postReviewAndVerify(productId, 3, OK);
+
+    client.get()
+        .uri("/review/summaries?productId=" + productId)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().value("ETag", value -> assertNotEquals(eTag, value));
+  }
+
+  @Test
+  void recreatedReviewChangesSummariesETag() {
+
+    int productId = 1;
+
+    postReviewAndVerify(productId, 1, OK);
+    String eTag = getReviewSummariesETag(productId);
+
+    deleteReviewByProductIdAndVerify(productId, OK);
+    client.post()
+        .uri("/review")
+        .accept(APPLICATION_JSON)
+        .body(just(new Review(productId, 1, "author-1", "subject-1", "other content", "service-address-1")), Review.class)
+        .exchange()
+        .expectStatus().isOk();
+
+    assertNotEquals(eTag, getReviewSummariesETag(productId));
+  }
+
   @Test
   void getReviewsMissingParameter() {
 
@@ -174,6 +232,16 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
         .expectBody();
   }
 
+  private String getReviewSummariesETag(int productId) {
+
+    return client.get()
+        .uri("/review/summaries?productId=" + productId)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody().returnResult().getResponseHeaders().getETag();
+  }
+
   private WebTestClient.BodyContentSpec postReviewAndVerify(int productId, int reviewId, HttpStatus expectedStatus) {
 
     Review review = new Review(productId, reviewId, "author-" + reviewId, "subject-" + reviewId, "content-" + reviewId, "service-address-" + reviewId);
@@ -0,0 +1,103 @@
+package com.pedrocoelho.microservices.core.review;
+
+import com.pedrocoelho.api.core.review.Review;
+import com.pedrocoelho.api.exceptions.InvalidInputException;
+import com.pedrocoelho.microservices.core.review.repository.ReviewEntity;
+import com.pedrocoelho.microservices.core.review.repository.ReviewRepository;
+import com.pedrocoelho.microservices.core.review.services.ReviewServiceImpl;
+import com.pedrocoelho.microservices.core.review.statistics.JpaReviewStatisticsStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+/* INFO: The statistics must follow every create and delete, and a failed write must leave them as they were. */
+@SpringBootTest(webEnvironment = NONE)
+@ActiveProfiles("h2")
+class ReviewStatisticsTests {
+
+  @Autowired
+  private ReviewServiceImpl service;
+
+  @Autowired
+  private ReviewRepository repository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private JpaReviewStatisticsStore statistics;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void setUp() {
+    service.deleteReviews(1);
+    service.deleteReviews(2);
+  }
+
+  @Test
+  void countsFollowWrites() {
+    assertEquals(0, service.getReviewStatistics(1).getCount());
+
+    service.createReview(new Review(1, 1, "a", "s", "c", null));
+    service.createReviews(List.of(new Review(1, 2, "a", "s", "c", null), new Review(2, 1, "a", "s", "c", null)));
+
+    assertEquals(2, service.getReviewStatistics(1).getCount());
+    assertEquals(1, service.getReviewStatistics(2).getCount());
+
+    service.deleteReviews(1);
+    assertEquals(0, service.getReviewStatistics(1).getCount());
+    assertEquals(1, service.getReviewStatistics(2).getCount());
+  }
+
+  @Test
+  void failedWritesAreNotCounted() {
+    service.createReview(new Review(1, 1, "a", "s", "c", null));
+
+    assertThrows(InvalidInputException.class, () -> service.createReview(new Review(1, 1, "a", "s", "c", null)));
+    assertThrows(InvalidInputException.class,
+        () -> service.createReviews(List.of(new Review(1, 2, "a", "s", "c", null), new Review(1, 1, "a", "s", "c", null))));
+
+    assertEquals(1, service.getReviewStatistics(1).getCount());
+  }
+
+  @Test
+  void updatesKeepTheCachedReviews() {
+    ReviewEntity cached = repository.save(new ReviewEntity(1, 1, "a", "s", "c"));
+    repository.findById(cached.getId());
+    assertTrue(entityManagerFactory.getCache().contains(ReviewEntity.class, cached.getId()));
+
+    service.createReview(new Review(2, 1, "a", "s", "c", null));
+
+    assertTrue(entityManagerFactory.getCache().contains(ReviewEntity.class, cached.getId()));
+  }
+
+  /* INFO: A review created before the backfill, e.g. during startup, must not make it skip the reviews from before the statistics were kept, and the backfill runs only once. */
+  @Test
+  void backfillRunsOnceAndCountsAllReviews() {
+    jdbcTemplate.update("DELETE FROM statistics_migrations");
+    repository.save(new ReviewEntity(1, 1, "a", "s", "c"));
+    service.createReview(new Review(1, 2, "a", "s", "c", null));
+    assertEquals(1, service.getReviewStatistics(1).getCount());
+
+    statistics.backfill();
+    assertEquals(2, service.getReviewStatistics(1).getCount());
+
+    repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+    statistics.backfill();
+    assertEquals(2, service.getReviewStatistics(1).getCount());
+    assertEquals(0, service.getReviewStatistics(2).getCount());
+  }
+}
@@ -0,0 +1,67 @@
+package com.pedrocoelho.microservices.core.review;
+
+import com.pedrocoelho.microservices.core.review.repository.ReviewEntity;
+import com.pedrocoelho.microservices.core.review.repository.ReviewRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+/* INFO: Runs on the H2 stand-in, the caching happens in Hibernate and does not depend on MySQL. */
+@SpringBootTest(webEnvironment = NONE, properties = "app.review.cache.statistics=true")
+@ActiveProfiles("h2")
+class SecondLevelCacheTests {
+
+  @Autowired
+  private ReviewRepository repository;
+
+  private Statistics statistics;
+
+  @BeforeEach
+  void setUp(@Autowired EntityManagerFactory entityManagerFactory) {
+    SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    repository.deleteAll();
+    sessionFactory.getCache().evictAllRegions();
+    statistics = sessionFactory.getStatistics();
+    statistics.clear();
+  }
+
+  @Test
+  void repeatedReadsAreServedFromTheCache() {
+    repository.save(new ReviewEntity(1, 1, "a", "s", "c"));
+    repository.save(new ReviewEntity(1, 2, "a", "s", "c"));
+
+    assertThat(repository.findByProductId(1), hasSize(2));
+    long statements = statistics.getPrepareStatementCount();
+
+    assertThat(repository.findByProductId(1), hasSize(2));
+    assertThat(repository.findByProductId(1), hasSize(2));
+
+    assertEquals(statements, statistics.getPrepareStatementCount());
+    assertEquals(2, statistics.getQueryCacheHitCount());
+    assertTrue(statistics.getSecondLevelCacheHitCount() >= 4);
+  }
+
+  @Test
+  void writesInvalidateCachedQueries() {
+    repository.save(new ReviewEntity(1, 1, "a", "s", "c"));
+    assertThat(repository.findByProductId(1), hasSize(1));
+
+    repository.save(new ReviewEntity(1, 2, "a", "s", "c"));
+    assertThat(repository.findByProductId(1), hasSize(2));
+
+    repository.deleteAll(repository.findByProductId(1));
+    assertThat(repository.findByProductId(1), hasSize(0));
+  }
+}
@@ -0,0 +1,82 @@
+package com.pedrocoelho.util.collections;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+
+/**
+ * The cost HeavyHitters.record adds to a request, with skewed keys as in the product traffic. Compare the percentiles
+ * of record with those of baseline, which only picks the key, e.g. ./gradlew :util:jmh. The decay benchmark is the
+ * cost of one periodic decay, which runs on its own thread.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class HeavyHittersBenchmark {
+
+  private static final int KEYS = 1 << 16;
+
+  @Param({"64"})
+  private int capacity;
+
+  @Param({"4096"})
+  private int width;
+
+  private HeavyHitters heavyHitters;
+  private int[] keys;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+
+      next = new SplittableRandom().nextInt(KEYS);
+    }
+  }
+
+  /* INFO: Zipf-like keys with exponent 1 over a million products, precomputed so that picking a key costs the same in all benchmarks. */
+  @Setup(Level.Trial)
+  public void setUp() {
+
+    heavyHitters = new HeavyHitters(capacity, width, 4);
+    keys = new int[KEYS];
+    SplittableRandom random = new SplittableRandom(42);
+    double products = 1_000_000;
+    double harmonic = Math.log(products) + 0.5772;
+    for (int i = 0; i < KEYS; i++) {
+      keys[i] = (int) Math.min(products, Math.exp(random.nextDouble() * harmonic - 0.5772) + 1);
+    }
+    for (int key : keys) {
+      heavyHitters.record(key);
+    }
+  }
+
+  @Benchmark
+  public int baseline(Cursor cursor) {
+
+    return keys[cursor.next++ & (KEYS - 1)];
+  }
+
+  @Benchmark
+  public void record(Cursor cursor) {
+
+    heavyHitters.record(keys[cursor.next++ & (KEYS - 1)]);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void decay(Blackhole blackhole) {
+
+    heavyHitters.decay();
+    blackhole.consume(heavyHitters.total());
+  }
+}
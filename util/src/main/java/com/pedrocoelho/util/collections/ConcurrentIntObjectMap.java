@@ -0,0 +1,460 @@
+package com.pedrocoelho.util.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A concurrent hash map from primitive int keys to non-null values, without boxing of the keys.
+ * <p>
+ * The map is split into segments, each an open-addressing table with linear probing guarded by its own StampedLock.
+ * Reads first try an optimistic, lock-free lookup and only take the read lock when a concurrent write to the same
+ * segment invalidated it. Writes lock a single segment, so writers to different segments never contend.
+ *
+ * @param <V> the type of the values
+ */
+public class ConcurrentIntObjectMap<V> {
+
+  /**
+   * Computes a new value for a key from its current value, or null if absent. Returning null removes the key.
+   */
+  @FunctionalInterface
+  public interface Remapping<V> {
+
+    V apply(int key, V current);
+  }
+
+  @FunctionalInterface
+  public interface Visitor<V> {
+
+    void accept(int key, V value);
+  }
+
+  private static final int DEFAULT_SEGMENTS = 16;
+  private static final int MIN_CAPACITY = 8;
+
+  private final Segment<V>[] segments;
+  private final int segmentShift;
+
+  public ConcurrentIntObjectMap() {
+
+    this(DEFAULT_SEGMENTS * MIN_CAPACITY);
+  }
+
+  @SuppressWarnings("unchecked")
+  public ConcurrentIntObjectMap(int expectedSize) {
+
+    int segmentCount = DEFAULT_SEGMENTS;
+    segments = new Segment[segmentCount];
+    segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+
+    int capacity = tableSizeFor(Math.max(MIN_CAPACITY, (expectedSize / segmentCount) * 4 / 3 + 1));
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment<>(capacity);
+    }
+  }
+
+  public V get(int key) {
+
+    int hash = hash(key);
+    return segmentFor(hash).get(key, hash);
+  }
+
+  public boolean containsKey(int key) {
+
+    return get(key) != null;
+  }
+
+  /**
+   * @return the previous value, or null if there was none
+   */
+  public V put(int key, V value) {
+
+    requireValue(value);
+    int hash = hash(key);
+    return segmentFor(hash).put(key, hash, value, false);
+  }
+
+  /**
+   * @return the current value if there is one, else null after the given value has been stored
+   */
+  public V putIfAbsent(int key, V value) {
+
+    requireValue(value);
+    int hash = hash(key);
+    return segmentFor(hash).put(key, hash, value, true);
+  }
+
+  /**
+   * @return the removed value, or null if there was none
+   */
+  public V remove(int key) {
+
+    int hash = hash(key);
+    return segmentFor(hash).remove(key, hash, null);
+  }
+
+  /**
+   * Removes the key only if it is currently mapped to the given value, compared by identity.
+   */
+  public boolean remove(int key, V value) {
+
+    requireValue(value);
+    int hash = hash(key);
+    return segmentFor(hash).remove(key, hash, value) != null;
+  }
+
+  /**
+   * Atomically replaces the value of a key with the result of the remapping function, which runs under the lock of
+   * the key's segment and must therefore be short and must not access this map.
+   *
+   * @return the new value, or null if the key is now absent
+   */
+  public V compute(int key, Remapping<V> remapping) {
+
+    int hash = hash(key);
+    return segmentFor(hash).compute(key, hash, remapping);
+  }
+
+  public V computeIfAbsent(int key, java.util.function.IntFunction<? extends V> factory) {
+
+    V current = get(key);
+    if (current != null) {
+      return current;
+    }
+    return compute(key, (k, v) -> v != null ? v : factory.apply(k));
+  }
+
+  public int size() {
+
+    int size = 0;
+    for (Segment<V> segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  public boolean isEmpty() {
+
+    return size() == 0;
+  }
+
+  public void clear() {
+
+    for (Segment<V> segment : segments) {
+      segment.clear();
+    }
+  }
+
+  /**
+   * Visits all entries, one segment at a time under its read lock. Changes made concurrently to other segments may
+   * or may not be seen. The visitor must not modify this map.
+   */
+  public void forEach(Visitor<? super V> visitor) {
+
+    for (Segment<V> segment : segments) {
+      segment.forEach(visitor);
+    }
+  }
+
+  /**
+   * Visits up to count entries, starting at a random position of a random segment, e.g. to pick eviction candidates
+   * without scanning the whole map. As with forEach, the visitor runs under a segment's read lock and must not modify
+   * this map.
+   */
+  public void sample(int count, Visitor<? super V> visitor) {
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(segments.length);
+    int visited = 0;
+    for (int s = 0; s < segments.length && visited < count; s++) {
+      visited += segments[(first + s) & (segments.length - 1)].sample(count - visited, random.nextInt(), visitor);
+    }
+  }
+
+  public List<V> values() {
+
+    List<V> values = new ArrayList<>();
+    forEach((k, v) -> values.add(v));
+    return values;
+  }
+
+  private Segment<V> segmentFor(int hash) {
+
+    return segments[hash >>> segmentShift];
+  }
+
+  private static int hash(int key) {
+
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static int tableSizeFor(int capacity) {
+
+    return Integer.highestOneBit(capacity - 1) << 1;
+  }
+
+  private static void requireValue(Object value) {
+
+    if (value == null) {
+      throw new NullPointerException("Null values are not supported");
+    }
+  }
+
+  /* INFO: keys and values are published together in one immutable Table reference, so an optimistic reader always sees arrays of the same length, even while the segment is being resized. */
+  private static final class Table {
+
+    final int[] keys;
+    final Object[] values;
+
+    Table(int capacity) {
+
+      keys = new int[capacity];
+      values = new Object[capacity];
+    }
+  }
+
+  private static final class Segment<V> {
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table;
+    private int size;
+
+    Segment(int capacity) {
+
+      table = new Table(capacity);
+    }
+
+    V get(int key, int hash) {
+
+      long stamp = lock.tryOptimisticRead();
+      Object value = find(table, key, hash);
+      if (!lock.validate(stamp)) {
+        stamp = lock.readLock();
+        try {
+          value = find(table, key, hash);
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+      return cast(value);
+    }
+
+    V put(int key, int hash, V value, boolean onlyIfAbsent) {
+
+      long stamp = lock.writeLock();
+      try {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+          Object current = t.values[i];
+          if (current == null) {
+            t.keys[i] = key;
+            t.values[i] = value;
+            if (++size > t.keys.length * 3 / 4) {
+              resize();
+            }
+            return null;
+          }
+          if (t.keys[i] == key) {
+            if (!onlyIfAbsent) {
+              t.values[i] = value;
+            }
+            return cast(current);
+          }
+        }
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    V remove(int key, int hash, V expected) {
+
+      long stamp = lock.writeLock();
+      try {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+          Object current = t.values[i];
+          if (current == null) {
+            return null;
+          }
+          if (t.keys[i] == key) {
+            if (expected != null && current != expected) {
+              return null;
+            }
+            deleteSlot(t, i);
+            size--;
+            return cast(current);
+          }
+        }
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    V compute(int key, int hash, Remapping<V> remapping) {
+
+      long stamp = lock.writeLock();
+      try {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        int i = hash & mask;
+        while (t.values[i] != null && t.keys[i] != key) {
+          i = (i + 1) & mask;
+        }
+
+        V current = cast(t.values[i]);
+        V updated = remapping.apply(key, current);
+
+        if (updated == null) {
+          if (current != null) {
+            deleteSlot(t, i);
+            size--;
+          }
+        } else {
+          t.keys[i] = key;
+          t.values[i] = updated;
+          if (current == null && ++size > t.keys.length * 3 / 4) {
+            resize();
+          }
+        }
+        return updated;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    int size() {
+
+      long stamp = lock.tryOptimisticRead();
+      int result = size;
+      if (!lock.validate(stamp)) {
+        stamp = lock.readLock();
+        try {
+          result = size;
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+      return result;
+    }
+
+    void clear() {
+
+      long stamp = lock.writeLock();
+      try {
+        table = new Table(table.keys.length);
+        size = 0;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    void forEach(Visitor<? super V> visitor) {
+
+      long stamp = lock.readLock();
+      try {
+        Table t = table;
+        for (int i = 0; i < t.values.length; i++) {
+          if (t.values[i] != null) {
+            visitor.accept(t.keys[i], cast(t.values[i]));
+          }
+        }
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    int sample(int count, int start, Visitor<? super V> visitor) {
+
+      long stamp = lock.readLock();
+      try {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        int visited = 0;
+        for (int n = 0, i = start & mask; n < t.values.length && visited < count; n++, i = (i + 1) & mask) {
+          if (t.values[i] != null) {
+            visitor.accept(t.keys[i], cast(t.values[i]));
+            visited++;
+          }
+        }
+        return visited;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    /* INFO: An optimistic read may observe a slot in the middle of a write. The probe is therefore bounded by the table length, and its result is only trusted once the stamp has been validated. */
+    private static Object find(Table t, int key, int hash) {
+
+      int mask = t.keys.length - 1;
+      int i = hash & mask;
+      for (int probes = 0; probes < t.keys.length; probes++) {
+        Object value = t.values[i];
+        if (value == null) {
+          return null;
+        }
+        if (t.keys[i] == key) {
+          return value;
+        }
+        i = (i + 1) & mask;
+      }
+      return null;
+    }
+
+    /**
+     * Backward-shift deletion: entries that follow the freed slot in the same probe sequence are moved back, so no
+     * tombstones are needed and lookups can stop at the first empty slot.
+     */
+    private static void deleteSlot(Table t, int slot) {
+
+      int mask = t.keys.length - 1;
+      int free = slot;
+      int i = slot;
+      while (true) {
+        i = (i + 1) & mask;
+        Object value = t.values[i];
+        if (value == null) {
+          break;
+        }
+        int home = hash(t.keys[i]) & mask;
+        boolean movable = free <= i ? (home <= free || home > i) : (home <= free && home > i);
+        if (movable) {
+          t.keys[free] = t.keys[i];
+          t.values[free] = value;
+          free = i;
+        }
+      }
+      t.values[free] = null;
+      t.keys[free] = 0;
+    }
+
+    private void resize() {
+
+      Table old = table;
+      Table t = new Table(old.keys.length * 2);
+      int mask = t.keys.length - 1;
+      for (int j = 0; j < old.values.length; j++) {
+        Object value = old.values[j];
+        if (value != null) {
+          int i = hash(old.keys[j]) & mask;
+          while (t.values[i] != null) {
+            i = (i + 1) & mask;
+          }
+          t.keys[i] = old.keys[j];
+          t.values[i] = value;
+        }
+      }
+      table = t;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object value) {
+
+      return (V) value;
+    }
+  }
+}
@@ -0,0 +1,244 @@
+package com.pedrocoelho.util.collections;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the most frequent int keys of a stream, e.g. the most requested productIds, in constant memory and without
+ * locks.
+ * <p>
+ * Every key is counted in a Count-Min sketch: depth rows of width counters, a key increments one counter per row and
+ * its estimate is the smallest of them. Collisions can only add to a counter, so an estimate is never below the true
+ * count and overestimates by at most about depth / width of all records in most cases.
+ * <p>
+ * Keys whose estimate reaches the smallest count of the top list enter it, replacing that entry. The top list is an
+ * array of capacity slots, each packing a key and its count into one long that is updated with compare-and-set. A
+ * key can end up in two slots when it is inserted by two threads at once, top() merges them.
+ * <p>
+ * decay() halves all counts, call it periodically so that keys that are no longer requested leave the top list.
+ */
+public class HeavyHitters {
+
+  /**
+   * A key of the top list with its estimated count.
+   */
+  public static final class Entry {
+
+    private final int key;
+    private final long count;
+
+    Entry(int key, long count) {
+
+      this.key = key;
+      this.count = count;
+    }
+
+    public int getKey() {
+
+      return key;
+    }
+
+    public long getCount() {
+
+      return count;
+    }
+
+    @Override
+    public String toString() {
+
+      return key + "=" + count;
+    }
+  }
+
+  private static final long EMPTY = 0L;
+  private static final long MAX_COUNT = 0xFFFF_FFFFL;
+  private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646C, 0xFD7046C5, 0xB55A4F09};
+
+  private final int depth;
+  private final int mask;
+  private final AtomicLongArray counters;
+  private final AtomicLongArray top;
+  /* INFO: Every record() adds to it, a LongAdder keeps the recording threads from contending on one counter. */
+  private final LongAdder total = new LongAdder();
+
+  /* INFO: The smallest count in the top list, or 0 while it has free slots. Keys below it skip the top list entirely, which is the common case. It may lag behind the slots, that only costs an extra scan. */
+  private volatile long threshold;
+
+  /**
+   * @param capacity the number of keys in the top list
+   * @param width    counters per row, rounded up to a power of two
+   * @param depth    rows, 1 to 8
+   */
+  public HeavyHitters(int capacity, int width, int depth) {
+
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+    }
+    if (depth < 1 || depth > SEEDS.length) {
+      throw new IllegalArgumentException("depth must be between 1 and " + SEEDS.length + ": " + depth);
+    }
+
+    int rowWidth = width <= 2 ? 2 : Integer.highestOneBit(width - 1) << 1;
+    this.depth = depth;
+    this.mask = rowWidth - 1;
+    this.counters = new AtomicLongArray(depth * rowWidth);
+    this.top = new AtomicLongArray(capacity);
+  }
+
+  /**
+   * Counts one occurrence of the key.
+   */
+  public void record(int key) {
+
+    total.increment();
+
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counters.incrementAndGet(index(row, key)));
+    }
+
+    if (estimate > threshold) {
+      offer(key, Math.min(estimate, MAX_COUNT));
+    }
+  }
+
+  /**
+   * @return the estimated number of occurrences of the key, never below the true number since the last decay
+   */
+  public long estimate(int key) {
+
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counters.get(index(row, key)));
+    }
+    return estimate;
+  }
+
+  /**
+   * @return whether the key is in the top list
+   */
+  public boolean contains(int key) {
+
+    for (int slot = 0; slot < top.length(); slot++) {
+      long packed = top.get(slot);
+      if (packed != EMPTY && key(packed) == key) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the top list, the most frequent key first
+   */
+  public List<Entry> top() {
+
+    Map<Integer, Long> counts = new HashMap<>();
+    for (int slot = 0; slot < top.length(); slot++) {
+      long packed = top.get(slot);
+      if (packed != EMPTY) {
+        counts.merge(key(packed), count(packed), Math::max);
+      }
+    }
+
+    List<Entry> entries = new ArrayList<>(counts.size());
+    counts.forEach((key, count) -> entries.add(new Entry(key, count)));
+    entries.sort(Comparator.comparingLong(Entry::getCount).reversed().thenComparingInt(Entry::getKey));
+    return entries;
+  }
+
+  /**
+   * @return the number of records since the last decay, halved by each decay
+   */
+  public long total() {
+
+    return total.sum();
+  }
+
+  /**
+   * Halves all counts. Records that run concurrently may be halved or not.
+   */
+  public void decay() {
+
+    long sum = total.sum();
+    total.add((sum >>> 1) - sum);
+    for (int i = 0; i < counters.length(); i++) {
+      counters.getAndUpdate(i, count -> count >>> 1);
+    }
+    for (int slot = 0; slot < top.length(); slot++) {
+      top.getAndUpdate(slot, packed -> {
+        long count = count(packed) >>> 1;
+        return count == 0 ? EMPTY : pack(key(packed), count);
+      });
+    }
+    updateThreshold();
+  }
+
+  private void offer(int key, long estimate) {
+
+    int victim = -1;
+    long victimPacked = EMPTY;
+    long victimCount = Long.MAX_VALUE;
+    for (int slot = 0; slot < top.length(); slot++) {
+      long packed = top.get(slot);
+      if (packed != EMPTY && key(packed) == key) {
+        /* INFO: Another thread may have raised the count already, a stale estimate must not lower it. */
+        if (count(packed) < estimate) {
+          top.compareAndSet(slot, packed, pack(key, estimate));
+        }
+        return;
+      }
+      long count = packed == EMPTY ? 0 : count(packed);
+      if (count < victimCount) {
+        victim = slot;
+        victimPacked = packed;
+        victimCount = count;
+      }
+    }
+
+    /* INFO: Losing the race for the slot to another thread is fine, the key is offered again on its next record. */
+    if (victimCount < estimate && top.compareAndSet(victim, victimPacked, pack(key, estimate))) {
+      updateThreshold();
+    }
+  }
+
+  private void updateThreshold() {
+
+    long smallest = Long.MAX_VALUE;
+    for (int slot = 0; slot < top.length(); slot++) {
+      long packed = top.get(slot);
+      smallest = Math.min(smallest, packed == EMPTY ? 0 : count(packed));
+    }
+    threshold = smallest;
+  }
+
+  private int index(int row, int key) {
+
+    int h = (key ^ SEEDS[row]) * 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return row * (mask + 1) + (h & mask);
+  }
+
+  /* INFO: A count of 0 never occurs in a slot, a key enters with an estimate of at least 1 and a slot halved to 0 is emptied, so 0 can mark an empty slot. */
+  private static long pack(int key, long count) {
+
+    return (count << 32) | (key & 0xFFFF_FFFFL);
+  }
+
+  private static int key(long packed) {
+
+    return (int) packed;
+  }
+
+  private static long count(long packed) {
+
+    return packed >>> 32;
+  }
+}
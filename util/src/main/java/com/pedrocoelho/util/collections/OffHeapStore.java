@@ -0,0 +1,214 @@
+package com.pedrocoelho.util.collections;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Byte values keyed by int in a fixed block of direct memory, e.g. serialized cache entries that should not add to the
+ * heap or to the work of the garbage collector.
+ * <p>
+ * The block is used as a ring: every put appends the value after the previous one and, once the ring is full,
+ * overwrites the oldest values, which are dropped from the index. A replaced or removed value keeps its space until
+ * the ring comes around to it, so the store holds fewer values than fit in its capacity when values are replaced
+ * often.
+ * <p>
+ * Writes are serialized by a StampedLock. Reads copy the value out under an optimistic stamp and only take the read
+ * lock when a write ran meanwhile.
+ */
+public class OffHeapStore {
+
+  private static final class Slot {
+
+    private final int key;
+    private final long position;
+    private final int length;
+
+    Slot(int key, long position, int length) {
+
+      this.key = key;
+      this.position = position;
+      this.length = length;
+    }
+  }
+
+  private final ByteBuffer memory;
+  private final int capacity;
+  private final ConcurrentIntObjectMap<Slot> index = new ConcurrentIntObjectMap<>();
+  private final StampedLock lock = new StampedLock();
+  private final LongAdder overwritten = new LongAdder();
+
+  /* INFO: Written under the write lock. head is the logical position of the next value, it only grows and a value at position p is intact while head - capacity <= p. */
+  private final ArrayDeque<Slot> slotsInWriteOrder = new ArrayDeque<>();
+  private volatile long head;
+
+  /**
+   * @param capacity bytes of direct memory to allocate, they count against -XX:MaxDirectMemorySize
+   */
+  public OffHeapStore(int capacity) {
+
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+    }
+    this.capacity = capacity;
+    this.memory = ByteBuffer.allocateDirect(capacity);
+  }
+
+  /**
+   * Stores the value, replacing any value of the key.
+   *
+   * @param value at least one byte
+   * @return false if the value is larger than the store, any previous value of the key is removed then
+   */
+  public boolean put(int key, byte[] value) {
+
+    if (value.length == 0) {
+      throw new IllegalArgumentException("value must not be empty");
+    }
+    if (value.length > capacity) {
+      index.remove(key);
+      return false;
+    }
+
+    long stamp = lock.writeLock();
+    try {
+      long position = head;
+      int offset = (int) (position % capacity);
+      if (offset + value.length > capacity) {
+        /* INFO: Values are never split, a value that does not fit before the end of the block starts over at its beginning. */
+        position += capacity - offset;
+        offset = 0;
+      }
+      long end = position + value.length;
+      dropOverwritten(end - capacity);
+
+      head = end;
+      memory.put(offset, value);
+
+      Slot slot = new Slot(key, position, value.length);
+      index.put(key, slot);
+      slotsInWriteOrder.addLast(slot);
+      return true;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * @return a copy of the value of the key, or null if there is none
+   */
+  public byte[] get(int key) {
+
+    long stamp = lock.tryOptimisticRead();
+    Slot slot = index.get(key);
+    if (slot == null) {
+      return null;
+    }
+
+    /* INFO: The check of head covers writes that completed between the lookup and the stamp, validate() those that ran during the copy. */
+    byte[] value = new byte[slot.length];
+    if (slot.position >= head - capacity) {
+      copy(slot, value);
+      if (lock.validate(stamp)) {
+        return value;
+      }
+    }
+
+    stamp = lock.readLock();
+    try {
+      slot = index.get(key);
+      if (slot == null) {
+        return null;
+      }
+      value = new byte[slot.length];
+      copy(slot, value);
+      return value;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Removes the value of the key and returns it, or null if there is none.
+   */
+  public byte[] take(int key) {
+
+    if (index.get(key) == null) {
+      return null;
+    }
+
+    long stamp = lock.writeLock();
+    try {
+      Slot slot = index.remove(key);
+      if (slot == null) {
+        return null;
+      }
+      byte[] value = new byte[slot.length];
+      copy(slot, value);
+      return value;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public boolean containsKey(int key) {
+
+    return index.containsKey(key);
+  }
+
+  public void remove(int key) {
+
+    index.remove(key);
+  }
+
+  public void clear() {
+
+    long stamp = lock.writeLock();
+    try {
+      index.clear();
+      slotsInWriteOrder.clear();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * @return the number of values
+   */
+  public int size() {
+
+    return index.size();
+  }
+
+  /**
+   * @return the capacity in bytes
+   */
+  public int capacity() {
+
+    return capacity;
+  }
+
+  /**
+   * @return the number of values that were dropped because the ring came around to them
+   */
+  public long overwritten() {
+
+    return overwritten.sum();
+  }
+
+  private void dropOverwritten(long from) {
+
+    while (!slotsInWriteOrder.isEmpty() && slotsInWriteOrder.peekFirst().position < from) {
+      Slot slot = slotsInWriteOrder.pollFirst();
+      if (index.remove(slot.key, slot)) {
+        overwritten.increment();
+      }
+    }
+  }
+
+  private void copy(Slot slot, byte[] value) {
+
+    memory.get((int) (slot.position % capacity), value);
+  }
+}
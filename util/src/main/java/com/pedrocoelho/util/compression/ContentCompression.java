@@ -0,0 +1,61 @@
+package com.pedrocoelho.util.compression;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * LZ4 compression of large text fields, such as the content of reviews and recommendations. The compressed form is
+ * the length of the UTF-8 encoded text as four bytes, followed by the LZ4 block, so that it can be decompressed in a
+ * single pass into an exactly sized buffer.
+ * <p>
+ * The entities keep the compressed bytes as they are loaded and only decompress on the first call of getContent, so
+ * code that never reads the content does not pay for it.
+ */
+public final class ContentCompression {
+
+  private static final int LENGTH_BYTES = Integer.BYTES;
+
+  /* INFO: The pure Java implementation, the JNI one would need extra configuration in the native image and is not much faster on short texts. */
+  private static final LZ4Factory FACTORY = LZ4Factory.fastestJavaInstance();
+  private static final LZ4Compressor COMPRESSOR = FACTORY.fastCompressor();
+  private static final LZ4FastDecompressor DECOMPRESSOR = FACTORY.fastDecompressor();
+
+  private ContentCompression() {}
+
+  /**
+   * Returns the compressed form of the text, or null if its UTF-8 encoding is shorter than threshold bytes or if
+   * compressing would not make it smaller, in which case the text should be stored as it is.
+   */
+  public static byte[] compress(String text, int threshold) {
+
+    if (text == null || text.length() < threshold) {
+      return null;
+    }
+    byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+    if (utf8.length < threshold) {
+      return null;
+    }
+
+    byte[] compressed = new byte[LENGTH_BYTES + COMPRESSOR.maxCompressedLength(utf8.length)];
+    ByteBuffer.wrap(compressed).putInt(utf8.length);
+    int length = COMPRESSOR.compress(utf8, 0, utf8.length, compressed, LENGTH_BYTES);
+    if (LENGTH_BYTES + length >= utf8.length) {
+      return null;
+    }
+    byte[] result = new byte[LENGTH_BYTES + length];
+    System.arraycopy(compressed, 0, result, 0, result.length);
+    return result;
+  }
+
+  public static String decompress(byte[] compressed) {
+
+    int length = ByteBuffer.wrap(compressed).getInt();
+    byte[] utf8 = new byte[length];
+    DECOMPRESSOR.decompress(compressed, LENGTH_BYTES, utf8, 0, length);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,97 @@
+package com.pedrocoelho.util.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Moves request handling off the Netty event loop, for services whose controllers block on JDBC, MongoDB or
+ * RestTemplate calls. Selected with app.execution.mode:
+ * <ul>
+ *   <li>event-loop: the default, handlers run on the event loop and this filter is not registered.</li>
+ *   <li>bounded-elastic: handlers run on Reactor's bounded elastic pool, ten platform threads per CPU core.</li>
+ *   <li>virtual: each request runs on its own virtual thread, so thousands of requests can wait on the database or on
+ *   downstream services at once. Requires Java 21, startup fails on older runtimes.</li>
+ * </ul>
+ * The chain is subscribed on the selected scheduler, and the request body is published on it as well, so that
+ * handlers of POST requests, which run when the body has been read, do not end up back on the event loop.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnExpression("'${app.execution.mode:event-loop}' != 'event-loop'")
+public class BlockingExecutionFilter implements WebFilter, DisposableBean {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BlockingExecutionFilter.class);
+
+  private final Scheduler scheduler;
+
+  @Autowired
+  public BlockingExecutionFilter(@Value("${app.execution.mode}") String mode) {
+
+    switch (mode) {
+      case "bounded-elastic":
+        scheduler = Schedulers.boundedElastic();
+        break;
+      case "virtual":
+        scheduler = Schedulers.fromExecutorService(newVirtualThreadPerTaskExecutor(), "virtual");
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown app.execution.mode: " + mode + ", expected event-loop, bounded-elastic or virtual");
+    }
+    LOG.info("Request handling runs on {} threads", mode);
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+
+    ServerHttpRequest request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+      @Override
+      public Flux<DataBuffer> getBody() {
+        return super.getBody()
+            .publishOn(scheduler)
+            .doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+      }
+    };
+    return chain.filter(exchange.mutate().request(request).build()).subscribeOn(scheduler);
+  }
+
+  /* INFO: The bounded elastic scheduler is shared with the rest of the application and must stay alive. */
+  @Override
+  public void destroy() {
+
+    if (scheduler != Schedulers.boundedElastic()) {
+      scheduler.dispose();
+    }
+  }
+
+  /* INFO: Looked up reflectively, as the services are compiled for Java 16, which has no virtual threads. */
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("app.execution.mode=virtual requires Java 21 or later, running on " + Runtime.version(), e);
+    }
+  }
+}
@@ -11,6 +11,8 @@ import java.net.UnknownHostException;
 
 @Component
 public class ServiceUtil {
+  /* INFO: Carries the service address on responses whose body has no field for it, e.g. the summaries of the core services. */
+  public static final String SERVICE_ADDRESS_HEADER = "Service-Address";
   private static final Logger LOG = LoggerFactory.getLogger(ServiceUtil.class);
   private final String port;
   private String serviceAddress = null;
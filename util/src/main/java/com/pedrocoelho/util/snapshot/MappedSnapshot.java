@@ -0,0 +1,176 @@
+package com.pedrocoelho.util.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * A read-only file of byte records keyed by int, e.g. cached entities by productId, that is memory-mapped when opened
+ * so a record is only read from disk when it is first accessed.
+ * <p>
+ * The file starts with a header of magic, format version and record count, followed by an index of (key, offset,
+ * length) triples sorted by key and the records. get() binary searches the index, which is checked when the file is
+ * opened, so a truncated or foreign file fails in open() rather than in get().
+ * <p>
+ * write() replaces the file atomically, an open snapshot of the previous file stays valid until it is dropped.
+ */
+public final class MappedSnapshot {
+
+  private static final int MAGIC = 0x534E4150;
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_BYTES = 12;
+  private static final int INDEX_ENTRY_BYTES = 12;
+
+  private final ByteBuffer buffer;
+  private final int count;
+
+  private MappedSnapshot(ByteBuffer buffer, int count) {
+
+    this.buffer = buffer;
+    this.count = count;
+  }
+
+  /**
+   * Writes the records to the file, replacing it. The file is written next to its final path and moved into place.
+   */
+  public static void write(Path file, Map<Integer, byte[]> records) throws IOException {
+
+    int[] keys = records.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+    long size = HEADER_BYTES + (long) keys.length * INDEX_ENTRY_BYTES;
+    for (byte[] record : records.values()) {
+      size += record.length;
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Snapshot too large: " + size + " bytes");
+    }
+
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      out.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(keys.length);
+
+      int offset = HEADER_BYTES + keys.length * INDEX_ENTRY_BYTES;
+      for (int key : keys) {
+        int length = records.get(key).length;
+        out.putInt(key).putInt(offset).putInt(length);
+        offset += length;
+      }
+      for (int key : keys) {
+        out.put(records.get(key));
+      }
+      out.force();
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Maps the file and checks its header and index.
+   *
+   * @throws IOException if the file cannot be read or is not a valid snapshot
+   */
+  public static MappedSnapshot open(Path file) throws IOException {
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+        throw new IOException("Not a snapshot, size: " + size);
+      }
+
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+        throw new IOException("Not a snapshot of format version " + FORMAT_VERSION);
+      }
+
+      int count = buffer.getInt(8);
+      if (count < 0 || HEADER_BYTES + (long) count * INDEX_ENTRY_BYTES > size) {
+        throw new IOException("Truncated snapshot index, records: " + count);
+      }
+
+      MappedSnapshot snapshot = new MappedSnapshot(buffer, count);
+      int previousKey = Integer.MIN_VALUE;
+      for (int i = 0; i < count; i++) {
+        int key = snapshot.key(i);
+        long end = (long) snapshot.offset(i) + snapshot.length(i);
+        if ((i > 0 && key <= previousKey) || snapshot.offset(i) < 0 || snapshot.length(i) < 0 || end > size) {
+          throw new IOException("Corrupt snapshot index at record " + i);
+        }
+        previousKey = key;
+      }
+      return snapshot;
+    }
+  }
+
+  /**
+   * @return the number of records
+   */
+  public int size() {
+
+    return count;
+  }
+
+  /**
+   * @return the keys of all records, in ascending order
+   */
+  public int[] keys() {
+
+    int[] keys = new int[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = key(i);
+    }
+    return keys;
+  }
+
+  /**
+   * @return a copy of the record with the key, or null if there is none
+   */
+  public byte[] get(int key) {
+
+    int i = indexOf(key);
+    if (i < 0) {
+      return null;
+    }
+
+    byte[] record = new byte[length(i)];
+    buffer.get(offset(i), record);
+    return record;
+  }
+
+  private int indexOf(int key) {
+
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int midKey = key(mid);
+      if (midKey < key) {
+        low = mid + 1;
+      } else if (midKey > key) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  private int key(int i) {
+
+    return buffer.getInt(HEADER_BYTES + i * INDEX_ENTRY_BYTES);
+  }
+
+  private int offset(int i) {
+
+    return buffer.getInt(HEADER_BYTES + i * INDEX_ENTRY_BYTES + 4);
+  }
+
+  private int length(int i) {
+
+    return buffer.getInt(HEADER_BYTES + i * INDEX_ENTRY_BYTES + 8);
+  }
+}
@@ -0,0 +1,33 @@
+package com.pedrocoelho.util.startup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/* INFO: Reported as "mongoIndex" when declared as the mongoIndexHealthIndicator bean. Services add it to the readiness group, so an instance only receives traffic once its unique indexes exist, without which duplicate documents would be accepted. A conflicting index counts as down for the same reason. */
+public class MongoIndexHealthIndicator implements HealthIndicator {
+
+  private final MongoIndexProvisioner provisioner;
+
+  public MongoIndexHealthIndicator(MongoIndexProvisioner provisioner) {
+
+    this.provisioner = provisioner;
+  }
+
+  @Override
+  public Health health() {
+
+    switch (provisioner.getStatus()) {
+      case PROVISIONED:
+        Health.Builder builder = provisioner.getConflicting().isEmpty() ? Health.up() : Health.down();
+        return builder
+            .withDetail("created", provisioner.getCreated())
+            .withDetail("existing", provisioner.getExisting())
+            .withDetail("conflicting", provisioner.getConflicting())
+            .build();
+      case FAILED:
+        return Health.down().withDetail("error", String.valueOf(provisioner.getError())).build();
+      default:
+        return Health.outOfService().withDetail("status", "provisioning").build();
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package com.pedrocoelho.util.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static java.util.function.Function.identity;
+
+/**
+ * Creates the indexes declared on the given document classes that are missing in MongoDB, on a background thread so
+ * that startup does not wait for MongoDB. Indexes that exist with the same name but other keys or uniqueness are
+ * reported as conflicting and left alone, dropping them is a decision for an operator. If MongoDB cannot be reached,
+ * provisioning is retried after retryInterval. The outcome is reported by MongoIndexHealthIndicator.
+ * <p>
+ * Not a component, as only the services that store documents in MongoDB have MongoOperations. They declare it, and
+ * its MongoIndexHealthIndicator, as beans.
+ */
+public class MongoIndexProvisioner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MongoIndexProvisioner.class);
+
+  public enum Status { PENDING, PROVISIONED, FAILED }
+
+  private final MongoOperations mongoTemplate;
+  private final List<Class<?>> documentClasses;
+  private final long retryIntervalMillis;
+
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "mongo-index-provisioner");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final CountDownLatch provisioned = new CountDownLatch(1);
+
+  private volatile Status status = Status.PENDING;
+  private volatile List<String> created = List.of();
+  private volatile List<String> existing = List.of();
+  private volatile List<String> conflicting = List.of();
+  private volatile String error;
+
+  public MongoIndexProvisioner(MongoOperations mongoTemplate, Duration retryInterval, Class<?>... documentClasses) {
+
+    this.mongoTemplate = mongoTemplate;
+    this.documentClasses = List.of(documentClasses);
+    this.retryIntervalMillis = retryInterval.toMillis();
+  }
+
+  @EventListener(ContextRefreshedEvent.class)
+  public void startProvisioning() {
+
+    if (started.compareAndSet(false, true)) {
+      executor.execute(this::provision);
+    }
+  }
+
+  /**
+   * Waits until the indexes are in place, for callers that depend on them, e.g. tests of unique constraints.
+   */
+  public boolean awaitProvisioned(Duration timeout) throws InterruptedException {
+
+    return provisioned.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  public Status getStatus() {
+
+    return status;
+  }
+
+  public List<String> getCreated() {
+
+    return created;
+  }
+
+  public List<String> getExisting() {
+
+    return existing;
+  }
+
+  public List<String> getConflicting() {
+
+    return conflicting;
+  }
+
+  public String getError() {
+
+    return error;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+
+    executor.shutdownNow();
+  }
+
+  private void provision() {
+
+    long start = System.currentTimeMillis();
+    try {
+      List<String> createdNow = new ArrayList<>();
+      List<String> existingNow = new ArrayList<>();
+      List<String> conflictingNow = new ArrayList<>();
+      MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+      for (Class<?> documentClass : documentClasses) {
+        IndexOperations indexOps = mongoTemplate.indexOps(documentClass);
+        Map<String, IndexInfo> current = indexOps.getIndexInfo().stream().collect(Collectors.toMap(IndexInfo::getName, identity()));
+
+        for (IndexDefinition desired : resolver.resolveIndexFor(documentClass)) {
+          String name = indexName(desired);
+          IndexInfo found = current.get(name);
+          if (found == null) {
+            indexOps.ensureIndex(desired);
+            createdNow.add(name);
+          } else if (matches(desired, found)) {
+            existingNow.add(name);
+          } else {
+            LOG.warn("provision: index {} exists with other keys or options than declared on {}, left unchanged", name, documentClass.getSimpleName());
+            conflictingNow.add(name);
+          }
+        }
+      }
+
+      created = List.copyOf(createdNow);
+      existing = List.copyOf(existingNow);
+      conflicting = List.copyOf(conflictingNow);
+      error = null;
+      status = Status.PROVISIONED;
+      provisioned.countDown();
+      LOG.info("provision: created indexes {}, found {} in {} ms", created, existing, System.currentTimeMillis() - start);
+
+    } catch (RuntimeException ex) {
+      error = ex.getMessage();
+      status = Status.FAILED;
+      LOG.warn("provision: failed, retrying in {} ms: {}", retryIntervalMillis, ex.getMessage());
+      executor.schedule(this::provision, retryIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /* INFO: Without an explicit name MongoDB names an index after its keys and directions, e.g. productId_1. */
+  private static String indexName(IndexDefinition index) {
+
+    String name = index.getIndexOptions().getString("name");
+    if (name != null) {
+      return name;
+    }
+    return index.getIndexKeys().entrySet().stream()
+        .map(key -> key.getKey() + "_" + key.getValue())
+        .collect(Collectors.joining("_"));
+  }
+
+  private static boolean matches(IndexDefinition desired, IndexInfo found) {
+
+    List<String> desiredKeys = new ArrayList<>(desired.getIndexKeys().keySet());
+    List<String> foundKeys = found.getIndexFields().stream().map(IndexField::getKey).collect(Collectors.toList());
+    return desiredKeys.equals(foundKeys) && desired.getIndexOptions().getBoolean("unique", false) == found.isUnique();
+  }
+}
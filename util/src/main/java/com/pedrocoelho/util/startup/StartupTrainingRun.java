@@ -0,0 +1,58 @@
+package com.pedrocoelho.util.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+
+/**
+ * Turns a normal start of a service into a training run, used to record the classes it loads during startup, e.g.
+ * into an AppCDS archive with -XX:ArchiveClassesAtExit.
+ * <p>
+ * Once the application is ready, one request is sent to the service itself, so that the classes on the request path
+ * are loaded as well, and then the application is closed and the JVM exits.
+ */
+@Component
+@ConditionalOnProperty(value = "app.startup.exit-after-ready", havingValue = "true")
+public class StartupTrainingRun {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StartupTrainingRun.class);
+
+  private final ConfigurableApplicationContext context;
+  private final String probePath;
+
+  @Autowired
+  public StartupTrainingRun(
+      ConfigurableApplicationContext context,
+      @Value("${app.startup.probe-path:/actuator/health}") String probePath) {
+
+    this.context = context;
+    this.probePath = probePath;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void exitAfterReady() {
+
+    int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+    try {
+      Integer status = WebClient.create("http://localhost:" + port).get().uri(probePath)
+          .exchangeToMono(response -> response.releaseBody().thenReturn(response.rawStatusCode()))
+          .block(Duration.ofSeconds(30));
+      LOG.info("Training run: GET {} returned {}, exiting", probePath, status);
+    } catch (RuntimeException e) {
+      LOG.warn("Training run: GET {} failed, exiting anyway: {}", probePath, e.toString());
+    }
+
+    System.exit(SpringApplication.exit(context, () -> 0));
+  }
+}
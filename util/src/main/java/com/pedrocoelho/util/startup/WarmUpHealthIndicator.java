@@ -0,0 +1,32 @@
+package com.pedrocoelho.util.startup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/* INFO: Reported as "warmUp". Services that enable app.warm-up add it to the readiness group, so they only receive traffic once WarmUpRunner is done. With the warm-up disabled it is up right after startup. */
+@Component
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+  private final WarmUpRunner runner;
+
+  @Autowired
+  public WarmUpHealthIndicator(WarmUpRunner runner) {
+
+    this.runner = runner;
+  }
+
+  @Override
+  public Health health() {
+
+    Health.Builder builder = runner.getStatus() == WarmUpRunner.Status.DONE ? Health.up() : Health.outOfService();
+    return builder
+        .withDetail("status", runner.getStatus())
+        .withDetail("iterations", runner.getIterations())
+        .withDetail("p99", runner.getLatency().toString())
+        .withDetail("target", runner.getTargetLatency().toString())
+        .withDetail("targetReached", runner.isTargetReached())
+        .build();
+  }
+}
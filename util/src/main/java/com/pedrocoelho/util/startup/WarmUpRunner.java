@@ -0,0 +1,195 @@
+package com.pedrocoelho.util.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Replays the service's WarmUpWorkload against its own HTTP port once the application has started, so that the JIT
+ * compiler has optimized the request path before real traffic arrives. WarmUpHealthIndicator keeps the readiness
+ * group out of service until the warm-up is done.
+ * <p>
+ * The warm-up is done when the 99th percentile latency of the last WINDOW runs is at or below target-latency, after
+ * at least min-iterations runs. It is cut short after max-duration, or when the workload keeps failing, as a slow
+ * instance is still better than one that never becomes ready.
+ */
+@Component
+public class WarmUpRunner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(WarmUpRunner.class);
+  private static final int WINDOW = 200;
+  private static final int KEYS = 100;
+  private static final int MAX_CONSECUTIVE_FAILURES = 10;
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+  public enum Status { PENDING, RUNNING, DONE }
+
+  private final List<WarmUpWorkload> workloads;
+  private final boolean enabled;
+  private final long targetLatencyNanos;
+  private final int minIterations;
+  private final Duration maxDuration;
+  private final int keyRangeStart;
+
+  private final CountDownLatch done = new CountDownLatch(1);
+  private volatile Status status = Status.PENDING;
+  private volatile int iterations;
+  private volatile long latencyNanos;
+  private volatile boolean targetReached;
+
+  @Autowired
+  public WarmUpRunner(
+      ObjectProvider<WarmUpWorkload> workloads,
+      @Value("${app.warm-up.enabled:false}") boolean enabled,
+      @Value("${app.warm-up.target-latency:5ms}") Duration targetLatency,
+      @Value("${app.warm-up.min-iterations:2000}") int minIterations,
+      @Value("${app.warm-up.max-duration:60s}") Duration maxDuration,
+      @Value("${app.warm-up.key-range-start:2000000000}") int keyRangeStart) {
+
+    this.workloads = workloads.orderedStream().collect(Collectors.toList());
+    this.enabled = enabled;
+    this.targetLatencyNanos = targetLatency.toNanos();
+    this.minIterations = minIterations;
+    this.maxDuration = maxDuration;
+    this.keyRangeStart = keyRangeStart;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady(ApplicationReadyEvent event) {
+
+    ApplicationContext context = event.getApplicationContext();
+    if (!enabled || workloads.isEmpty() || !(context instanceof WebServerApplicationContext)) {
+      finish(false);
+      return;
+    }
+    start(WebClient.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()));
+  }
+
+  /**
+   * Runs the warm-up on a background thread, the application keeps starting up meanwhile.
+   */
+  public void start(WebClient client) {
+
+    status = Status.RUNNING;
+    Thread thread = new Thread(() -> warmUp(client), "warm-up");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  public boolean awaitDone(Duration timeout) throws InterruptedException {
+
+    return done.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  public Status getStatus() {
+
+    return status;
+  }
+
+  public int getIterations() {
+
+    return iterations;
+  }
+
+  public Duration getLatency() {
+
+    return Duration.ofNanos(latencyNanos);
+  }
+
+  public Duration getTargetLatency() {
+
+    return Duration.ofNanos(targetLatencyNanos);
+  }
+
+  public boolean isTargetReached() {
+
+    return targetReached;
+  }
+
+  private void warmUp(WebClient client) {
+
+    long start = System.nanoTime();
+    long deadline = start + maxDuration.toNanos();
+    long[] window = new long[WINDOW];
+    int failures = 0;
+    int i = 0;
+
+    try {
+      while (true) {
+        WarmUpWorkload workload = workloads.get(i % workloads.size());
+        int key = keyRangeStart + i % KEYS;
+        long runStart = System.nanoTime();
+        try {
+          workload.run(client, key).block(REQUEST_TIMEOUT);
+          failures = 0;
+        } catch (RuntimeException ex) {
+          if (++failures >= MAX_CONSECUTIVE_FAILURES) {
+            LOG.warn("warmUp: {} runs in a row failed, giving up after {} runs: {}", failures, i, ex.toString());
+            break;
+          }
+        }
+        long now = System.nanoTime();
+        window[i % WINDOW] = now - runStart;
+        iterations = ++i;
+
+        if (i % WINDOW == 0) {
+          latencyNanos = p99(window);
+          if (i >= minIterations && latencyNanos <= targetLatencyNanos) {
+            targetReached = true;
+            break;
+          }
+        }
+        if (now >= deadline) {
+          LOG.warn("warmUp: p99 {} ms still above the target of {} ms after {}, giving up", latencyNanos / 1_000_000.0, targetLatencyNanos / 1_000_000.0, maxDuration);
+          break;
+        }
+      }
+    } finally {
+      cleanUp(client, Math.min(i, KEYS));
+      LOG.info("warmUp: {} runs in {} ms, p99 {} ms", i, (System.nanoTime() - start) / 1_000_000, latencyNanos / 1_000_000.0);
+      finish(targetReached);
+    }
+  }
+
+  private void cleanUp(WebClient client, int usedKeys) {
+
+    for (WarmUpWorkload workload : workloads) {
+      for (int key = keyRangeStart; key < keyRangeStart + usedKeys; key++) {
+        try {
+          workload.cleanUp(client, key).block(REQUEST_TIMEOUT);
+        } catch (RuntimeException ex) {
+          LOG.debug("cleanUp: failed for key {}: {}", key, ex.toString());
+        }
+      }
+    }
+  }
+
+  private void finish(boolean reached) {
+
+    targetReached = reached;
+    status = Status.DONE;
+    done.countDown();
+  }
+
+  private static long p99(long[] window) {
+
+    long[] sorted = Arrays.copyOf(window, window.length);
+    Arrays.sort(sorted);
+    return sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+  }
+}
@@ -0,0 +1,20 @@
+package com.pedrocoelho.util.startup;
+
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * A synthetic request sequence that a service replays against itself before it reports ready, see WarmUpRunner.
+ * <p>
+ * The keys passed in come from the warm-up key range, app.warm-up.key-range-start and up, which must not be used by
+ * real data. A run should leave nothing behind for its key.
+ */
+public interface WarmUpWorkload {
+
+  Mono<Void> run(WebClient client, int key);
+
+  /**
+   * Removes whatever a failed or interrupted run may have left behind for the key.
+   */
+  Mono<Void> cleanUp(WebClient client, int key);
+}
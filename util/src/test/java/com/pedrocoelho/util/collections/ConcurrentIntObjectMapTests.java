@@ -0,0 +1,130 @@
+package com.pedrocoelho.util.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentIntObjectMapTests {
+
+  @Test
+  void putGetRemove() {
+
+    ConcurrentIntObjectMap<String> map = new ConcurrentIntObjectMap<>();
+
+    assertNull(map.put(1, "a"));
+    assertEquals("a", map.put(1, "b"));
+    assertEquals("b", map.putIfAbsent(1, "c"));
+    assertNull(map.putIfAbsent(-7, "d"));
+
+    assertEquals("b", map.get(1));
+    assertEquals("d", map.get(-7));
+    assertNull(map.get(2));
+    assertEquals(2, map.size());
+
+    assertFalse(map.remove(1, "other"));
+    assertTrue(map.remove(1, "b"));
+    assertEquals("d", map.remove(-7));
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  void computeRemovesOnNull() {
+
+    ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<>();
+
+    assertEquals(1, map.compute(5, (k, v) -> v == null ? 1 : v + 1));
+    assertEquals(2, map.compute(5, (k, v) -> v == null ? 1 : v + 1));
+    assertNull(map.compute(5, (k, v) -> null));
+    assertFalse(map.containsKey(5));
+    assertEquals(10, map.computeIfAbsent(5, k -> k * 2));
+  }
+
+  @Test
+  void sampleVisitsAtMostCount() {
+
+    ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<>();
+    for (int key = 0; key < 1_000; key++) {
+      map.put(key, key);
+    }
+
+    int[] visited = new int[1];
+    map.sample(8, (k, v) -> {
+      assertEquals(k, v);
+      visited[0]++;
+    });
+    assertEquals(8, visited[0]);
+
+    map.clear();
+    map.put(42, 42);
+    visited[0] = 0;
+    map.sample(8, (k, v) -> visited[0]++);
+    assertEquals(1, visited[0]);
+  }
+
+  /**
+   * Random puts and removes against a HashMap as reference, with enough keys to resize the segments and to exercise
+   * the backward shift of colliding entries on removal.
+   */
+  @Test
+  void matchesHashMap() {
+
+    ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<>(16);
+    Map<Integer, Integer> reference = new HashMap<>();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+
+    for (int i = 0; i < 200_000; i++) {
+      int key = random.nextInt(5_000);
+      if (random.nextBoolean()) {
+        assertEquals(reference.put(key, i), map.put(key, i));
+      } else {
+        assertEquals(reference.remove(key), map.remove(key));
+      }
+    }
+
+    assertEquals(reference.size(), map.size());
+    reference.forEach((k, v) -> assertEquals(v, map.get(k)));
+    map.forEach((k, v) -> assertEquals(reference.get(k), v));
+  }
+
+  @Test
+  void concurrentWriters() throws Exception {
+
+    ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<>();
+    int threads = 8;
+    int keysPerThread = 20_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+    try {
+      Future<?>[] futures = new Future<?>[threads];
+      for (int t = 0; t < threads; t++) {
+        int offset = t * keysPerThread;
+        futures[t] = executor.submit(() -> {
+          for (int key = offset; key < offset + keysPerThread; key++) {
+            map.put(key, key);
+            map.compute(-1 - key % 100, (k, v) -> v == null ? 1 : v + 1);
+            assertEquals(key, map.get(key));
+          }
+        });
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    int counted = 0;
+    for (int key = -100; key < 0; key++) {
+      counted += map.get(key);
+    }
+    assertEquals(threads * keysPerThread, counted);
+    assertEquals(threads * keysPerThread + 100, map.size());
+  }
+}
@@ -0,0 +1,92 @@
+package com.pedrocoelho.util.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyHittersTests {
+
+  @Test
+  void estimatesNeverUndercount() {
+
+    HeavyHitters heavyHitters = new HeavyHitters(4, 64, 4);
+    for (int key = 0; key < 1000; key++) {
+      for (int i = 0; i < key % 7; i++) {
+        heavyHitters.record(key);
+      }
+    }
+
+    for (int key = 0; key < 1000; key++) {
+      assertTrue(heavyHitters.estimate(key) >= key % 7, "estimate of " + key);
+    }
+  }
+
+  @Test
+  void findsTheHotKeysOfASkewedStream() {
+
+    HeavyHitters heavyHitters = new HeavyHitters(8, 1024, 4);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < 100_000; i++) {
+      /* INFO: Keys 1 to 3 get about a third of the records, the rest is spread over 10000 keys. */
+      heavyHitters.record(random.nextInt(3) == 0 ? 1 + random.nextInt(3) : 100 + random.nextInt(10_000));
+    }
+
+    List<Integer> hottest = heavyHitters.top().stream().limit(3).map(HeavyHitters.Entry::getKey).sorted().collect(Collectors.toList());
+    assertEquals(List.of(1, 2, 3), hottest);
+    assertTrue(heavyHitters.contains(1));
+    assertEquals(100_000, heavyHitters.total());
+  }
+
+  @Test
+  void decayLetsColdKeysLeave() {
+
+    HeavyHitters heavyHitters = new HeavyHitters(2, 256, 4);
+    for (int i = 0; i < 8; i++) {
+      heavyHitters.record(1);
+    }
+
+    for (int i = 0; i < 4; i++) {
+      heavyHitters.decay();
+    }
+    assertFalse(heavyHitters.contains(1));
+    assertEquals(0, heavyHitters.estimate(1));
+
+    heavyHitters.record(2);
+    assertEquals(List.of(2), heavyHitters.top().stream().map(HeavyHitters.Entry::getKey).collect(Collectors.toList()));
+  }
+
+  @Test
+  void concurrentRecordsAreAllCounted() throws Exception {
+
+    HeavyHitters heavyHitters = new HeavyHitters(4, 1024, 4);
+    int threads = 8;
+    int recordsPerThread = 10_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      Future<?>[] futures = new Future<?>[threads];
+      for (int t = 0; t < threads; t++) {
+        futures[t] = executor.submit(() -> {
+          for (int i = 0; i < recordsPerThread; i++) {
+            heavyHitters.record(i % 2 == 0 ? 7 : i);
+          }
+        });
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertTrue(heavyHitters.estimate(7) >= threads * recordsPerThread / 2);
+    assertEquals(7, heavyHitters.top().get(0).getKey());
+    assertEquals(1, heavyHitters.top().stream().filter(e -> e.getKey() == 7).count());
+  }
+}
@@ -0,0 +1,90 @@
+package com.pedrocoelho.util.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapStoreTests {
+
+  @Test
+  void putGetAndTake() {
+
+    OffHeapStore store = new OffHeapStore(1024);
+
+    assertTrue(store.put(1, value(1, 10)));
+    assertTrue(store.put(2, value(2, 20)));
+    assertTrue(store.put(1, value(3, 30)));
+
+    assertArrayEquals(value(3, 30), store.get(1));
+    assertArrayEquals(value(2, 20), store.take(2));
+    assertNull(store.get(2));
+    assertNull(store.take(2));
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void oldestValuesAreOverwritten() {
+
+    OffHeapStore store = new OffHeapStore(100);
+
+    for (int key = 0; key < 10; key++) {
+      assertTrue(store.put(key, value(key, 30)));
+    }
+
+    assertEquals(3, store.size());
+    assertEquals(7, store.overwritten());
+    assertNull(store.get(6));
+    for (int key = 7; key < 10; key++) {
+      assertArrayEquals(value(key, 30), store.get(key));
+    }
+  }
+
+  @Test
+  void valuesLargerThanTheStoreAreRejected() {
+
+    OffHeapStore store = new OffHeapStore(100);
+    store.put(1, value(1, 10));
+
+    assertFalse(store.put(1, value(1, 101)));
+    assertNull(store.get(1));
+    assertFalse(new OffHeapStore(0).put(1, value(1, 1)));
+  }
+
+  @Test
+  void readsNeverSeeTornValues() throws InterruptedException {
+
+    OffHeapStore store = new OffHeapStore(4096);
+    Thread writer = new Thread(() -> {
+      Random random = new Random(42);
+      for (int i = 0; i < 200_000; i++) {
+        int key = random.nextInt(100);
+        store.put(key, value(key, 1 + random.nextInt(200)));
+      }
+    });
+
+    AtomicLong torn = new AtomicLong();
+    writer.start();
+    while (writer.isAlive()) {
+      for (int key = 0; key < 100; key++) {
+        byte[] value = store.get(key);
+        if (value != null && !Arrays.equals(value, value(key, value.length))) {
+          torn.incrementAndGet();
+        }
+      }
+    }
+    writer.join();
+
+    assertEquals(0, torn.get());
+  }
+
+  private static byte[] value(int fill, int length) {
+
+    byte[] value = new byte[length];
+    Arrays.fill(value, (byte) fill);
+    return value;
+  }
+}
@@ -0,0 +1,41 @@
+package com.pedrocoelho.util.compression;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentCompressionTests {
+
+  @Test
+  void roundTrip() {
+
+    String text = "Works as described, the battery lasts a week. ".repeat(40) + "Ünïcödé ✓";
+
+    byte[] compressed = ContentCompression.compress(text, 512);
+
+    assertNotNull(compressed);
+    assertTrue(compressed.length < text.length() / 4);
+    assertEquals(text, ContentCompression.decompress(compressed));
+  }
+
+  @Test
+  void shortTextIsNotCompressed() {
+
+    assertNull(ContentCompression.compress("short", 512));
+    assertNull(ContentCompression.compress(null, 512));
+  }
+
+  @Test
+  void incompressibleTextIsNotCompressed() {
+
+    StringBuilder text = new StringBuilder();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < 2_000; i++) {
+      text.append((char) random.nextInt(0x21, 0x7f));
+    }
+
+    assertNull(ContentCompression.compress(text.toString(), 512));
+  }
+}
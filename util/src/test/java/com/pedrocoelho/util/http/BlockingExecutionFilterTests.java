@@ -0,0 +1,35 @@
+package com.pedrocoelho.util.http;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockingExecutionFilterTests {
+
+  @Test
+  void requestBodyIsHandledOffTheCallingThread() {
+
+    BlockingExecutionFilter filter = new BlockingExecutionFilter("bounded-elastic");
+    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/review").body("{\"productId\":1}"));
+    AtomicReference<String> subscribedOn = new AtomicReference<>();
+    AtomicReference<String> bodyReadOn = new AtomicReference<>();
+
+    filter.filter(exchange, filtered -> {
+      subscribedOn.set(Thread.currentThread().getName());
+      return filtered.getRequest().getBody().doOnNext(buffer -> bodyReadOn.set(Thread.currentThread().getName())).then();
+    }).block();
+
+    assertTrue(subscribedOn.get().startsWith("boundedElastic"), subscribedOn.get());
+    assertTrue(bodyReadOn.get().startsWith("boundedElastic"), bodyReadOn.get());
+  }
+
+  @Test
+  void unknownModeIsRejected() {
+
+    assertThrows(IllegalArgumentException.class, () -> new BlockingExecutionFilter("carrier"));
+  }
+}
@@ -0,0 +1,68 @@
+package com.pedrocoelho.util.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedSnapshotTests {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void roundTrip() throws IOException {
+
+    Path file = dir.resolve("snapshot");
+    Map<Integer, byte[]> records = new HashMap<>();
+    for (int key : new int[] {42, -7, 3, 1_000_000}) {
+      records.put(key, ("record " + key).getBytes(StandardCharsets.UTF_8));
+    }
+    records.put(5, new byte[0]);
+
+    MappedSnapshot.write(file, records);
+    MappedSnapshot snapshot = MappedSnapshot.open(file);
+
+    assertEquals(5, snapshot.size());
+    assertArrayEquals(new int[] {-7, 3, 5, 42, 1_000_000}, snapshot.keys());
+    records.forEach((key, record) -> assertArrayEquals(record, snapshot.get(key)));
+    assertNull(snapshot.get(4));
+    assertNull(snapshot.get(Integer.MAX_VALUE));
+  }
+
+  @Test
+  void openSnapshotSurvivesReplacement() throws IOException {
+
+    Path file = dir.resolve("snapshot");
+    MappedSnapshot.write(file, Map.of(1, new byte[] {1}));
+    MappedSnapshot before = MappedSnapshot.open(file);
+
+    MappedSnapshot.write(file, Map.of(2, new byte[] {2}));
+
+    assertArrayEquals(new byte[] {1}, before.get(1));
+    assertArrayEquals(new byte[] {2}, MappedSnapshot.open(file).get(2));
+    assertFalse(Files.exists(dir.resolve("snapshot.tmp")));
+  }
+
+  @Test
+  void invalidFilesAreRejected() throws IOException {
+
+    Path foreign = dir.resolve("foreign");
+    Files.writeString(foreign, "not a snapshot at all");
+    assertThrows(IOException.class, () -> MappedSnapshot.open(foreign));
+
+    Path truncated = dir.resolve("truncated");
+    MappedSnapshot.write(truncated, Map.of(1, new byte[100]));
+    byte[] bytes = Files.readAllBytes(truncated);
+    Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+    assertThrows(IOException.class, () -> MappedSnapshot.open(truncated));
+  }
+}
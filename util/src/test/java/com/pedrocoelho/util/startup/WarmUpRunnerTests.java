@@ -0,0 +1,87 @@
+package com.pedrocoelho.util.startup;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmUpRunnerTests {
+
+  private static final int KEY_RANGE_START = 1_000_000;
+
+  @Test
+  void readyOnceTargetLatencyIsReached() throws InterruptedException {
+
+    CountingWorkload workload = new CountingWorkload(false);
+    WarmUpRunner runner = runner(workload, Duration.ofSeconds(1), Duration.ofSeconds(30));
+    WarmUpHealthIndicator health = new WarmUpHealthIndicator(runner);
+
+    assertEquals(Status.OUT_OF_SERVICE, health.health().getStatus());
+
+    runner.start(WebClient.create());
+    assertTrue(runner.awaitDone(Duration.ofSeconds(30)));
+
+    assertTrue(runner.isTargetReached());
+    assertTrue(runner.getIterations() >= 500);
+    assertEquals(Status.UP, health.health().getStatus());
+    assertTrue(workload.keys.stream().allMatch(key -> key >= KEY_RANGE_START && key < KEY_RANGE_START + 100));
+    assertEquals(workload.keys, workload.cleanedUp);
+  }
+
+  @Test
+  void readyAnywayWhenTheWorkloadKeepsFailing() throws InterruptedException {
+
+    CountingWorkload workload = new CountingWorkload(true);
+    WarmUpRunner runner = runner(workload, Duration.ofSeconds(1), Duration.ofSeconds(30));
+
+    runner.start(WebClient.create());
+    assertTrue(runner.awaitDone(Duration.ofSeconds(30)));
+
+    assertFalse(runner.isTargetReached());
+    assertEquals(10, workload.runs.get());
+    assertEquals(Status.UP, new WarmUpHealthIndicator(runner).health().getStatus());
+  }
+
+  private static WarmUpRunner runner(WarmUpWorkload workload, Duration targetLatency, Duration maxDuration) {
+
+    StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+    beanFactory.addBean("workload", workload);
+    return new WarmUpRunner(beanFactory.getBeanProvider(WarmUpWorkload.class), true, targetLatency, 500, maxDuration, KEY_RANGE_START);
+  }
+
+  private static class CountingWorkload implements WarmUpWorkload {
+
+    private final boolean failing;
+    private final AtomicInteger runs = new AtomicInteger();
+    private final Set<Integer> keys = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> cleanedUp = ConcurrentHashMap.newKeySet();
+
+    CountingWorkload(boolean failing) {
+
+      this.failing = failing;
+    }
+
+    @Override
+    public Mono<Void> run(WebClient client, int key) {
+
+      runs.incrementAndGet();
+      keys.add(key);
+      return failing ? Mono.error(new IllegalStateException("down")) : Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> cleanUp(WebClient client, int key) {
+
+      cleanedUp.add(key);
+      return Mono.empty();
+    }
+  }
+}